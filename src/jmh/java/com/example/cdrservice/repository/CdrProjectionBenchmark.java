@@ -0,0 +1,173 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.CdrServiceApplication;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.service.UdrAggregator;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Сравнение чтения CDR-записей за месяц управляемыми сущностями и проекцией {@link CdrCall}
+ * на реальной базе H2 в памяти.
+ * <p>
+ * Оба варианта читают одну помесячную партицию курсором и суммируют длительности {@link UdrAggregator}.
+ * Вариант с сущностями очищает контекст персистентности каждые 1000 записей, как это делал
+ * {@code UdrService} до перехода на проекции. Снижение количества создаваемых объектов видно
+ * по метрике {@code gc.alloc.rate.norm} профилировщика GC:
+ * {@code mvn test -Pjmh -Djmh.args="CdrProjectionBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CdrProjectionBenchmark {
+
+    private static final String MONTH = "2030-01";
+    private static final int SUBSCRIBERS = 10_000;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final int CLEAR_INTERVAL = 1000;
+    private static final int FETCH_SIZE = 1000;
+
+    @Param({"100000", "1000000"})
+    public int records;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CdrServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:cdr-projection-benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.h2.console.enabled=false")
+                .run();
+        entityManager = context.getBean(EntityManager.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        insertMonth(context.getBean(CdrRecordBatchWriter.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MsisdnTotals managedEntities() {
+        return readOnlyTransaction.execute(status -> {
+            UdrAggregator aggregator = new UdrAggregator();
+            try (Stream<CdrRecord> stream = streamRecords()) {
+                int read = 0;
+                for (CdrRecord record : (Iterable<CdrRecord>) stream::iterator) {
+                    aggregator.accept(record);
+                    if (++read % CLEAR_INTERVAL == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+            return aggregator.getTotals();
+        });
+    }
+
+    @Benchmark
+    public MsisdnTotals projection() {
+        return readOnlyTransaction.execute(status -> {
+            UdrAggregator aggregator = new UdrAggregator();
+            try (Stream<CdrCall> stream = streamCalls()) {
+                stream.forEach(aggregator::accept);
+            }
+            return aggregator.getTotals();
+        });
+    }
+
+    /**
+     * Читает записи партиции управляемыми сущностями курсором JDBC.
+     */
+    private Stream<CdrRecord> streamRecords() {
+        return entityManager.createQuery("SELECT r FROM CdrRecord r WHERE r.billingMonth = :month", CdrRecord.class)
+                .setParameter("month", MONTH)
+                .setHint(HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    /**
+     * Читает звонки партиции проекцией {@link CdrCall} курсором JDBC.
+     */
+    private Stream<CdrCall> streamCalls() {
+        return entityManager.createQuery("SELECT new com.example.cdrservice.dto.CdrCall(" +
+                        "r.callType, r.callerNumber, r.receiverNumber, r.startTime, r.endTime) " +
+                        "FROM CdrRecord r WHERE r.billingMonth = :month", CdrCall.class)
+                .setParameter("month", MONTH)
+                .setHint(HINT_FETCH_SIZE, FETCH_SIZE)
+                .getResultStream();
+    }
+
+    /**
+     * Вставляет синтетические звонки за месяц, отдельный от данных, сгенерированных при запуске.
+     */
+    private void insertMonth(CdrRecordBatchWriter writer) {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime monthStart = LocalDateTime.parse(MONTH + "-01T00:00:00");
+        int monthSeconds = 31 * 24 * 3600 - 7200;
+
+        List<CdrRecord> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < records; i++) {
+            int caller = random.nextInt(SUBSCRIBERS);
+            int receiver = (caller + 1 + random.nextInt(SUBSCRIBERS - 1)) % SUBSCRIBERS;
+            LocalDateTime start = monthStart.plusSeconds(random.nextInt(monthSeconds));
+
+            CdrRecord record = new CdrRecord();
+            record.setCallType(random.nextBoolean() ? "01" : "02");
+            record.setCallerNumber(String.valueOf(79_000_000_000L + caller));
+            record.setReceiverNumber(String.valueOf(79_000_000_000L + receiver));
+            record.setStartTime(start);
+            record.setEndTime(start.plusSeconds(10 + random.nextInt(7190)));
+            batch.add(record);
+
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                writer.insert(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writer.insert(batch);
+        }
+    }
+}
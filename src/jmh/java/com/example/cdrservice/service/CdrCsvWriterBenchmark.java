@@ -0,0 +1,87 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.CdrCall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение записи CDR-отчёта в CSV через {@link CdrCsvWriter} и прежней записи
+ * через {@link BufferedWriter} со {@code String.format} на каждую строку.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CdrCsvWriterBenchmark {
+
+    @Param({"100000", "1000000", "5000000"})
+    public int records;
+
+    private List<CdrCall> calls;
+    private Path file;
+    private final CdrCsvWriter csvWriter = new CdrCsvWriter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime yearStart = LocalDateTime.of(2024, 1, 1, 0, 0);
+        calls = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            LocalDateTime start = yearStart.plusSeconds(random.nextInt(365 * 24 * 3600));
+            calls.add(new CdrCall(
+                    random.nextBoolean() ? "01" : "02",
+                    String.valueOf(79_000_000_000L + random.nextInt(10_000)),
+                    String.valueOf(79_000_000_000L + random.nextInt(10_000)),
+                    start,
+                    start.plusSeconds(10 + random.nextInt(7190))));
+        }
+        file = Files.createTempFile("cdr-report", ".csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void fileChannel() throws IOException {
+        csvWriter.write(file, calls);
+    }
+
+    @Benchmark
+    public void bufferedWriterStringFormat() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (CdrCall call : calls) {
+                writer.write(String.format("%s,%s,%s,%s,%s\n",
+                        call.callType(),
+                        call.callerNumber(),
+                        call.receiverNumber(),
+                        call.startTime(),
+                        call.endTime()));
+            }
+        }
+    }
+}
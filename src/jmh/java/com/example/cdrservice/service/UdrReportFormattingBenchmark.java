@@ -0,0 +1,87 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.UdrTotals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Масштабирование сериализации консолидированного отчёта за месяц по числу ядер.
+ * <p>
+ * Сравнивается сериализация {@link UdrService#formatAll(List)}, где каждая задача пишет в свой буфер,
+ * и прежняя схема: параллельный обход с добавлением строк в общий {@link StringBuilder}
+ * под {@code synchronized}. Потоки выполняются в пуле {@link ForkJoinPool} заданной параллельности,
+ * поэтому ускорение видно по сравнению результатов для разных значений {@code parallelism}:
+ * {@code mvn test -Pjmh -Djmh.args="UdrReportFormattingBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UdrReportFormattingBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int subscribers;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private List<UdrTotals> totals;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        totals = new ArrayList<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            totals.add(new UdrTotals(String.valueOf(79_000_000_000L + i),
+                    random.nextInt(360_000), random.nextInt(360_000)));
+        }
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public String perTaskBuffers() throws ExecutionException, InterruptedException {
+        return pool.submit(() -> UdrService.formatAll(totals)).get();
+    }
+
+    @Benchmark
+    public String synchronizedStringBuilder() throws ExecutionException, InterruptedException {
+        return pool.submit(() -> {
+            StringBuilder result = new StringBuilder();
+            totals.parallelStream().forEach(subscriber -> {
+                String report = new UdrJsonWriter()
+                        .writeUdr(subscriber.msisdn(), subscriber.incomingSeconds(), subscriber.outcomingSeconds())
+                        .toString();
+                synchronized (result) {
+                    result.append(report).append("\n");
+                }
+            });
+            return result.toString();
+        }).get();
+    }
+}
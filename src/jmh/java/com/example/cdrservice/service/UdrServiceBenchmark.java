@@ -0,0 +1,177 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.dto.UdrTotals;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import com.example.cdrservice.repository.UdrMonthlyRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Бенчмарки горячих путей {@link UdrService}: агрегация длительностей, сериализация отчётов,
+ * нормализация номера и построение отчётов по всем абонентам за месяц.
+ * <p>
+ * Наборы данных синтетические и воспроизводимые: звонки за один месяц между
+ * {@value #SUBSCRIBERS} абонентами. Репозитории заменены заглушками, поэтому измеряется
+ * только обработка в памяти. Отчёты по всем абонентам строятся так же, как без агрегатов и колоночного
+ * хранилища: заглушка возвращает суммы по абонентам, которые в приложении считает запрос с группировкой
+ * ({@code sumDurationsByBillingMonth}); здесь они заранее получены {@link UdrAggregator}, поэтому
+ * {@code generateAllUdrReports} измеряет сортировку и сериализацию отчётов без времени запроса.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class UdrServiceBenchmark {
+
+    private static final int SUBSCRIBERS = 10_000;
+    private static final String MONTH = "2024-03";
+
+    /**
+     * CDR-записи за месяц и сервис, читающий суммы по ним из заглушки репозитория.
+     */
+    @State(Scope.Benchmark)
+    public static class Dataset {
+
+        @Param({"10000", "100000", "1000000", "10000000"})
+        public int records;
+
+        List<CdrRecord> cdrRecords;
+        UdrService udrService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            cdrRecords = generateRecords(records);
+            udrService = newUdrService(cdrRecords);
+        }
+    }
+
+    /**
+     * Входные данные для форматирования и нормализации одного отчёта.
+     */
+    @State(Scope.Benchmark)
+    public static class Formatting {
+
+        UdrService udrService;
+        String rawMsisdn = "+7 (999) 111-22-33";
+        String msisdn = "79991112233";
+        long incomingSeconds = 123_456;
+        long outcomingSeconds = 7_890;
+        UdrJsonWriter writer = new UdrJsonWriter();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            udrService = newUdrService(List.of());
+        }
+    }
+
+    @Benchmark
+    public MsisdnTotals aggregate(Dataset dataset) {
+        return UdrAggregator.aggregate(dataset.cdrRecords);
+    }
+
+    @Benchmark
+    public String generateAllUdrReports(Dataset dataset) {
+        return dataset.udrService.generateAllUdrReports(MONTH);
+    }
+
+    @Benchmark
+    public String formatUdrReport(Formatting state) {
+        return state.udrService.formatUdrReport(state.msisdn, state.incomingSeconds, state.outcomingSeconds);
+    }
+
+    @Benchmark
+    public int writeUdr(Formatting state) {
+        UdrJsonWriter writer = state.writer;
+        writer.reset();
+        writer.writeUdr(79991112233L, state.incomingSeconds, state.outcomingSeconds).newLine();
+        return writer.size();
+    }
+
+    @Benchmark
+    public String normalizeMsisdn(Formatting state) {
+        return state.udrService.normalizeMsisdn(state.rawMsisdn);
+    }
+
+    private static List<CdrRecord> generateRecords(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] msisdns = new String[SUBSCRIBERS];
+        for (int i = 0; i < msisdns.length; i++) {
+            msisdns[i] = String.valueOf(79_000_000_000L + i);
+        }
+        LocalDateTime monthStart = LocalDateTime.parse(MONTH + "-01T00:00:00");
+        int monthSeconds = 31 * 24 * 3600 - 7200;
+
+        List<CdrRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int caller = random.nextInt(SUBSCRIBERS);
+            int receiver = (caller + 1 + random.nextInt(SUBSCRIBERS - 1)) % SUBSCRIBERS;
+            LocalDateTime start = monthStart.plusSeconds(random.nextInt(monthSeconds));
+
+            CdrRecord record = new CdrRecord();
+            record.setCallType(random.nextBoolean() ? "01" : "02");
+            record.setCallerNumber(msisdns[caller]);
+            record.setReceiverNumber(msisdns[receiver]);
+            record.setStartTime(start);
+            record.setEndTime(start.plusSeconds(10 + random.nextInt(7190)));
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Сервис без агрегатов и колоночного хранилища: отчёты строятся по суммам длительностей переданных CDR-записей.
+     */
+    private static UdrService newUdrService(List<CdrRecord> records) {
+        List<UdrTotals> totals = totalsOf(records);
+        CdrRecordRepository cdrRecordRepository = stub(CdrRecordRepository.class, "sumDurationsByBillingMonth", () -> totals);
+        UdrMonthlyRollupRepository rollupRepository = stub(UdrMonthlyRollupRepository.class, "findByIdMonth", List::of);
+        return new UdrService(cdrRecordRepository, rollupRepository, new ColumnarCdrStore(null, false),
+                new UdrReportCache(0, Duration.ZERO), new MsisdnRegistry(cdrRecordRepository),
+                new BillingPeriodTracker(cdrRecordRepository), new UdrMetrics(new SimpleMeterRegistry()));
+    }
+
+    /**
+     * Суммы по абонентам в том виде, в каком их возвращает запрос с группировкой.
+     */
+    private static List<UdrTotals> totalsOf(List<CdrRecord> records) {
+        List<UdrTotals> totals = new ArrayList<>();
+        MsisdnTotals.Cursor cursor = UdrAggregator.aggregate(records).cursor();
+        while (cursor.next()) {
+            totals.add(new UdrTotals(CdrCodec.decodeMsisdn(cursor.msisdn()), cursor.incomingSeconds(), cursor.outcomingSeconds()));
+        }
+        return totals;
+    }
+
+    private static <T> T stub(Class<T> type, String methodName, Supplier<?> result) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals(methodName)) {
+                return result.get();
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+}
@@ -4,51 +4,135 @@ import com.example.cdrservice.entity.Subscriber;
 import com.example.cdrservice.repository.CdrRecordRepository;
 import com.example.cdrservice.repository.SubscriberRepository;
 import com.example.cdrservice.service.CdrGeneratorService;
+import com.example.cdrservice.service.UdrRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Компонент для инициализации данных в базе данных при запуске приложения.
- * Очищает таблицы, создает список абонентов и генерирует CDR-записи.
+ * <p>
+ * Режим задаётся свойством {@code cdr.generator.startup-mode}:
+ * <ul>
+ *   <li>{@code incremental} (по умолчанию) — добавляет недостающих абонентов; если CDR-записей нет,
+ *       генерирует записи за год, иначе догенерирует звонки после самого позднего сохранённого звонка.
+ *       Записи, сохранённые прежними версиями, предварительно приводятся к текущей схеме: заполняется
+ *       ключ помесячной партиции и при необходимости пересчитываются помесячные агрегаты.</li>
+ *   <li>{@code reset} — очищает таблицы командами {@code TRUNCATE} и пакетным удалением, затем генерирует
+ *       записи за год заново.</li>
+ *   <li>{@code none} — не изменяет данные.</li>
+ * </ul>
+ * Проверка существующих данных использует индекс по времени начала звонка, поэтому время запуска
+ * не зависит от количества записей.
  */
 @Component
 public class DataInitializer implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
+    /**
+     * Абоненты, для которых генерируются CDR-записи.
+     */
+    static final List<String> MSISDNS = Arrays.asList(
+            "79991112233", "79992221122", "79993334455", "79994445566",
+            "79995556677", "79996667788", "79997778899", "79998889900",
+            "79990001122", "79991113344"
+    );
+
+    /**
+     * Режим инициализации данных при запуске.
+     */
+    public enum StartupMode {
+        INCREMENTAL, RESET, NONE
+    }
+
     private final SubscriberRepository subscriberRepository;
     private final CdrRecordRepository cdrRecordRepository;
     private final CdrGeneratorService cdrGeneratorService;
+    private final UdrRollupService udrRollupService;
+    private final StartupMode startupMode;
 
     public DataInitializer(SubscriberRepository subscriberRepository,
                            CdrRecordRepository cdrRecordRepository,
-                           CdrGeneratorService cdrGeneratorService) {
+                           CdrGeneratorService cdrGeneratorService,
+                           UdrRollupService udrRollupService,
+                           @Value("${cdr.generator.startup-mode:incremental}") StartupMode startupMode) {
         this.subscriberRepository = subscriberRepository;
         this.cdrRecordRepository = cdrRecordRepository;
         this.cdrGeneratorService = cdrGeneratorService;
+        this.udrRollupService = udrRollupService;
+        this.startupMode = startupMode;
     }
 
     @Override
     public void run(String... args) {
-        // Очищаем таблицы перед генерацией данных
-        cdrRecordRepository.deleteAll(); // Очистка CDR_RECORD
-        subscriberRepository.deleteAll(); // Очистка SUBSCRIBER
-
-        // Создаем список абонентов
-        List<String> msisdns = Arrays.asList(
-                "79991112233", "79992221122", "79993334455", "79994445566",
-                "79995556677", "79996667788", "79997778899", "79998889900",
-                "79990001122", "79991113344"
-        );
-
-        for (String msisdn : msisdns) {
-            Subscriber subscriber = new Subscriber();
-            subscriber.setMsisdn(msisdn);
-            subscriberRepository.save(subscriber);
+        if (startupMode == StartupMode.NONE) {
+            log.info("CDR generation on startup is disabled");
+            return;
         }
 
-        // Генерируем CDR-записи
-        cdrGeneratorService.generateCdrRecords();
+        if (startupMode == StartupMode.RESET) {
+            // Таблицы очищаются целиком, без загрузки и удаления сущностей по одной
+            cdrRecordRepository.truncate(); // Очистка CDR_RECORD
+            subscriberRepository.deleteAllInBatch(); // Очистка SUBSCRIBER
+            udrRollupService.clear(); // Очистка помесячных агрегатов UDR
+        }
+
+        saveMissingSubscribers();
+
+        // Самое позднее начало звонка читается по индексу, без сканирования таблицы
+        LocalDateTime latestStartTime = cdrRecordRepository.findLatestStartTime();
+        if (latestStartTime == null) {
+            cdrGeneratorService.generateCdrRecords();
+        } else {
+            upgradeExistingRecords();
+            cdrGeneratorService.generateCdrRecordsAfter(latestStartTime);
+        }
+    }
+
+    /**
+     * Приводит записи, сохранённые прежними версиями приложения, к текущей схеме.
+     * <p>
+     * Без ключа партиции записи не попадают в отчёты за месяц и в пересчёт агрегатов, а без агрегатов
+     * отчёт абонента за весь период учитывал бы только догенерированные звонки. Поэтому сначала заполняется
+     * {@code billing_month}, затем агрегаты пересчитываются, если они отсутствуют или не учитывали
+     * обновлённые записи. Догенерация выполняется после пересчёта и обновляет агрегаты событиями.
+     */
+    private void upgradeExistingRecords() {
+        int backfilled = cdrRecordRepository.backfillBillingMonth();
+        if (backfilled > 0) {
+            log.info("Assigned billing month to {} CDR records saved by an earlier version", backfilled);
+        }
+        if (backfilled > 0 || !udrRollupService.hasRollups()) {
+            int rollups = udrRollupService.rebuild();
+            log.info("Rebuilt {} monthly UDR rollups from existing CDR records", rollups);
+        }
+    }
+
+    /**
+     * Сохраняет абонентов из {@link #MSISDNS}, которых ещё нет в базе данных.
+     */
+    private void saveMissingSubscribers() {
+        Set<String> existing = subscriberRepository.findAll().stream()
+                .map(Subscriber::getMsisdn)
+                .collect(Collectors.toSet());
+
+        List<Subscriber> missing = MSISDNS.stream()
+                .filter(msisdn -> !existing.contains(msisdn))
+                .map(msisdn -> {
+                    Subscriber subscriber = new Subscriber();
+                    subscriber.setMsisdn(msisdn);
+                    return subscriber;
+                })
+                .toList();
+        subscriberRepository.saveAll(missing);
     }
 }
@@ -0,0 +1,137 @@
+package com.example.cdrservice.compact;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Кодирование полей CDR-записи в примитивы компактного представления.
+ * <ul>
+ *   <li>MSISDN — число {@code long}. Кодируются только номера из 1–18 цифр без ведущего нуля: иначе число
+ *       не восстанавливает номер ("0123" и "123" совпали бы). Остальные номера не представимы числом
+ *       и обрабатываются по строковому значению.</li>
+ *   <li>Тип вызова — {@code byte}: 1 для "01", 2 для "02".</li>
+ *   <li>Время — количество секунд от эпохи (UTC) в виде {@code long}.</li>
+ * </ul>
+ */
+public final class CdrCodec {
+
+    /** Отсутствующий номер абонента. */
+    public static final long NO_MSISDN = 0L;
+
+    /** Номер, не представимый числом без потерь. */
+    public static final long INVALID_MSISDN = -1L;
+
+    /** Регулярное выражение для SQL-запросов, которому соответствуют номера, представимые числом (см. {@link #isEncodable}). */
+    public static final String ENCODABLE_MSISDN_REGEX = "^[1-9][0-9]{0,17}$";
+
+    /** Неизвестный тип вызова. */
+    public static final byte UNKNOWN_CALL = 0;
+    /** Исходящий вызов ("01"). */
+    public static final byte OUTCOMING_CALL = 1;
+    /** Входящий вызов ("02"). */
+    public static final byte INCOMING_CALL = 2;
+
+    private static final int MAX_MSISDN_DIGITS = 18;
+
+    private CdrCodec() {
+    }
+
+    /**
+     * Кодирует MSISDN в число без промежуточных объектов.
+     *
+     * @param msisdn Номер абонента, состоящий только из цифр.
+     * @return Номер в виде числа или {@link #NO_MSISDN}, если номер не задан.
+     * @throws IllegalArgumentException Если номер не представим числом без потерь (см. {@link #isEncodable}).
+     */
+    public static long encodeMsisdn(String msisdn) {
+        long value = encodeMsisdnOrInvalid(msisdn);
+        if (value == INVALID_MSISDN) {
+            throw new IllegalArgumentException("MSISDN cannot be encoded: " + msisdn);
+        }
+        return value;
+    }
+
+    /**
+     * Кодирует MSISDN в число, не выбрасывая исключений для номеров из внешних данных.
+     *
+     * @param msisdn Номер абонента.
+     * @return Номер в виде числа, {@link #NO_MSISDN}, если номер не задан,
+     *         или {@link #INVALID_MSISDN}, если номер не представим числом без потерь.
+     */
+    public static long encodeMsisdnOrInvalid(String msisdn) {
+        if (msisdn == null || msisdn.isEmpty()) {
+            return NO_MSISDN;
+        }
+        if (msisdn.length() > MAX_MSISDN_DIGITS || msisdn.charAt(0) == '0') {
+            return INVALID_MSISDN;
+        }
+        long value = 0;
+        for (int i = 0; i < msisdn.length(); i++) {
+            char c = msisdn.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID_MSISDN;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @param msisdn Номер абонента.
+     * @return true, если номер задан и однозначно представим числом: от 1 до 18 цифр без ведущего нуля.
+     */
+    public static boolean isEncodable(String msisdn) {
+        long value = encodeMsisdnOrInvalid(msisdn);
+        return value != NO_MSISDN && value != INVALID_MSISDN;
+    }
+
+    /**
+     * @param msisdn Номер абонента в виде числа.
+     * @return Номер абонента в виде строки или null для {@link #NO_MSISDN}.
+     */
+    public static String decodeMsisdn(long msisdn) {
+        return msisdn == NO_MSISDN ? null : Long.toString(msisdn);
+    }
+
+    /**
+     * @param callType Тип вызова ("01" или "02").
+     * @return Тип вызова в виде байта или {@link #UNKNOWN_CALL}.
+     */
+    public static byte encodeCallType(String callType) {
+        if ("01".equals(callType)) {
+            return OUTCOMING_CALL;
+        }
+        if ("02".equals(callType)) {
+            return INCOMING_CALL;
+        }
+        return UNKNOWN_CALL;
+    }
+
+    /**
+     * @param callType Тип вызова в виде байта.
+     * @return Тип вызова ("01" или "02") или null для неизвестного типа.
+     */
+    public static String decodeCallType(byte callType) {
+        return switch (callType) {
+            case OUTCOMING_CALL -> "01";
+            case INCOMING_CALL -> "02";
+            default -> null;
+        };
+    }
+
+    /**
+     * @param dateTime Дата и время.
+     * @return Количество секунд от эпохи (UTC).
+     */
+    public static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * @param epochSecond Количество секунд от эпохи (UTC).
+     * @return Дата и время.
+     */
+    public static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.cdrservice.compact;
+
+/**
+ * Множество номеров абонентов на хэш-таблице с открытой адресацией по массиву {@code long}.
+ * <p>
+ * Номер занимает 8 байт без объектов-обёрток. Ключ {@link CdrCodec#NO_MSISDN} зарезервирован под пустую ячейку
+ * и в множество не добавляется.
+ */
+public class MsisdnSet {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] keys = new long[DEFAULT_CAPACITY];
+    private int size;
+
+    /**
+     * Добавляет номер в множество.
+     *
+     * @param msisdn Номер абонента.
+     * @return true, если номера ещё не было в множестве.
+     */
+    public boolean add(long msisdn) {
+        if (msisdn == CdrCodec.NO_MSISDN) {
+            return false;
+        }
+        int slot = slotFor(keys, msisdn);
+        if (keys[slot] == msisdn) {
+            return false;
+        }
+        keys[slot] = msisdn;
+        if (++size * 2 > keys.length) {
+            resize();
+        }
+        return true;
+    }
+
+    public boolean contains(long msisdn) {
+        return msisdn != CdrCodec.NO_MSISDN && keys[slotFor(keys, msisdn)] == msisdn;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] resized = new long[keys.length * 2];
+        for (long key : keys) {
+            if (key != CdrCodec.NO_MSISDN) {
+                resized[slotFor(resized, key)] = key;
+            }
+        }
+        keys = resized;
+    }
+
+    private static int slotFor(long[] table, long msisdn) {
+        int mask = table.length - 1;
+        long h = msisdn * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (table[slot] != CdrCodec.NO_MSISDN && table[slot] != msisdn) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.cdrservice.compact;
+
+import java.util.Arrays;
+
+/**
+ * Суммарные длительности входящих и исходящих звонков по абонентам.
+ * <p>
+ * Хэш-таблица с открытой адресацией на параллельных массивах {@code long}: ключи и значения
+ * хранятся без упаковки, поэтому накопление длительностей не создаёт объектов на каждую запись.
+ * Ключ {@link CdrCodec#NO_MSISDN} зарезервирован под пустую ячейку, а номера {@link CdrCodec#INVALID_MSISDN}
+ * не учитываются: отчёты по таким номерам строятся по строковому значению.
+ */
+public class MsisdnTotals {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private long[] keys;
+    private long[] incoming;
+    private long[] outcoming;
+    private int size;
+
+    public MsisdnTotals() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MsisdnTotals(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Увеличивает длительности абонента; абонент попадает в таблицу даже при нулевых приращениях.
+     *
+     * @param msisdn           Номер абонента.
+     * @param incomingSeconds  Прирост длительности входящих звонков (в секундах).
+     * @param outcomingSeconds Прирост длительности исходящих звонков (в секундах).
+     */
+    public void add(long msisdn, long incomingSeconds, long outcomingSeconds) {
+        if (msisdn == CdrCodec.NO_MSISDN || msisdn == CdrCodec.INVALID_MSISDN) {
+            return;
+        }
+        int slot = slotFor(msisdn);
+        if (keys[slot] == CdrCodec.NO_MSISDN) {
+            keys[slot] = msisdn;
+            if (++size * 2 > keys.length) {
+                resize();
+                slot = find(msisdn);
+            }
+        }
+        incoming[slot] += incomingSeconds;
+        outcoming[slot] += outcomingSeconds;
+    }
+
+    public boolean contains(long msisdn) {
+        return find(msisdn) >= 0;
+    }
+
+    public long incomingSeconds(long msisdn) {
+        int slot = find(msisdn);
+        return slot < 0 ? 0 : incoming[slot];
+    }
+
+    public long outcomingSeconds(long msisdn) {
+        int slot = find(msisdn);
+        return slot < 0 ? 0 : outcoming[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return Курсор для обхода абонентов в произвольном порядке.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return Номера всех абонентов таблицы в порядке возрастания.
+     */
+    public long[] sortedMsisdns() {
+        long[] result = new long[size];
+        int i = 0;
+        for (long key : keys) {
+            if (key != CdrCodec.NO_MSISDN) {
+                result[i++] = key;
+            }
+        }
+        Arrays.parallelSort(result);
+        return result;
+    }
+
+    private int find(long msisdn) {
+        if (msisdn == CdrCodec.NO_MSISDN) {
+            return -1;
+        }
+        int slot = slotFor(msisdn);
+        return keys[slot] == msisdn ? slot : -1;
+    }
+
+    /**
+     * Возвращает ячейку с указанным ключом или первую свободную ячейку на пути линейного пробирования.
+     */
+    private int slotFor(long msisdn) {
+        int mask = keys.length - 1;
+        int slot = mix(msisdn) & mask;
+        while (keys[slot] != CdrCodec.NO_MSISDN && keys[slot] != msisdn) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldIncoming = incoming;
+        long[] oldOutcoming = outcoming;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != CdrCodec.NO_MSISDN) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                incoming[slot] = oldIncoming[i];
+                outcoming[slot] = oldOutcoming[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        incoming = new long[capacity];
+        outcoming = new long[capacity];
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Курсор по заполненным ячейкам таблицы.
+     */
+    public class Cursor {
+        private int slot = -1;
+
+        /**
+         * Переходит к следующему абоненту.
+         *
+         * @return false, если абоненты закончились.
+         */
+        public boolean next() {
+            while (++slot < keys.length) {
+                if (keys[slot] != CdrCodec.NO_MSISDN) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public long msisdn() {
+            return keys[slot];
+        }
+
+        public long incomingSeconds() {
+            return incoming[slot];
+        }
+
+        public long outcomingSeconds() {
+            return outcoming[slot];
+        }
+    }
+}
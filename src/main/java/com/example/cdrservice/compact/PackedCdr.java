@@ -0,0 +1,47 @@
+package com.example.cdrservice.compact;
+
+import com.example.cdrservice.entity.CdrRecord;
+
+/**
+ * Компактное представление CDR-записи в памяти: только примитивные поля, закодированные {@link CdrCodec}.
+ * Номер, не представимый числом, хранится как {@link CdrCodec#INVALID_MSISDN} и не попадает в итоги.
+ *
+ * @param callType         Тип вызова.
+ * @param callerNumber     Номер вызывающего абонента.
+ * @param receiverNumber   Номер принимающего абонента.
+ * @param startEpochSecond Начало звонка (секунды от эпохи, UTC).
+ * @param endEpochSecond   Окончание звонка (секунды от эпохи, UTC).
+ */
+public record PackedCdr(byte callType,
+                        long callerNumber,
+                        long receiverNumber,
+                        long startEpochSecond,
+                        long endEpochSecond) {
+
+    public static PackedCdr of(CdrRecord record) {
+        return new PackedCdr(
+                CdrCodec.encodeCallType(record.getCallType()),
+                CdrCodec.encodeMsisdnOrInvalid(record.getCallerNumber()),
+                CdrCodec.encodeMsisdnOrInvalid(record.getReceiverNumber()),
+                CdrCodec.toEpochSecond(record.getStartTime()),
+                CdrCodec.toEpochSecond(record.getEndTime())
+        );
+    }
+
+    /**
+     * @return Новая (ещё не сохранённая) сущность CDR-записи с раскодированными полями.
+     */
+    public CdrRecord toCdrRecord() {
+        CdrRecord record = new CdrRecord();
+        record.setCallType(CdrCodec.decodeCallType(callType));
+        record.setCallerNumber(CdrCodec.decodeMsisdn(callerNumber));
+        record.setReceiverNumber(CdrCodec.decodeMsisdn(receiverNumber));
+        record.setStartTime(CdrCodec.fromEpochSecond(startEpochSecond));
+        record.setEndTime(CdrCodec.fromEpochSecond(endEpochSecond));
+        return record;
+    }
+
+    public long durationSeconds() {
+        return endEpochSecond - startEpochSecond;
+    }
+}
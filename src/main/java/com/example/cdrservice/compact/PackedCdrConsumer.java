@@ -0,0 +1,11 @@
+package com.example.cdrservice.compact;
+
+/**
+ * Получатель CDR-записей в компактном представлении.
+ * Поля передаются отдельными примитивами, поэтому на каждую запись не создаётся ни одного объекта.
+ */
+@FunctionalInterface
+public interface PackedCdrConsumer {
+
+    void accept(byte callType, long callerNumber, long receiverNumber, long startEpochSecond, long endEpochSecond);
+}
@@ -0,0 +1,42 @@
+package com.example.cdrservice.controller;
+
+import com.example.cdrservice.dto.CdrIngestStats;
+import com.example.cdrservice.service.CdrIngestService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Контроллер для загрузки CDR-файлов коммутаторов.
+ */
+@RestController
+@RequestMapping("/cdr")
+@Profile("!reactive")
+public class CdrIngestController {
+
+    private final CdrIngestService cdrIngestService;
+
+    public CdrIngestController(CdrIngestService cdrIngestService) {
+        this.cdrIngestService = cdrIngestService;
+    }
+
+    /**
+     * Загружает CDR-записи из CSV-файла, переданного в теле запроса.
+     * <p>
+     * Тело читается потоково, поэтому размер файла не ограничен объёмом памяти.
+     *
+     * @param body Содержимое файла в формате CSV-отчёта CDR.
+     * @return ResponseEntity с количеством загруженных записей, отклонённых строк и скоростью загрузки.
+     * @throws IOException Если не удалось прочитать тело запроса.
+     */
+    @PostMapping(value = "/ingest", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<CdrIngestStats> ingest(InputStream body) throws IOException {
+        return ResponseEntity.ok(cdrIngestService.ingest(body));
+    }
+}
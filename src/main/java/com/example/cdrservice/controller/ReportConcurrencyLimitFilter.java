@@ -0,0 +1,126 @@
+package com.example.cdrservice.controller;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ограничение количества одновременно обрабатываемых запросов к отчётам ({@code /udr/**}).
+ * <p>
+ * Каждый такой запрос удерживает соединение с базой данных. При обработке запросов виртуальными
+ * потоками их количество не ограничено пулом Tomcat, поэтому без ограничения все запросы
+ * выстраиваются в очередь пула соединений и ждут до истечения его таймаута. Фильтр пропускает
+ * не больше {@code cdr.db.max-concurrent-requests} запросов; остальные ждут разрешения не дольше
+ * {@code cdr.db.acquire-timeout} и затем получают HTTP 503, так что перегрузка видна клиенту сразу.
+ * <p>
+ * Если запрос продолжает обработку асинхронно (например, потоковая выгрузка {@code /udr/all/stream}),
+ * разрешение освобождается только по завершении асинхронной обработки — ошибкой, таймаутом или успешно.
+ * <p>
+ * Ограничение отключено, если {@code cdr.db.max-concurrent-requests} не больше нуля.
+ */
+@Component
+@Profile("!reactive")
+public class ReportConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final String REPORT_PATH_PREFIX = "/udr/";
+
+    private final Semaphore permits;
+    private final long acquireTimeoutNanos;
+
+    public ReportConcurrencyLimitFilter(@Value("${cdr.db.max-concurrent-requests:0}") int maxConcurrentRequests,
+                                        @Value("${cdr.db.acquire-timeout:PT2S}") Duration acquireTimeout) {
+        this.permits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return permits == null || !request.getRequestURI().startsWith(request.getContextPath() + REPORT_PATH_PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getWriter().write("Too many report requests in progress");
+            return;
+        }
+
+        PermitRelease release = new PermitRelease();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // Асинхронная обработка завершается не раньше выхода из фильтра, поэтому слушатель не пропустит её окончание
+                request.getAsyncContext().addListener(release);
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                release.run();
+            }
+        }
+    }
+
+    /**
+     * Однократно освобождает разрешение: по окончании обработки запроса или его асинхронной части.
+     */
+    private class PermitRelease implements AsyncListener, Runnable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Повторный запуск асинхронной обработки требует заново зарегистрировать слушателя
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -1,13 +1,31 @@
 package com.example.cdrservice.controller;
 
+import com.example.cdrservice.dto.CdrPartitionInfo;
+import com.example.cdrservice.dto.CdrReportJobStatus;
+import com.example.cdrservice.dto.UdrCacheStats;
+import com.example.cdrservice.entity.CdrReportJob;
+import com.example.cdrservice.service.CdrPartitionService;
+import com.example.cdrservice.service.CdrReportJobService;
+import com.example.cdrservice.service.UdrReportCache;
+import com.example.cdrservice.service.UdrRollupService;
 import com.example.cdrservice.service.UdrService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Контроллер для работы с отчётами по CDR-записям.
@@ -15,17 +33,35 @@ import java.time.format.DateTimeParseException;
  * <ul>
  *   <li>Получения индивидуальных отчётов для конкретных абонентов.</li>
  *   <li>Получения консолидированных отчётов для всех абонентов за указанный период.</li>
- *   <li>Генерации CDR-отчётов в формате CSV.</li>
+ *   <li>Потоковой выдачи консолидированных отчётов в формате NDJSON.</li>
+ *   <li>Генерации CDR-отчётов в формате CSV, в том числе асинхронной с проверкой статуса и скачиванием файла.</li>
+ *   <li>Пересчёта помесячных агрегатов UDR.</li>
+ *   <li>Статистики кэша UDR-отчётов.</li>
+ *   <li>Просмотра и удаления помесячных партиций CDR-записей.</li>
  * </ul>
+ * В профиле {@code reactive} отчёты обслуживает {@code ReactiveUdrController}.
  */
 @RestController
 @RequestMapping("/udr")
+@Profile("!reactive")
 public class UdrController {
 
     private final UdrService udrService;
+    private final UdrRollupService udrRollupService;
+    private final CdrReportJobService cdrReportJobService;
+    private final UdrReportCache udrReportCache;
+    private final CdrPartitionService cdrPartitionService;
 
-    public UdrController(UdrService udrService) {
+    public UdrController(UdrService udrService,
+                         UdrRollupService udrRollupService,
+                         CdrReportJobService cdrReportJobService,
+                         UdrReportCache udrReportCache,
+                         CdrPartitionService cdrPartitionService) {
         this.udrService = udrService;
+        this.udrRollupService = udrRollupService;
+        this.cdrReportJobService = cdrReportJobService;
+        this.udrReportCache = udrReportCache;
+        this.cdrPartitionService = cdrPartitionService;
     }
 
     /**
@@ -72,6 +108,37 @@ public class UdrController {
         return ResponseEntity.ok(reports);
     }
 
+    /**
+     * Потоково выдаёт консолидированные отчёты для всех абонентов за указанный месяц в формате NDJSON.
+     * <p>
+     * Отчёты передаются клиенту по мере формирования, поэтому потребление памяти не зависит от размера месяца.
+     *
+     * Тип ответа объявлен как {@code ResponseEntity<StreamingResponseBody>}, чтобы тело записывалось асинхронно;
+     * ошибки запроса передаются исключением {@link ReportRequestException}.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return ResponseEntity с потоком JSON-отчётов по одному на строку.
+     * @throws ReportRequestException С ответом HTTP 400 при неверном формате месяца или HTTP 404,
+     *                                если записи отсутствуют.
+     */
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllUdrReports(@RequestParam String month) {
+        ResponseEntity<String> dateValidation = validateMonthFormat(month);
+        if (dateValidation != null) {
+            throw new ReportRequestException(dateValidation);
+        }
+
+        if (!udrService.hasRecordsForMonth(month)) {
+            throw new ReportRequestException(
+                    ResponseEntity.status(HttpStatus.NOT_FOUND).body("No records found for the specified period."));
+        }
+
+        StreamingResponseBody body = out -> udrService.writeAllUdrReports(month, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     /**
      * Генерирует CDR-отчёт в формате CSV для указанного абонента за указанный период.
      *
@@ -97,13 +164,164 @@ public class UdrController {
         }
     }
 
+    /**
+     * Принимает задание на асинхронную генерацию CDR-отчёта для указанного абонента за указанный период.
+     * <p>
+     * Идентификатор отчёта возвращается сразу, файл формируется в фоне.
+     *
+     * @param msisdn    Номер абонента (MSISDN).
+     * @param startDate Начальная дата и время периода в формате "YYYY-MM-DDTHH:mm:ss".
+     * @param endDate   Конечная дата и время периода в формате "YYYY-MM-DDTHH:mm:ss".
+     * @return ResponseEntity с идентификатором отчёта (HTTP 202) или сообщением об ошибке
+     *         (HTTP 503, если очередь заданий заполнена).
+     */
+    @PostMapping("/cdr-report/{msisdn}")
+    public ResponseEntity<String> submitCdrReport(@PathVariable String msisdn,
+                                                  @RequestParam String startDate,
+                                                  @RequestParam String endDate) {
+        ResponseEntity<String> dateValidation = validateDateTimeRange(startDate, endDate);
+        if (dateValidation != null) {
+            return dateValidation;
+        }
+
+        try {
+            String reportId = cdrReportJobService.submit(msisdn, LocalDateTime.parse(startDate), LocalDateTime.parse(endDate));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body("Report job accepted with ID: " + reportId);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many report jobs in progress");
+        }
+    }
+
+    /**
+     * Получает состояние задания на генерацию CDR-отчёта.
+     *
+     * @param id Идентификатор отчёта.
+     * @return ResponseEntity с состоянием задания или сообщением об ошибке (HTTP 404, если задание не найдено).
+     */
+    @GetMapping("/cdr-report/status/{id}")
+    public ResponseEntity<?> getCdrReportStatus(@PathVariable String id) {
+        Optional<CdrReportJob> job = cdrReportJobService.findJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Report job not found");
+        }
+        return ResponseEntity.ok(CdrReportJobStatus.from(job.get()));
+    }
+
+    /**
+     * Выдаёт файл готового CDR-отчёта.
+     *
+     * @param id Идентификатор отчёта.
+     * @return ResponseEntity с CSV-файлом или сообщением об ошибке
+     *         (HTTP 404, если задание или файл не найдены; HTTP 409, если отчёт ещё не готов или не сформирован).
+     */
+    @GetMapping("/cdr-report/download/{id}")
+    public ResponseEntity<?> downloadCdrReport(@PathVariable String id) {
+        Optional<CdrReportJob> job = cdrReportJobService.findJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Report job not found");
+        }
+        if (job.get().getStatus() != CdrReportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Report is not ready: " + job.get().getStatus());
+        }
+
+        FileSystemResource file = new FileSystemResource(Path.of(job.get().getFilePath()));
+        if (!file.exists()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Report file not found");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(file.getFilename()).build().toString())
+                .body(file);
+    }
+
+    /**
+     * Полностью пересчитывает помесячные агрегаты UDR по исходным CDR-записям.
+     *
+     * @return ResponseEntity с количеством пересчитанных агрегатов.
+     */
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<String> rebuildRollup() {
+        int rebuilt = udrRollupService.rebuild();
+        return ResponseEntity.ok("Rollup rebuilt: " + rebuilt + " rows");
+    }
+
+    /**
+     * Возвращает статистику кэша UDR-отчётов по отдельным абонентам.
+     *
+     * @return ResponseEntity с количеством попаданий, промахов, вытеснений и размером кэша.
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<UdrCacheStats> getCacheStats() {
+        return ResponseEntity.ok(udrReportCache.stats());
+    }
+
+    /**
+     * Возвращает помесячные партиции CDR-записей.
+     *
+     * @return ResponseEntity со списком месяцев и количеством записей в каждом.
+     */
+    @GetMapping("/partitions")
+    public ResponseEntity<List<CdrPartitionInfo>> getPartitions() {
+        return ResponseEntity.ok(cdrPartitionService.listPartitions());
+    }
+
+    /**
+     * Удаляет все CDR-записи и помесячные агрегаты UDR указанного месяца.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return ResponseEntity с количеством удалённых записей или сообщением об ошибке
+     *         (HTTP 404, если записей за месяц нет).
+     */
+    @DeleteMapping("/partitions/{month}")
+    public ResponseEntity<String> dropPartition(@PathVariable String month) {
+        ResponseEntity<String> dateValidation = validateMonthFormat(month);
+        if (dateValidation != null) {
+            return dateValidation;
+        }
+
+        int deleted = cdrPartitionService.dropPartition(month);
+        if (deleted == 0) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No records found for the specified period.");
+        }
+        return ResponseEntity.ok("Partition " + month + " dropped: " + deleted + " records");
+    }
+
+    /**
+     * Возвращает ответ об ошибке запроса, отклонённого до начала потоковой выдачи.
+     *
+     * @param e Исключение с готовым ответом.
+     * @return Ответ с сообщением об ошибке.
+     */
+    @ExceptionHandler(ReportRequestException.class)
+    public ResponseEntity<String> handleReportRequestException(ReportRequestException e) {
+        return e.getResponse();
+    }
+
+    /**
+     * Ошибка запроса к отчёту, метод которого не может вернуть тело-строку (например, при потоковой выдаче).
+     */
+    static class ReportRequestException extends RuntimeException {
+
+        private final ResponseEntity<String> response;
+
+        ReportRequestException(ResponseEntity<String> response) {
+            super(response.getBody());
+            this.response = response;
+        }
+
+        ResponseEntity<String> getResponse() {
+            return response;
+        }
+    }
+
     /**
      * Проверяет формат месяца (YYYY-MM).
      *
      * @param month Месяц в формате "YYYY-MM".
      * @return ResponseEntity с ошибкой, если формат неверный, или null, если формат корректен.
      */
-    private ResponseEntity<String> validateMonthFormat(String month) {
+    static ResponseEntity<String> validateMonthFormat(String month) {
         try {
             LocalDateTime.parse(month + "-01T00:00:00", DateTimeFormatter.ISO_LOCAL_DATE_TIME);
         } catch (DateTimeParseException e) {
@@ -120,7 +338,7 @@ public class UdrController {
      * @param endDate   Конечная дата.
      * @return ResponseEntity с ошибкой, если формат неверный или диапазон некорректен, или null, если всё в порядке.
      */
-    private ResponseEntity<String> validateDateTimeRange(String startDate, String endDate) {
+    static ResponseEntity<String> validateDateTimeRange(String startDate, String endDate) {
         LocalDateTime start;
         LocalDateTime end;
 
@@ -0,0 +1,50 @@
+package com.example.cdrservice.dto;
+
+import com.example.cdrservice.entity.CdrRecord;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Звонок из CDR-записи, прочитанный запросом без загрузки управляемой сущности.
+ * <p>
+ * Содержит только поля, нужные для UDR- и CDR-отчётов, поэтому при чтении не создаются
+ * сущности, их снимки для проверки изменений и записи в контексте персистентности.
+ *
+ * @param callType       Тип вызова ("01" — исходящий, "02" — входящий).
+ * @param callerNumber   Номер вызывающего абонента.
+ * @param receiverNumber Номер принимающего абонента.
+ * @param startTime      Время начала звонка.
+ * @param endTime        Время окончания звонка.
+ */
+public record CdrCall(String callType,
+                      String callerNumber,
+                      String receiverNumber,
+                      LocalDateTime startTime,
+                      LocalDateTime endTime) {
+
+    /**
+     * @param record CDR-запись.
+     * @return Звонок с полями записи.
+     */
+    public static CdrCall of(CdrRecord record) {
+        return new CdrCall(record.getCallType(), record.getCallerNumber(), record.getReceiverNumber(),
+                record.getStartTime(), record.getEndTime());
+    }
+
+    /**
+     * Создаёт звонок из строки нативного запроса с колонками
+     * (call_type, caller_number, receiver_number, start_time, end_time).
+     *
+     * @param row Строка результата запроса.
+     * @return Звонок.
+     */
+    public static CdrCall fromRow(Object[] row) {
+        return new CdrCall((String) row[0], (String) row[1], (String) row[2],
+                toLocalDateTime(row[3]), toLocalDateTime(row[4]));
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.cdrservice.dto;
+
+import java.time.Duration;
+
+/**
+ * Итоги загрузки CDR-файла, возвращаемые клиенту.
+ *
+ * @param accepted         Количество загруженных записей.
+ * @param rejected         Количество отклонённых строк.
+ * @param bytes            Размер прочитанных данных (в байтах).
+ * @param elapsedMillis    Время разбора и загрузки (в миллисекундах).
+ * @param recordsPerSecond Скорость загрузки в записях в секунду.
+ */
+public record CdrIngestStats(long accepted,
+                             long rejected,
+                             long bytes,
+                             long elapsedMillis,
+                             long recordsPerSecond) {
+
+    public static CdrIngestStats of(long accepted, long rejected, long bytes, Duration elapsed) {
+        long millis = Math.max(1, elapsed.toMillis());
+        return new CdrIngestStats(accepted, rejected, bytes, elapsed.toMillis(), accepted * 1000 / millis);
+    }
+}
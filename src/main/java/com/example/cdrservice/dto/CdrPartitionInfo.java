@@ -0,0 +1,10 @@
+package com.example.cdrservice.dto;
+
+/**
+ * Помесячная партиция CDR-записей.
+ *
+ * @param month   Месяц в формате "YYYY-MM".
+ * @param records Количество записей в партиции.
+ */
+public record CdrPartitionInfo(String month, long records) {
+}
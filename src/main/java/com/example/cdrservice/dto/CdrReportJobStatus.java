@@ -0,0 +1,28 @@
+package com.example.cdrservice.dto;
+
+import com.example.cdrservice.entity.CdrReportJob;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние задания на генерацию CDR-отчёта, возвращаемое клиенту.
+ *
+ * @param id           Идентификатор задания (он же идентификатор отчёта).
+ * @param msisdn       Номер абонента (MSISDN).
+ * @param status       Текущий статус задания.
+ * @param createdAt    Время создания задания.
+ * @param finishedAt   Время завершения задания (если завершено).
+ * @param errorMessage Причина ошибки (если задание завершилось неудачно).
+ */
+public record CdrReportJobStatus(String id,
+                                 String msisdn,
+                                 CdrReportJob.Status status,
+                                 LocalDateTime createdAt,
+                                 LocalDateTime finishedAt,
+                                 String errorMessage) {
+
+    public static CdrReportJobStatus from(CdrReportJob job) {
+        return new CdrReportJobStatus(job.getId(), job.getMsisdn(), job.getStatus(),
+                job.getCreatedAt(), job.getFinishedAt(), job.getErrorMessage());
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cdrservice.dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Статистика кэша UDR-отчётов, возвращаемая клиенту.
+ *
+ * @param hitCount      Количество попаданий.
+ * @param missCount     Количество промахов.
+ * @param hitRate       Доля попаданий (от 0 до 1).
+ * @param evictionCount Количество вытесненных записей.
+ * @param size          Приблизительное количество записей в кэше.
+ */
+public record UdrCacheStats(long hitCount,
+                            long missCount,
+                            double hitRate,
+                            long evictionCount,
+                            long size) {
+
+    public static UdrCacheStats from(CacheStats stats, long size) {
+        return new UdrCacheStats(stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount(), size);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.cdrservice.dto;
+
+/**
+ * Суммарные длительности звонков абонента, полученные запросом без загрузки управляемых сущностей.
+ *
+ * @param msisdn           Номер абонента (MSISDN).
+ * @param incomingSeconds  Длительность входящих звонков (в секундах).
+ * @param outcomingSeconds Длительность исходящих звонков (в секундах).
+ */
+public record UdrTotals(String msisdn, long incomingSeconds, long outcomingSeconds) {
+
+    /**
+     * Создаёт длительности из строки нативного запроса с колонками (номер, секунды входящих, секунды исходящих).
+     *
+     * @param row Строка результата запроса.
+     * @return Длительности абонента.
+     */
+    public static UdrTotals fromRow(Object[] row) {
+        return new UdrTotals((String) row[0], ((Number) row[1]).longValue(), ((Number) row[2]).longValue());
+    }
+}
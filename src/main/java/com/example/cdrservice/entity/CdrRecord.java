@@ -2,13 +2,30 @@ package com.example.cdrservice.entity;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Сущность, представляющая запись CDR.
  * Хранит информацию о звонках абонентов, включая тип вызова,
  * номера абонентов и временные метки начала и окончания звонка.
+ * <p>
+ * Составные индексы (номер, время начала) позволяют выбирать звонки абонента за период
+ * диапазонным сканированием индекса отдельно по вызывающему и по принимающему номеру.
+ * <p>
+ * Месяц начала звонка хранится в отдельной колонке и служит ключом логической помесячной партиции:
+ * отчёты за месяц выбирают записи по равенству ключа, а месяц целиком удаляется одним запросом.
+ * <p>
+ * Время начала и окончания звонка хранится с точностью до секунды, как и в компактном представлении:
+ * иначе разность секундных границ в запросах ({@code DATEDIFF}) расходилась бы с {@link java.time.Duration#between}.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_cdr_caller_start", columnList = "callerNumber, startTime"),
+        @Index(name = "idx_cdr_receiver_start", columnList = "receiverNumber, startTime"),
+        @Index(name = "idx_cdr_start", columnList = "startTime"),
+        @Index(name = "idx_cdr_billing_month", columnList = "billing_month")
+})
 public class CdrRecord {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -20,10 +37,37 @@ public class CdrRecord {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
 
+    @Column(name = "billing_month", length = 7)
+    private String billingMonth;
+
+    /**
+     * Возвращает месяц начала звонка в формате "YYYY-MM" — ключ партиции записи.
+     *
+     * @param startTime Время начала звонка.
+     * @return Месяц в формате "YYYY-MM" или null, если время не задано.
+     */
+    public static String billingMonthOf(LocalDateTime startTime) {
+        return startTime == null ? null : YearMonth.from(startTime).toString();
+    }
+
+    private static LocalDateTime truncateToSeconds(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void assignBillingMonth() {
+        this.billingMonth = billingMonthOf(startTime);
+    }
+
     public Long getId() {
         return id;
     }
 
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public String getCallType() {
         return callType;
     }
@@ -53,7 +97,7 @@ public class CdrRecord {
     }
 
     public void setStartTime(LocalDateTime startTime) {
-        this.startTime = startTime;
+        this.startTime = truncateToSeconds(startTime);
     }
 
     public LocalDateTime getEndTime() {
@@ -61,6 +105,10 @@ public class CdrRecord {
     }
 
     public void setEndTime(LocalDateTime endTime) {
-        this.endTime = endTime;
+        this.endTime = truncateToSeconds(endTime);
+    }
+
+    public String getBillingMonth() {
+        return billingMonth;
     }
 }
@@ -0,0 +1,117 @@
+package com.example.cdrservice.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Сущность, представляющая задание на асинхронную генерацию CDR-отчёта.
+ * Хранит параметры отчёта, текущий статус и путь к готовому файлу,
+ * чтобы состояние заданий сохранялось между перезапусками приложения.
+ */
+@Entity
+public class CdrReportJob {
+
+    /**
+     * Статус задания.
+     */
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * Наибольшая длина сохраняемого сообщения об ошибке; более длинные сообщения обрезаются.
+     */
+    public static final int ERROR_MESSAGE_LENGTH = 255;
+
+    @Id
+    private String id;
+
+    private String msisdn;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private String filePath;
+
+    @Column(length = ERROR_MESSAGE_LENGTH)
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+
+    protected CdrReportJob() {
+    }
+
+    public CdrReportJob(String id, String msisdn, LocalDateTime startTime, LocalDateTime endTime) {
+        this.id = id;
+        this.msisdn = msisdn;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.status = Status.PENDING;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getMsisdn() {
+        return msisdn;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void markPending() {
+        this.status = Status.PENDING;
+    }
+
+    public void markRunning() {
+        this.status = Status.RUNNING;
+    }
+
+    public void markCompleted(String filePath) {
+        this.status = Status.COMPLETED;
+        this.filePath = filePath;
+        this.finishedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Отмечает задание как завершённое ошибкой.
+     *
+     * @param errorMessage Сообщение об ошибке; обрезается до {@link #ERROR_MESSAGE_LENGTH} символов.
+     */
+    public void markFailed(String errorMessage) {
+        this.status = Status.FAILED;
+        this.errorMessage = errorMessage != null && errorMessage.length() > ERROR_MESSAGE_LENGTH
+                ? errorMessage.substring(0, ERROR_MESSAGE_LENGTH)
+                : errorMessage;
+        this.finishedAt = LocalDateTime.now();
+    }
+}
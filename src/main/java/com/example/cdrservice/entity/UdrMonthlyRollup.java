@@ -0,0 +1,48 @@
+package com.example.cdrservice.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Помесячный агрегат UDR.
+ * Хранит суммарную длительность входящих и исходящих звонков абонента за месяц (в секундах).
+ * Обновляется инкрементально при сохранении CDR-записей и может быть пересчитан из исходных записей.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_udr_rollup_month", columnList = "billing_month"))
+public class UdrMonthlyRollup {
+    @EmbeddedId
+    private UdrMonthlyRollupId id;
+
+    private long incomingSeconds;
+    private long outcomingSeconds;
+
+    protected UdrMonthlyRollup() {
+    }
+
+    public UdrMonthlyRollup(UdrMonthlyRollupId id) {
+        this.id = id;
+    }
+
+    public UdrMonthlyRollupId getId() {
+        return id;
+    }
+
+    public long getIncomingSeconds() {
+        return incomingSeconds;
+    }
+
+    public long getOutcomingSeconds() {
+        return outcomingSeconds;
+    }
+
+    /**
+     * Увеличивает накопленные длительности на указанные значения.
+     *
+     * @param incomingSeconds  Прирост длительности входящих звонков (в секундах).
+     * @param outcomingSeconds Прирост длительности исходящих звонков (в секундах).
+     */
+    public void add(long incomingSeconds, long outcomingSeconds) {
+        this.incomingSeconds += incomingSeconds;
+        this.outcomingSeconds += outcomingSeconds;
+    }
+}
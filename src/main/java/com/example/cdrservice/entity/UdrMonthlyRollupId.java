@@ -0,0 +1,52 @@
+package com.example.cdrservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Составной ключ помесячного агрегата UDR: номер абонента и месяц в формате "YYYY-MM".
+ */
+@Embeddable
+public class UdrMonthlyRollupId implements Serializable {
+
+    private String msisdn;
+
+    // MONTH — зарезервированное слово в H2, поэтому колонка названа явно
+    @Column(name = "billing_month")
+    private String month;
+
+    protected UdrMonthlyRollupId() {
+    }
+
+    public UdrMonthlyRollupId(String msisdn, String month) {
+        this.msisdn = msisdn;
+        this.month = month;
+    }
+
+    public String getMsisdn() {
+        return msisdn;
+    }
+
+    public String getMonth() {
+        return month;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UdrMonthlyRollupId that)) {
+            return false;
+        }
+        return Objects.equals(msisdn, that.msisdn) && Objects.equals(month, that.month);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(msisdn, month);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.entity.CdrRecord;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Пакетная вставка CDR-записей напрямую через JDBC.
+ * <p>
+ * Идентификатор {@code IDENTITY} отключает пакетную вставку в Hibernate: каждая сущность
+ * сохраняется отдельным запросом, чтобы сразу получить сгенерированный ключ. Здесь вся партия
+ * отправляется одним JDBC-батчем, а сгенерированные ключи возвращаются драйвером вместе с результатом батча
+ * и присваиваются записям: по ним производные хранилища отличают записи, уже прочитанные из таблицы.
+ */
+@Repository
+public class CdrRecordBatchWriter {
+
+    private static final String INSERT = "INSERT INTO cdr_record " +
+            "(call_type, caller_number, receiver_number, start_time, end_time, billing_month) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CdrRecordBatchWriter(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Вставляет записи одним JDBC-батчем.
+     * <p>
+     * Ключ помесячной партиции вычисляется из времени начала звонка, как и при сохранении через JPA.
+     *
+     * @param records Записи для вставки; после вставки им присваиваются идентификаторы.
+     */
+    public void insert(List<CdrRecord> records) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        CdrRecord record = records.get(i);
+                        ps.setString(1, record.getCallType());
+                        ps.setString(2, record.getCallerNumber());
+                        ps.setString(3, record.getReceiverNumber());
+                        ps.setObject(4, record.getStartTime());
+                        ps.setObject(5, record.getEndTime());
+                        ps.setString(6, CdrRecord.billingMonthOf(record.getStartTime()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return records.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < keys.size(); i++) {
+            records.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
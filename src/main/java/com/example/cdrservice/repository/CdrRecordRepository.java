@@ -1,27 +1,212 @@
 package com.example.cdrservice.repository;
 
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.dto.CdrPartitionInfo;
+import com.example.cdrservice.dto.UdrTotals;
 import com.example.cdrservice.entity.CdrRecord;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface CdrRecordRepository extends JpaRepository<CdrRecord, Long> {
 
-    @Query("SELECT r FROM CdrRecord r WHERE (r.callerNumber = :msisdn OR r.receiverNumber = :msisdn) AND r.startTime BETWEEN :start AND :end")
-    List<CdrRecord> findRecordsForMsisdnInPeriod(String msisdn, LocalDateTime start, LocalDateTime end);
+    String CALLS_FOR_MSISDN_IN_PERIOD = "SELECT call_type, caller_number, receiver_number, start_time, end_time " +
+            "FROM cdr_record WHERE caller_number = :msisdn AND start_time BETWEEN :start AND :end " +
+            "UNION ALL " +
+            "SELECT call_type, caller_number, receiver_number, start_time, end_time " +
+            "FROM cdr_record WHERE receiver_number = :msisdn AND start_time BETWEEN :start AND :end " +
+            "AND (caller_number IS NULL OR caller_number <> :msisdn) " +
+            "ORDER BY start_time";
+
+    /**
+     * Длительности звонков абонента за период: (количество звонков, секунды входящих, секунды исходящих).
+     * Каждая часть запроса — диапазонное сканирование своего индекса.
+     */
+    String DURATIONS_FOR_MSISDN_IN_PERIOD = "SELECT COUNT(*), " +
+            "CAST(COALESCE(SUM(incoming_seconds), 0) AS BIGINT), " +
+            "CAST(COALESCE(SUM(outcoming_seconds), 0) AS BIGINT) FROM (" +
+            "SELECT 0 AS incoming_seconds, " +
+            "CASE WHEN call_type = '01' THEN DATEDIFF(SECOND, start_time, end_time) ELSE 0 END AS outcoming_seconds " +
+            "FROM cdr_record WHERE caller_number = :msisdn AND start_time BETWEEN :start AND :end " +
+            "UNION ALL " +
+            "SELECT CASE WHEN call_type = '02' THEN DATEDIFF(SECOND, start_time, end_time) ELSE 0 END, 0 " +
+            "FROM cdr_record WHERE receiver_number = :msisdn AND start_time BETWEEN :start AND :end" +
+            ") calls";
+
+    /**
+     * Длительности звонков всех участников звонков месяца: (номер, секунды входящих, секунды исходящих).
+     * Исходящие звонки суммируются по вызывающему, входящие — по принимающему абоненту; второй участник
+     * звонка попадает в результат с нулевой длительностью. Строки упорядочены по номеру.
+     */
+    String DURATIONS_BY_BILLING_MONTH = "SELECT msisdn, " +
+            "CAST(SUM(incoming_seconds) AS BIGINT), CAST(SUM(outcoming_seconds) AS BIGINT) FROM (" +
+            "SELECT caller_number AS msisdn, 0 AS incoming_seconds, " +
+            "CASE WHEN call_type = '01' THEN DATEDIFF(SECOND, start_time, end_time) ELSE 0 END AS outcoming_seconds " +
+            "FROM cdr_record WHERE billing_month = :month AND caller_number <> '' " +
+            "UNION ALL " +
+            "SELECT receiver_number, CASE WHEN call_type = '02' THEN DATEDIFF(SECOND, start_time, end_time) ELSE 0 END, 0 " +
+            "FROM cdr_record WHERE billing_month = :month AND receiver_number <> ''" +
+            ") calls GROUP BY msisdn ORDER BY msisdn";
+
+    /**
+     * То же, что {@link #DURATIONS_BY_BILLING_MONTH}, но только для номеров, не представимых числом
+     * ({@link CdrCodec#isEncodable}): колоночное хранилище и помесячные агрегаты такие номера не учитывают.
+     */
+    String NON_ENCODABLE_DURATIONS_BY_BILLING_MONTH = "SELECT msisdn, " +
+            "CAST(SUM(incoming_seconds) AS BIGINT), CAST(SUM(outcoming_seconds) AS BIGINT) FROM (" +
+            "SELECT caller_number AS msisdn, 0 AS incoming_seconds, " +
+            "CASE WHEN call_type = '01' THEN DATEDIFF(SECOND, start_time, end_time) ELSE 0 END AS outcoming_seconds " +
+            "FROM cdr_record WHERE billing_month = :month AND caller_number <> '' " +
+            "AND NOT REGEXP_LIKE(caller_number, '" + CdrCodec.ENCODABLE_MSISDN_REGEX + "') " +
+            "UNION ALL " +
+            "SELECT receiver_number, CASE WHEN call_type = '02' THEN DATEDIFF(SECOND, start_time, end_time) ELSE 0 END, 0 " +
+            "FROM cdr_record WHERE billing_month = :month AND receiver_number <> '' " +
+            "AND NOT REGEXP_LIKE(receiver_number, '" + CdrCodec.ENCODABLE_MSISDN_REGEX + "')" +
+            ") calls GROUP BY msisdn ORDER BY msisdn";
+
+    /**
+     * Построчно читает звонки абонента за период в хронологическом порядке через курсор JDBC
+     * без загрузки сущностей.
+     * <p>
+     * Условие "caller OR receiver" не позволяет использовать индексы, поэтому запрос разбит на два
+     * диапазонных сканирования по индексам (caller_number, start_time) и (receiver_number, start_time);
+     * читаются только колонки звонка. Поток должен читаться внутри транзакции и закрываться после использования.
+     */
+    default Stream<CdrCall> streamCallsForMsisdnInPeriod(String msisdn, LocalDateTime start, LocalDateTime end) {
+        return streamCallRowsForMsisdnInPeriod(msisdn, start, end).map(CdrCall::fromRow);
+    }
+
+    /**
+     * Строки звонков абонента за период в виде (call_type, caller_number, receiver_number, start_time, end_time).
+     * Звонок абонента самому себе попадает только в первую часть запроса.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = CALLS_FOR_MSISDN_IN_PERIOD, nativeQuery = true)
+    Stream<Object[]> streamCallRowsForMsisdnInPeriod(String msisdn, LocalDateTime start, LocalDateTime end);
+
+    /**
+     * Суммирует длительности звонков абонента за период на стороне базы данных.
+     *
+     * @return Длительности абонента или пустое значение, если у него нет звонков в периоде.
+     */
+    default Optional<UdrTotals> sumDurationsForMsisdnInPeriod(String msisdn, LocalDateTime start, LocalDateTime end) {
+        Object[] row = findDurationRowsForMsisdnInPeriod(msisdn, start, end).get(0);
+        if (((Number) row[0]).longValue() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new UdrTotals(msisdn, ((Number) row[1]).longValue(), ((Number) row[2]).longValue()));
+    }
+
+    @Query(value = DURATIONS_FOR_MSISDN_IN_PERIOD, nativeQuery = true)
+    List<Object[]> findDurationRowsForMsisdnInPeriod(String msisdn, LocalDateTime start, LocalDateTime end);
 
     @Query("SELECT CASE WHEN COUNT(r) = 0 THEN true ELSE false END FROM CdrRecord r WHERE r.callerNumber = :msisdn OR r.receiverNumber = :msisdn")
     boolean doesNotExistByCallerNumberOrReceiverNumber(String msisdn);
 
+    /**
+     * Возвращает все различные номера участников звонков.
+     */
+    @Query(value = "SELECT caller_number FROM cdr_record WHERE caller_number IS NOT NULL " +
+            "UNION " +
+            "SELECT receiver_number FROM cdr_record WHERE receiver_number IS NOT NULL",
+            nativeQuery = true)
+    List<String> findAllMsisdns();
+
     @Query("SELECT MIN(r.startTime) FROM CdrRecord r")
     LocalDateTime findEarliestStartTime();
 
     @Query("SELECT MAX(r.endTime) FROM CdrRecord r")
     LocalDateTime findLatestEndTime();
 
+    @Query("SELECT MAX(r.startTime) FROM CdrRecord r")
+    LocalDateTime findLatestStartTime();
+
     List<CdrRecord> findByStartTimeBetween(LocalDateTime start, LocalDateTime end);
+
+    boolean existsByBillingMonth(String month);
+
+    /**
+     * Суммирует длительности звонков всех абонентов за месяц на стороне базы данных:
+     * по одной строке на абонента вместо всех CDR-записей месяца.
+     */
+    default List<UdrTotals> sumDurationsByBillingMonth(String month) {
+        return findDurationRowsByBillingMonth(month).stream().map(UdrTotals::fromRow).toList();
+    }
+
+    /**
+     * Построчно читает суммарные длительности звонков всех абонентов за месяц через курсор JDBC.
+     * Поток должен читаться внутри транзакции и закрываться после использования.
+     */
+    default Stream<UdrTotals> streamDurationsByBillingMonth(String month) {
+        return streamDurationRowsByBillingMonth(month).map(UdrTotals::fromRow);
+    }
+
+    @Query(value = DURATIONS_BY_BILLING_MONTH, nativeQuery = true)
+    List<Object[]> findDurationRowsByBillingMonth(String month);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query(value = DURATIONS_BY_BILLING_MONTH, nativeQuery = true)
+    Stream<Object[]> streamDurationRowsByBillingMonth(String month);
+
+    /**
+     * Суммирует длительности звонков за месяц только для номеров, не представимых числом.
+     *
+     * @return Итоги таких абонентов в порядке номера.
+     */
+    default List<UdrTotals> sumNonEncodableDurationsByBillingMonth(String month) {
+        return findNonEncodableDurationRowsByBillingMonth(month).stream().map(UdrTotals::fromRow).toList();
+    }
+
+    @Query(value = NON_ENCODABLE_DURATIONS_BY_BILLING_MONTH, nativeQuery = true)
+    List<Object[]> findNonEncodableDurationRowsByBillingMonth(String month);
+
+    /**
+     * Возвращает помесячные партиции с количеством записей в хронологическом порядке.
+     */
+    @Query("SELECT new com.example.cdrservice.dto.CdrPartitionInfo(r.billingMonth, COUNT(r)) " +
+            "FROM CdrRecord r WHERE r.billingMonth IS NOT NULL GROUP BY r.billingMonth ORDER BY r.billingMonth")
+    List<CdrPartitionInfo> findPartitions();
+
+    /**
+     * Удаляет все записи помесячной партиции одним запросом, минуя загрузку сущностей.
+     *
+     * @return Количество удалённых записей.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM CdrRecord r WHERE r.billingMonth = :month")
+    int deleteByBillingMonth(String month);
+
+    /**
+     * Заполняет ключ помесячной партиции у записей, сохранённых до появления колонки {@code billing_month}.
+     *
+     * @return Количество обновлённых записей.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "UPDATE cdr_record SET billing_month = FORMATDATETIME(start_time, 'yyyy-MM') " +
+            "WHERE billing_month IS NULL AND start_time IS NOT NULL", nativeQuery = true)
+    int backfillBillingMonth();
+
+    /**
+     * Удаляет все записи одной командой {@code TRUNCATE}: строки не удаляются по одной,
+     * поэтому время не зависит от размера таблицы.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query(value = "TRUNCATE TABLE cdr_record", nativeQuery = true)
+    void truncate();
 }
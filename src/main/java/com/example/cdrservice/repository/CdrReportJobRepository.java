@@ -0,0 +1,14 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.entity.CdrReportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CdrReportJobRepository extends JpaRepository<CdrReportJob, String> {
+
+    List<CdrReportJob> findByStatusIn(Collection<CdrReportJob.Status> statuses);
+}
@@ -0,0 +1,78 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.PackedCdrConsumer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * Чтение CDR-записей в компактном представлении напрямую через JDBC.
+ * <p>
+ * Номера и тип вызова приводятся к числам, а время — к секундам от эпохи на стороне базы данных,
+ * поэтому строки читаются методами {@code getLong}/{@code getByte} без создания сущностей,
+ * строк и {@code LocalDateTime} на каждую запись. Номер, не представимый числом без потерь
+ * (см. {@link CdrCodec#isEncodable}), читается как {@link CdrCodec#INVALID_MSISDN}, а не прерывает чтение.
+ */
+@Repository
+public class PackedCdrReader {
+
+    private static final String SELECT_PACKED = "SELECT CAST(call_type AS TINYINT), " +
+            encodedMsisdn("caller_number") + ", " +
+            encodedMsisdn("receiver_number") + ", " +
+            "DATEDIFF(SECOND, TIMESTAMP '1970-01-01 00:00:00', start_time), " +
+            "DATEDIFF(SECOND, TIMESTAMP '1970-01-01 00:00:00', end_time) " +
+            "FROM cdr_record ";
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PackedCdrReader(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Выражение, кодирующее номер так же, как {@link CdrCodec#encodeMsisdnOrInvalid}.
+     */
+    private static String encodedMsisdn(String column) {
+        return "CASE WHEN " + column + " IS NULL THEN " + CdrCodec.NO_MSISDN +
+                " WHEN REGEXP_LIKE(" + column + ", '" + CdrCodec.ENCODABLE_MSISDN_REGEX + "') THEN CAST(" + column + " AS BIGINT)" +
+                " ELSE " + CdrCodec.INVALID_MSISDN + " END";
+    }
+
+    /**
+     * Передаёт получателю все записи помесячной партиции.
+     *
+     * @param month    Месяц в формате "YYYY-MM".
+     * @param consumer Получатель записей.
+     */
+    public void forEachInMonth(String month, PackedCdrConsumer consumer) {
+        jdbcTemplate.query(SELECT_PACKED + "WHERE billing_month = ?", (RowCallbackHandler) rs ->
+                consumer.accept(rs.getByte(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)),
+                month);
+    }
+
+    /**
+     * @return Наибольший идентификатор сохранённой записи или 0, если записей нет.
+     */
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM cdr_record", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    /**
+     * Передаёт получателю записи с идентификатором не больше указанного в порядке времени начала звонка.
+     *
+     * @param maxId    Наибольший идентификатор читаемых записей.
+     * @param consumer Получатель записей.
+     */
+    public void forEachOrderedByStartTime(long maxId, PackedCdrConsumer consumer) {
+        jdbcTemplate.query(SELECT_PACKED + "WHERE id <= ? ORDER BY start_time", (RowCallbackHandler) rs ->
+                consumer.accept(rs.getByte(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5)),
+                maxId);
+    }
+}
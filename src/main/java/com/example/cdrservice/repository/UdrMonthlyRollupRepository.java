@@ -0,0 +1,47 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.dto.UdrTotals;
+import com.example.cdrservice.entity.UdrMonthlyRollup;
+import com.example.cdrservice.entity.UdrMonthlyRollupId;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+@Repository
+public interface UdrMonthlyRollupRepository extends JpaRepository<UdrMonthlyRollup, UdrMonthlyRollupId> {
+
+    List<UdrMonthlyRollup> findByIdMsisdn(String msisdn);
+
+    List<UdrMonthlyRollup> findByIdMonth(String month);
+
+    boolean existsByIdMonth(String month);
+
+    /**
+     * Удаляет агрегаты всех абонентов за месяц одним запросом.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return Количество удалённых агрегатов.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM UdrMonthlyRollup r WHERE r.id.month = :month")
+    int deleteByMonth(String month);
+
+    /**
+     * Построчно читает агрегаты месяца в виде DTO, не помещая сущности в контекст персистентности.
+     * Поток должен читаться внутри транзакции и закрываться после использования.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.cdrservice.dto.UdrTotals(r.id.msisdn, r.incomingSeconds, r.outcomingSeconds) " +
+            "FROM UdrMonthlyRollup r WHERE r.id.month = :month ORDER BY r.id.msisdn")
+    Stream<UdrTotals> streamTotalsByMonth(String month);
+}
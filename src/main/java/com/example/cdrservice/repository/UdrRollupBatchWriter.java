@@ -0,0 +1,53 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетное обновление помесячных агрегатов UDR напрямую через JDBC.
+ * <p>
+ * Приросты длительностей прибавляются к агрегатам одним оператором {@code MERGE} на строку:
+ * чтение, создание и увеличение агрегата выполняются атомарно в базе данных, без предварительной
+ * загрузки сущностей. Запрос выполняется в текущей транзакции, если она открыта.
+ */
+@Repository
+public class UdrRollupBatchWriter {
+
+    private static final String MERGE = "MERGE INTO udr_monthly_rollup r " +
+            "USING (SELECT CAST(? AS VARCHAR(255)) AS msisdn, CAST(? AS VARCHAR(7)) AS billing_month, " +
+            "CAST(? AS BIGINT) AS incoming_seconds, CAST(? AS BIGINT) AS outcoming_seconds) d " +
+            "ON r.msisdn = d.msisdn AND r.billing_month = d.billing_month " +
+            "WHEN MATCHED THEN UPDATE SET incoming_seconds = r.incoming_seconds + d.incoming_seconds, " +
+            "outcoming_seconds = r.outcoming_seconds + d.outcoming_seconds " +
+            "WHEN NOT MATCHED THEN INSERT (msisdn, billing_month, incoming_seconds, outcoming_seconds) " +
+            "VALUES (d.msisdn, d.billing_month, d.incoming_seconds, d.outcoming_seconds)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UdrRollupBatchWriter(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Прибавляет длительности абонентов к их агрегатам за месяц; отсутствующие агрегаты создаются.
+     * Строки обновляются в порядке MSISDN, поэтому параллельные транзакции блокируют их в одном порядке.
+     *
+     * @param month  Месяц в формате "YYYY-MM".
+     * @param totals Приросты длительностей по абонентам.
+     */
+    public void add(String month, MsisdnTotals totals) {
+        long[] msisdns = totals.sortedMsisdns();
+        List<Object[]> rows = new ArrayList<>(msisdns.length);
+        for (long msisdn : msisdns) {
+            rows.add(new Object[]{CdrCodec.decodeMsisdn(msisdn), month,
+                    totals.incomingSeconds(msisdn), totals.outcomingSeconds(msisdn)});
+        }
+        jdbcTemplate.batchUpdate(MERGE, rows);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * Границы тарифицируемого периода: начало самого раннего звонка и окончание самого позднего.
+ * <p>
+ * Границы читаются из таблицы CDR один раз, при первом обращении, и затем только расширяются
+ * при сохранении новых записей, поэтому отчёт за весь период не требует запросов MIN/MAX по таблице CDR.
+ * Обе границы читаются по индексу времени начала звонка: окончание самого позднего звонка оценивается
+ * сверху как его начало плюс максимальная длительность звонка, без сканирования колонки {@code end_time}.
+ * Отчёты отбирают звонки по времени начала, поэтому такая граница не исключает ни одной записи.
+ */
+@Component
+public class BillingPeriodTracker {
+
+    private final CdrRecordRepository cdrRecordRepository;
+
+    private volatile Bounds bounds = new Bounds(null, null);
+    private volatile boolean loaded;
+
+    public BillingPeriodTracker(CdrRecordRepository cdrRecordRepository) {
+        this.cdrRecordRepository = cdrRecordRepository;
+    }
+
+    /**
+     * Расширяет границы периода сохранёнными записями после фиксации транзакции, в которой они сохранены.
+     *
+     * @param event Событие о сохранении записей.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onCdrRecordsSaved(CdrRecordsSavedEvent event) {
+        LocalDateTime earliest = null;
+        LocalDateTime latest = null;
+        for (CdrRecord record : event.records()) {
+            earliest = min(earliest, record.getStartTime());
+            latest = max(latest, record.getEndTime());
+        }
+        extend(earliest, latest);
+    }
+
+    /**
+     * @return Начало самого раннего звонка или {@code null}, если записей нет.
+     */
+    public LocalDateTime getEarliestStartTime() {
+        ensureLoaded();
+        return bounds.earliestStartTime();
+    }
+
+    /**
+     * @return Окончание самого позднего звонка (для записей, прочитанных из базы данных, — оценка сверху)
+     *         или {@code null}, если записей нет.
+     */
+    public LocalDateTime getLatestEndTime() {
+        ensureLoaded();
+        return bounds.latestEndTime();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                LocalDateTime latestStartTime = cdrRecordRepository.findLatestStartTime();
+                extend(cdrRecordRepository.findEarliestStartTime(), latestStartTime == null
+                        ? null
+                        : latestStartTime.plusSeconds(CdrCallGenerator.MAX_CALL_DURATION_SECONDS));
+                loaded = true;
+            }
+        }
+    }
+
+    private synchronized void extend(LocalDateTime earliest, LocalDateTime latest) {
+        Bounds current = bounds;
+        bounds = new Bounds(min(current.earliestStartTime(), earliest), max(current.latestEndTime(), latest));
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    private record Bounds(LocalDateTime earliestStartTime, LocalDateTime latestEndTime) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cdrservice.service;
+
+/**
+ * Индекс интервалов звонков одного абонента для проверки пересечений при генерации.
+ * <p>
+ * Абонент не может одновременно говорить с разными людьми, поэтому новый звонок
+ * добавляется только если он не пересекается ни с одним уже добавленным.
+ */
+public interface CallIntervalIndex {
+
+    /**
+     * Добавляет интервал звонка, если он не пересекается с уже добавленными.
+     * Интервалы считаются замкнутыми: звонки, касающиеся границами, пересекаются.
+     *
+     * @param startEpochSecond Начало звонка (секунды от эпохи).
+     * @param endEpochSecond   Окончание звонка (секунды от эпохи).
+     * @return true, если интервал добавлен; false, если он пересекается с существующим.
+     */
+    boolean tryAdd(long startEpochSecond, long endEpochSecond);
+}
@@ -0,0 +1,189 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.PackedCdr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Параллельный генератор звонков в компактном представлении.
+ * <p>
+ * Абоненты распределяются между ядрами: звонки каждого абонента генерируются независимо,
+ * со своим генератором случайных чисел ({@link SplittableRandom}) и своим индексом интервалов
+ * для проверки пересечений. Генераторы абонентов заранее отделяются от одного корневого,
+ * поэтому при одинаковом начальном значении результат не зависит от числа потоков.
+ * <p>
+ * Период делится на окна по {@link #WINDOW_SECONDS} секунд, звонок целиком лежит в одном окне.
+ * Окна генерируются по очереди и передаются получателю частями, упорядоченными по времени начала,
+ * поэтому в памяти находятся звонки только одного окна, а объём генерации ограничен лишь временем записи.
+ * Число звонков абонента в окне ограничено ёмкостью окна, а размещение звонка — числом попыток,
+ * поэтому генерация завершается, даже если запрошенные звонки не помещаются в период.
+ */
+public class CdrCallGenerator {
+
+    private static final int MIN_CALL_DURATION_SECONDS = 10;
+    static final int MAX_CALL_DURATION_SECONDS = 7200;
+
+    /**
+     * Длина окна генерации (сутки).
+     */
+    static final long WINDOW_SECONDS = 86_400;
+
+    /**
+     * Количество попыток разместить звонок без пересечения, после которого звонок пропускается.
+     */
+    private static final int MAX_ATTEMPTS_PER_CALL = 64;
+
+    private static final PackedCdr[] NO_CALLS = new PackedCdr[0];
+
+    private final Supplier<CallIntervalIndex> indexFactory;
+
+    public CdrCallGenerator() {
+        this(TreeMapCallIntervalIndex::new);
+    }
+
+    /**
+     * @param indexFactory Фабрика индекса интервалов, создаваемого для каждого абонента.
+     */
+    public CdrCallGenerator(Supplier<CallIntervalIndex> indexFactory) {
+        this.indexFactory = indexFactory;
+    }
+
+    /**
+     * Генерирует звонки абонентов за период и возвращает их одним массивом.
+     * Подходит для небольших объёмов; большие объёмы следует получать частями
+     * через {@link #generate(long[], long, long, int, long, Consumer)}.
+     *
+     * @return Звонки, упорядоченные по времени начала. Пусто, если абонентов меньше двух.
+     * @see #generate(long[], long, long, int, long, Consumer)
+     */
+    public PackedCdr[] generate(long[] msisdns, long fromEpochSecond, long toEpochSecond,
+                                int maxCallsPerSubscriber, long seed) {
+        List<PackedCdr[]> chunks = new ArrayList<>();
+        generate(msisdns, fromEpochSecond, toEpochSecond, maxCallsPerSubscriber, seed, chunks::add);
+        return chunks.stream().flatMap(Arrays::stream).toArray(PackedCdr[]::new);
+    }
+
+    /**
+     * Генерирует звонки абонентов за период и передаёт их получателю частями по окнам.
+     * <p>
+     * Каждый абонент совершает от 1 до {@code maxCallsPerSubscriber} звонков длительностью
+     * от 10 секунд до 2 часов другим абонентам из списка; звонки одного абонента не пересекаются.
+     * В окне абонент совершает не больше звонков, чем помещается в окно при максимальной длительности;
+     * звонки сверх ёмкости окна не генерируются.
+     *
+     * @param msisdns               Номера абонентов в кодировке {@link CdrCodec}.
+     * @param fromEpochSecond       Начало периода (секунды от эпохи).
+     * @param toEpochSecond         Конец периода (секунды от эпохи).
+     * @param maxCallsPerSubscriber Максимальное количество звонков одного абонента.
+     * @param seed                  Начальное значение генератора случайных чисел.
+     * @param chunks                Получатель непустых частей; каждая часть упорядочена по времени начала
+     *                              и начинается не раньше окончания предыдущей.
+     * @return Количество сгенерированных звонков.
+     */
+    public long generate(long[] msisdns, long fromEpochSecond, long toEpochSecond,
+                         int maxCallsPerSubscriber, long seed, Consumer<PackedCdr[]> chunks) {
+        if (msisdns.length < 2 || fromEpochSecond >= toEpochSecond) {
+            return 0;
+        }
+
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[msisdns.length];
+        for (int i = 0; i < randoms.length; i++) {
+            randoms[i] = root.split();
+        }
+
+        // Сначала звонки каждого абонента распределяются по окнам, затем окна заполняются по очереди
+        int windows = (int) ((toEpochSecond - fromEpochSecond + WINDOW_SECONDS - 1) / WINDOW_SECONDS);
+        int[][] callsPerWindow = new int[msisdns.length][];
+        IntStream.range(0, msisdns.length).parallel().forEach(i -> callsPerWindow[i] =
+                distributeCalls(fromEpochSecond, toEpochSecond, windows, maxCallsPerSubscriber, randoms[i]));
+
+        long generated = 0;
+        PackedCdr[][] perSubscriber = new PackedCdr[msisdns.length][];
+        for (int w = 0; w < windows; w++) {
+            int window = w;
+            long windowStart = fromEpochSecond + w * WINDOW_SECONDS;
+            long windowEnd = Math.min(toEpochSecond, windowStart + WINDOW_SECONDS);
+            IntStream.range(0, msisdns.length).parallel().forEach(i -> perSubscriber[i] = generateForSubscriber(
+                    msisdns, i, windowStart, windowEnd, callsPerWindow[i][window], randoms[i]));
+
+            PackedCdr[] chunk = Arrays.stream(perSubscriber).flatMap(Arrays::stream).toArray(PackedCdr[]::new);
+            if (chunk.length > 0) {
+                Arrays.sort(chunk, Comparator.comparingLong(PackedCdr::startEpochSecond));
+                chunks.accept(chunk);
+                generated += chunk.length;
+            }
+        }
+        return generated;
+    }
+
+    /**
+     * Выбирает количество звонков абонента и распределяет их по окнам пропорционально длине окна.
+     */
+    private static int[] distributeCalls(long fromEpochSecond, long toEpochSecond, int windows,
+                                         int maxCallsPerSubscriber, SplittableRandom random) {
+        int[] counts = new int[windows];
+        int calls = random.nextInt(maxCallsPerSubscriber) + 1;
+        for (int i = 0; i < calls; i++) {
+            counts[(int) ((random.nextLong(fromEpochSecond, toEpochSecond) - fromEpochSecond) / WINDOW_SECONDS)]++;
+        }
+        for (int w = 0; w < windows; w++) {
+            long windowStart = fromEpochSecond + w * WINDOW_SECONDS;
+            counts[w] = Math.min(counts[w], capacity(Math.min(toEpochSecond, windowStart + WINDOW_SECONDS) - windowStart));
+        }
+        return counts;
+    }
+
+    /**
+     * Ёмкость окна: столько звонков максимальной длительности, сколько помещается в окно подряд.
+     * В таком окне случайное размещение без пересечений обычно удаётся за несколько попыток.
+     */
+    private static int capacity(long windowSeconds) {
+        if (windowSeconds <= MIN_CALL_DURATION_SECONDS) {
+            return 0;
+        }
+        return (int) Math.max(1, windowSeconds / MAX_CALL_DURATION_SECONDS);
+    }
+
+    private PackedCdr[] generateForSubscriber(long[] msisdns, int caller, long windowStart, long windowEnd,
+                                              int count, SplittableRandom random) {
+        if (count == 0) {
+            return NO_CALLS;
+        }
+        CallIntervalIndex intervals = indexFactory.get();
+        PackedCdr[] calls = new PackedCdr[count];
+        int size = 0;
+
+        // Звонок заканчивается до конца окна, поэтому не пересекается со звонками следующего окна
+        int durationBound = (int) Math.min(MAX_CALL_DURATION_SECONDS, windowEnd - windowStart);
+        for (int i = 0; i < count; i++) {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS_PER_CALL; attempt++) {
+                long duration = random.nextInt(MIN_CALL_DURATION_SECONDS, durationBound);
+                long start = random.nextLong(windowStart, windowEnd - duration);
+                long end = start + duration;
+                if (!intervals.tryAdd(start, end)) {
+                    continue;
+                }
+
+                // Случайный получатель, кроме самого абонента, без повторных попыток
+                int receiver = random.nextInt(msisdns.length - 1);
+                if (receiver >= caller) {
+                    receiver++;
+                }
+
+                byte callType = random.nextBoolean() ? CdrCodec.OUTCOMING_CALL : CdrCodec.INCOMING_CALL;
+                calls[size++] = new PackedCdr(callType, msisdns[caller], msisdns[receiver], start, end);
+                break;
+            }
+        }
+        return size == count ? calls : Arrays.copyOf(calls, size);
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.PackedCdrConsumer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Потоковый разбор CDR-файлов в формате CSV, который формирует {@link CdrCsvWriter}:
+ * {@code тип,вызывающий,принимающий,начало,окончание}.
+ * <p>
+ * Файл читается блоками в один байтовый буфер, поля разбираются прямо из байтов и передаются
+ * получателю примитивами, поэтому на строку не создаётся ни одного объекта, а объём памяти
+ * не зависит от размера файла.
+ * <p>
+ * Строка принимается, если тип вызова равен "01" или "02", оба номера состоят из 1–15 цифр,
+ * время задано в формате {@code yyyy-MM-ddTHH:mm[:ss[.n]]} и окончание не раньше начала.
+ * Дробная часть секунд отбрасывается. Остальные строки, в том числе заголовок, считаются
+ * отклонёнными; пустые строки пропускаются.
+ */
+public class CdrCsvParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_MSISDN_DIGITS = 15;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    /** Количество дней от 0000-01-01 до 1970-01-01 по алгоритму {@link java.time.LocalDate#toEpochDay()}. */
+    private static final long DAYS_0000_TO_1970 = 146_097 * 5L - (30L * 365L + 7L);
+
+    /**
+     * Итоги разбора файла.
+     *
+     * @param accepted Количество принятых строк.
+     * @param rejected Количество отклонённых строк.
+     * @param bytes    Количество прочитанных байт.
+     */
+    public record Result(long accepted, long rejected, long bytes) {
+    }
+
+    /**
+     * Разбирает CSV-поток и передаёт корректные строки получателю в порядке следования в файле.
+     *
+     * @param in       Поток с содержимым файла; не закрывается.
+     * @param consumer Получатель принятых записей.
+     * @return Количество принятых и отклонённых строк.
+     * @throws IOException Если не удалось прочитать поток.
+     */
+    public Result parse(InputStream in, PackedCdrConsumer consumer) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long accepted = 0;
+        long rejected = 0;
+        long bytes = 0;
+
+        int limit = 0;
+        boolean skipping = false; // Остаток строки длиннее буфера
+        int read;
+        while ((read = in.read(buffer, limit, buffer.length - limit)) != -1) {
+            bytes += read;
+            limit += read;
+
+            int lineStart = 0;
+            for (int i = indexOfNewLine(buffer, 0, limit); i >= 0; i = indexOfNewLine(buffer, lineStart, limit)) {
+                if (skipping) {
+                    skipping = false;
+                } else if (!isBlank(buffer, lineStart, i)) {
+                    if (parseLine(buffer, lineStart, i, consumer)) {
+                        accepted++;
+                    } else {
+                        rejected++;
+                    }
+                }
+                lineStart = i + 1;
+            }
+
+            if (lineStart == 0 && limit == buffer.length) {
+                // Строка не помещается в буфер: отклоняем её и пропускаем до перевода строки
+                if (!skipping) {
+                    rejected++;
+                    skipping = true;
+                }
+                limit = 0;
+            } else {
+                System.arraycopy(buffer, lineStart, buffer, 0, limit - lineStart);
+                limit -= lineStart;
+            }
+        }
+
+        if (!skipping && !isBlank(buffer, 0, limit)) {
+            if (parseLine(buffer, 0, limit, consumer)) {
+                accepted++;
+            } else {
+                rejected++;
+            }
+        }
+        return new Result(accepted, rejected, bytes);
+    }
+
+    /**
+     * Разбирает строку {@code [from, to)} без перевода строки.
+     *
+     * @return true, если строка корректна и передана получателю.
+     */
+    private static boolean parseLine(byte[] line, int from, int to, PackedCdrConsumer consumer) {
+        if (line[to - 1] == '\r') {
+            to--;
+        }
+
+        int typeEnd = indexOf(line, from, to, (byte) ',');
+        if (typeEnd != from + 2 || line[from] != '0') {
+            return false;
+        }
+        byte callType = switch (line[from + 1]) {
+            case '1' -> CdrCodec.OUTCOMING_CALL;
+            case '2' -> CdrCodec.INCOMING_CALL;
+            default -> CdrCodec.UNKNOWN_CALL;
+        };
+        if (callType == CdrCodec.UNKNOWN_CALL) {
+            return false;
+        }
+
+        int callerEnd = indexOf(line, typeEnd + 1, to, (byte) ',');
+        long caller = callerEnd < 0 ? INVALID : parseMsisdn(line, typeEnd + 1, callerEnd);
+        if (caller == INVALID) {
+            return false;
+        }
+
+        int receiverEnd = indexOf(line, callerEnd + 1, to, (byte) ',');
+        long receiver = receiverEnd < 0 ? INVALID : parseMsisdn(line, callerEnd + 1, receiverEnd);
+        if (receiver == INVALID) {
+            return false;
+        }
+
+        int startEnd = indexOf(line, receiverEnd + 1, to, (byte) ',');
+        long start = startEnd < 0 ? INVALID : parseEpochSecond(line, receiverEnd + 1, startEnd);
+        if (start == INVALID) {
+            return false;
+        }
+
+        long end = parseEpochSecond(line, startEnd + 1, to);
+        if (end == INVALID || end < start) {
+            return false;
+        }
+
+        consumer.accept(callType, caller, receiver, start, end);
+        return true;
+    }
+
+    private static long parseMsisdn(byte[] line, int from, int to) {
+        int length = to - from;
+        if (length < 1 || length > MAX_MSISDN_DIGITS || line[from] == '0') {
+            return INVALID;
+        }
+        return parseDigits(line, from, length);
+    }
+
+    /**
+     * Разбирает время в формате {@link java.time.LocalDateTime#toString()} с точностью до секунды.
+     *
+     * @return Секунды от эпохи (UTC) или {@link #INVALID}.
+     */
+    private static long parseEpochSecond(byte[] line, int from, int to) {
+        int length = to - from;
+        if (length != 16 && length != 19 && (length < 21 || length > 29)) {
+            return INVALID;
+        }
+        if (line[from + 4] != '-' || line[from + 7] != '-' || line[from + 10] != 'T' || line[from + 13] != ':') {
+            return INVALID;
+        }
+
+        long year = parseDigits(line, from, 4);
+        long month = parseDigits(line, from + 5, 2);
+        long day = parseDigits(line, from + 8, 2);
+        long hour = parseDigits(line, from + 11, 2);
+        long minute = parseDigits(line, from + 14, 2);
+        long second = 0;
+        if (length >= 19) {
+            if (line[from + 16] != ':') {
+                return INVALID;
+            }
+            second = parseDigits(line, from + 17, 2);
+        }
+        if (length > 19 && (line[from + 19] != '.' || parseDigits(line, from + 20, length - 20) == INVALID)) {
+            return INVALID;
+        }
+
+        if (year == INVALID || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        return epochDay(year, month, day) * 86_400 + hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * @return Число из {@code length} цифр или {@link #INVALID}, если встретился другой символ.
+     */
+    private static long parseDigits(byte[] line, int from, int length) {
+        long value = 0;
+        for (int i = from; i < from + length; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Номер дня от эпохи для года 0–9999; совпадает с {@link java.time.LocalDate#toEpochDay()}.
+     */
+    private static long epochDay(long year, long month, long day) {
+        long total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    private static int lengthOfMonth(long year, long month) {
+        if (month == 2) {
+            return isLeapYear(year) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int indexOf(byte[] line, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfNewLine(byte[] buffer, int from, int to) {
+        return indexOf(buffer, from, to, (byte) '\n');
+    }
+
+    private static boolean isBlank(byte[] buffer, int from, int to) {
+        return to == from || (to == from + 1 && buffer[from] == '\r');
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.CdrCall;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Запись CDR-отчётов в формате CSV через {@link FileChannel}.
+ * <p>
+ * Строки кодируются в ASCII вручную прямо в direct-буфер, который целиком передаётся каналу файла.
+ * Буферы переиспользуются между отчётами. Содержимое файла совпадает с записью через
+ * {@code String.format("%s,%s,%s,%s,%s\n", ...)}: время выводится в формате {@link LocalDateTime#toString()},
+ * отсутствующие значения — как {@code null}.
+ */
+public class CdrCsvWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    /**
+     * Максимальная длина времени в формате ISO для годов 1000–9999: "yyyy-MM-ddTHH:mm:ss.nnnnnnnnn".
+     */
+    private static final int MAX_DATE_TIME_LENGTH = 29;
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+    private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Записывает звонки в файл, заменяя его содержимое. Отсутствующая директория файла создаётся.
+     *
+     * @param file  Путь к файлу отчёта.
+     * @param calls Звонки из CDR-записей.
+     * @throws IOException Если не удалось записать файл.
+     */
+    public void write(Path file, Iterable<CdrCall> calls) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        ByteBuffer buffer = acquire();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (CdrCall call : calls) {
+                putString(channel, buffer, call.callType());
+                putByte(channel, buffer, ',');
+                putString(channel, buffer, call.callerNumber());
+                putByte(channel, buffer, ',');
+                putString(channel, buffer, call.receiverNumber());
+                putByte(channel, buffer, ',');
+                putDateTime(channel, buffer, call.startTime());
+                putByte(channel, buffer, ',');
+                putDateTime(channel, buffer, call.endTime());
+                putByte(channel, buffer, '\n');
+            }
+            drain(channel, buffer);
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private void putByte(FileChannel channel, ByteBuffer buffer, char value) throws IOException {
+        ensureRemaining(channel, buffer, 1);
+        buffer.put((byte) value);
+    }
+
+    private void putString(FileChannel channel, ByteBuffer buffer, String value) throws IOException {
+        if (value == null) {
+            putBytes(channel, buffer, NULL);
+            return;
+        }
+        int length = value.length();
+        if (length > buffer.capacity() || !isAscii(value)) {
+            putBytes(channel, buffer, value.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        ensureRemaining(channel, buffer, length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    private void putBytes(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            drain(channel, buffer);
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        ensureRemaining(channel, buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Записывает время так же, как {@link LocalDateTime#toString()}: секунды выводятся, только если
+     * они или наносекунды ненулевые, дробная часть — группами по три цифры.
+     */
+    private void putDateTime(FileChannel channel, ByteBuffer buffer, LocalDateTime value) throws IOException {
+        if (value == null) {
+            putBytes(channel, buffer, NULL);
+            return;
+        }
+        int year = value.getYear();
+        if (year < 1000 || year > 9999) {
+            putString(channel, buffer, value.toString());
+            return;
+        }
+        ensureRemaining(channel, buffer, MAX_DATE_TIME_LENGTH);
+        putDigits(buffer, year, 4);
+        buffer.put((byte) '-');
+        putDigits(buffer, value.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putDigits(buffer, value.getDayOfMonth(), 2);
+        buffer.put((byte) 'T');
+        putDigits(buffer, value.getHour(), 2);
+        buffer.put((byte) ':');
+        putDigits(buffer, value.getMinute(), 2);
+
+        int second = value.getSecond();
+        int nano = value.getNano();
+        if (second > 0 || nano > 0) {
+            buffer.put((byte) ':');
+            putDigits(buffer, second, 2);
+            if (nano > 0) {
+                buffer.put((byte) '.');
+                if (nano % 1_000_000 == 0) {
+                    putDigits(buffer, nano / 1_000_000, 3);
+                } else if (nano % 1000 == 0) {
+                    putDigits(buffer, nano / 1000, 6);
+                } else {
+                    putDigits(buffer, nano, 9);
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает неотрицательное число ровно из {@code digits} цифр с ведущими нулями.
+     */
+    private static void putDigits(ByteBuffer buffer, int value, int digits) {
+        int position = buffer.position();
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(position + digits);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void ensureRemaining(FileChannel channel, ByteBuffer buffer, int length) throws IOException {
+        if (buffer.remaining() < length) {
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+    }
+
+    private void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (pool.size() < MAX_POOLED_BUFFERS) {
+            pool.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.cdrservice.service;
+
+import java.time.Duration;
+
+/**
+ * Итоги генерации CDR-записей.
+ *
+ * @param records Количество сохранённых записей.
+ * @param elapsed Время генерации и сохранения.
+ */
+public record CdrGenerationStats(long records, Duration elapsed) {
+
+    /**
+     * @return Скорость сохранения в записях в секунду.
+     */
+    public long recordsPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return records * 1000 / millis;
+    }
+}
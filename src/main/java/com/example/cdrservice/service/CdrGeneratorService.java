@@ -1,18 +1,22 @@
 package com.example.cdrservice.service;
 
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.PackedCdr;
 import com.example.cdrservice.entity.CdrRecord;
-import com.example.cdrservice.entity.Subscriber;
-import com.example.cdrservice.repository.CdrRecordRepository;
+import com.example.cdrservice.repository.CdrRecordBatchWriter;
 import com.example.cdrservice.repository.SubscriberRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Сервис для генерации записей (CDR).
@@ -22,18 +26,40 @@ import java.util.Random;
 @Service
 public class CdrGeneratorService {
 
-    private final CdrRecordRepository cdrRecordRepository;
+    private static final Logger log = LoggerFactory.getLogger(CdrGeneratorService.class);
+
+    private static final long SECONDS_PER_YEAR = Duration.ofDays(365).toSeconds();
+
+    private final CdrRecordBatchWriter cdrRecordBatchWriter;
     private final SubscriberRepository subscriberRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionOperations transactionOperations;
+    private final CdrCallGenerator callGenerator = new CdrCallGenerator();
+    private final int maxCallsPerSubscriber;
+    private final int batchSize;
 
     /**
      * Конструктор для внедрения зависимостей.
      *
-     * @param cdrRecordRepository   Репозиторий для работы с записями CDR.
+     * @param cdrRecordBatchWriter  Пакетная вставка записей CDR.
      * @param subscriberRepository  Репозиторий для работы с абонентами.
+     * @param eventPublisher        Публикатор событий о сохранении записей.
+     * @param transactionOperations Транзакция, в которой сохраняется партия и обновляются агрегаты.
+     * @param maxCallsPerSubscriber Максимальное количество звонков одного абонента.
+     * @param batchSize             Размер партии при сохранении записей.
      */
-    public CdrGeneratorService(CdrRecordRepository cdrRecordRepository, SubscriberRepository subscriberRepository) {
-        this.cdrRecordRepository = cdrRecordRepository;
+    public CdrGeneratorService(CdrRecordBatchWriter cdrRecordBatchWriter,
+                               SubscriberRepository subscriberRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               TransactionOperations transactionOperations,
+                               @Value("${cdr.generator.max-calls-per-subscriber:100}") int maxCallsPerSubscriber,
+                               @Value("${cdr.generator.batch-size:1000}") int batchSize) {
+        this.cdrRecordBatchWriter = cdrRecordBatchWriter;
         this.subscriberRepository = subscriberRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionOperations = transactionOperations;
+        this.maxCallsPerSubscriber = maxCallsPerSubscriber;
+        this.batchSize = batchSize;
     }
 
     /**
@@ -47,119 +73,87 @@ public class CdrGeneratorService {
      *   <li>Проверку на пересечение временных интервалов для каждого абонента.</li>
      *   <li>Сохранение записей в базу данных партиями для повышения производительности.</li>
      * </ul>
-     * Звонки генерируются за последний год с преимущественным временем с 8:00 до 22:00.
-     */
-    public void generateCdrRecords() {
-        List<Subscriber> subscribers = subscriberRepository.findAll();
-        Random random = new Random();
-
-        // Начальная точка: текущее время минус 1 год
-        LocalDateTime startDate = LocalDateTime.now().minusYears(1);
-
-        int batchSize = 100; // Размер партии
-        List<CdrRecord> allRecords = new ArrayList<>();
-
-        // Временная структура для хранения интервалов звонков
-        Map<String, List<LocalDateTime[]>> callIntervals = new HashMap<>();
-
-        for (Subscriber subscriber : subscribers) {
-            int numberOfCalls = random.nextInt(100) + 1; // От 1 до 100 звонков на абонента
-            for (int i = 0; i < numberOfCalls; i++) {
-                LocalDateTime callStart;
-                LocalDateTime callEnd;
-
-                boolean isValidCall;
-                do {
-                    // Генерация времени начала звонка
-                    callStart = generateRandomDateTime(startDate, LocalDateTime.now(), random);
-
-                    // Генерация длительности звонка
-                    long callDurationSeconds = 10 + random.nextInt(7200 - 10); // От 10 секунд до 2 часов
-                    callEnd = callStart.plusSeconds(callDurationSeconds);
-
-                    // Проверка на пересечение временных интервалов
-                    isValidCall = !isOverlapping(callIntervals, subscriber.getMsisdn(), callStart, callEnd);
-
-                } while (!isValidCall);
-
-                // Выбираем случайного абонента для звонка, но не самого себя
-                Subscriber receiver;
-                do {
-                    receiver = subscribers.get(random.nextInt(subscribers.size()));
-                } while (receiver.getMsisdn().equals(subscriber.getMsisdn()));
-
-                CdrRecord cdrRecord = new CdrRecord();
-                cdrRecord.setCallType(random.nextBoolean() ? "01" : "02");
-                cdrRecord.setCallerNumber(subscriber.getMsisdn());
-                cdrRecord.setReceiverNumber(receiver.getMsisdn());
-                cdrRecord.setStartTime(callStart);
-                cdrRecord.setEndTime(callEnd);
-
-                // Добавляем интервал в временную структуру
-                callIntervals.computeIfAbsent(subscriber.getMsisdn(), k -> new ArrayList<>())
-                        .add(new LocalDateTime[]{callStart, callEnd});
-
-                allRecords.add(cdrRecord);
-            }
-        }
-
-        // Сортируем все записи по времени начала звонков
-        allRecords.sort(Comparator.comparing(CdrRecord::getStartTime));
-
-        // Сохраняем записи в базу данных партиями
-        for (int i = 0; i < allRecords.size(); i += batchSize) {
-            List<CdrRecord> batch = allRecords.subList(i, Math.min(i + batchSize, allRecords.size()));
-            saveBatch(batch);
-        }
-    }
-
-    /**
-     * Сохраняет партию записей CDR в базу данных.
+     * Звонки абонентов генерируются параллельно ({@link CdrCallGenerator}), пересечения проверяются
+     * по упорядоченному индексу интервалов за O(log n). Звонки поступают частями по суточным окнам
+     * и вставляются JDBC-батчами по мере генерации, поэтому весь период не хранится в памяти.
      *
-     * @param batch Список записей для сохранения.
+     * @return Количество сохранённых записей и скорость сохранения.
      */
-    private void saveBatch(List<CdrRecord> batch) {
-        cdrRecordRepository.saveAll(batch); // Сохраняем партию
+    public CdrGenerationStats generateCdrRecords() {
+        // Период: последний год до текущего момента
+        LocalDateTime now = LocalDateTime.now();
+        return generateCdrRecords(now.minusYears(1), now, maxCallsPerSubscriber);
     }
 
     /**
-     * Проверяет, пересекается ли новый звонок с существующими интервалами для абонента.
+     * Догенерирует записи CDR после уже сохранённых звонков до текущего момента.
+     * <p>
+     * Новые звонки начинаются не раньше, чем мог закончиться самый поздний сохранённый звонок,
+     * поэтому они не пересекаются с прежними звонками абонентов. Количество звонков пропорционально
+     * длине периода: за год абонент совершает до {@code cdr.generator.max-calls-per-subscriber} звонков.
      *
-     * @param callIntervals Временные интервалы звонков.
-     * @param msisdn        Номер абонента.
-     * @param start         Начало нового звонка.
-     * @param end           Конец нового звонка.
-     * @return true, если есть пересечение; иначе false.
+     * @param latestStartTime Начало самого позднего сохранённого звонка.
+     * @return Количество сохранённых записей и скорость сохранения; без записей, если период ещё не наступил.
      */
-    private boolean isOverlapping(Map<String, List<LocalDateTime[]>> callIntervals, String msisdn, LocalDateTime start, LocalDateTime end) {
-        List<LocalDateTime[]> intervals = callIntervals.get(msisdn);
-        if (intervals == null) {
-            return false;
+    public CdrGenerationStats generateCdrRecordsAfter(LocalDateTime latestStartTime) {
+        LocalDateTime from = latestStartTime.plusSeconds(CdrCallGenerator.MAX_CALL_DURATION_SECONDS);
+        LocalDateTime to = LocalDateTime.now();
+        if (!from.isBefore(to)) {
+            return new CdrGenerationStats(0, Duration.ZERO);
         }
-        for (LocalDateTime[] interval : intervals) {
-            LocalDateTime existingStart = interval[0];
-            LocalDateTime existingEnd = interval[1];
-            if (!(end.isBefore(existingStart) || start.isAfter(existingEnd))) {
-                return true; // Пересечение найдено
-            }
+        long periodSeconds = Duration.between(from, to).toSeconds();
+        int maxCalls = (int) Math.max(1, Math.min(maxCallsPerSubscriber,
+                (long) maxCallsPerSubscriber * periodSeconds / SECONDS_PER_YEAR));
+        return generateCdrRecords(from, to, maxCalls);
+    }
+
+    private CdrGenerationStats generateCdrRecords(LocalDateTime from, LocalDateTime to, int maxCalls) {
+        long startNanos = System.nanoTime();
+
+        // Звонки генерируются в компактном представлении, поэтому участвуют только номера, представимые числом
+        long[] msisdns = subscriberRepository.findAll().stream()
+                .filter(subscriber -> CdrCodec.isEncodable(subscriber.getMsisdn()))
+                .mapToLong(subscriber -> CdrCodec.encodeMsisdn(subscriber.getMsisdn()))
+                .toArray();
+
+        // Части приходят упорядоченными по времени начала; сущности создаются только для текущей партии
+        List<CdrRecord> batch = new ArrayList<>(batchSize);
+        long generated = callGenerator.generate(msisdns,
+                CdrCodec.toEpochSecond(from),
+                CdrCodec.toEpochSecond(to),
+                maxCalls,
+                ThreadLocalRandom.current().nextLong(),
+                chunk -> {
+                    for (PackedCdr call : chunk) {
+                        batch.add(call.toCdrRecord());
+                        if (batch.size() == batchSize) {
+                            saveBatch(batch);
+                            batch.clear();
+                        }
+                    }
+                });
+        if (!batch.isEmpty()) {
+            saveBatch(batch);
         }
-        return false;
+
+        CdrGenerationStats stats = new CdrGenerationStats(generated, Duration.ofNanos(System.nanoTime() - startNanos));
+        log.info("Generated {} CDR records in {} ms ({} records/s)",
+                stats.records(), stats.elapsed().toMillis(), stats.recordsPerSecond());
+        return stats;
     }
 
     /**
-     * Генерирует случайную дату и время в указанном диапазоне.
+     * Сохраняет партию записей CDR в базу данных и публикует событие о сохранении,
+     * по которому обновляются помесячные агрегаты UDR и другие производные данные.
      * <p>
-     * Время генерируется преимущественно с 8:00 до 22:00 для соответствия реальным условиям использования.
+     * Партия и агрегаты сохраняются в одной транзакции; структуры в памяти обновляются после её фиксации.
      *
-     * @param start  Начальная дата и время.
-     * @param end    Конечная дата и время.
-     * @param random Объект Random для генерации случайных чисел.
-     * @return Случайная дата и время в диапазоне [start, end].
+     * @param batch Список записей для сохранения.
      */
-    private LocalDateTime generateRandomDateTime(LocalDateTime start, LocalDateTime end, Random random) {
-        long startEpochSecond = start.toEpochSecond(java.time.ZoneOffset.UTC);
-        long endEpochSecond = end.toEpochSecond(java.time.ZoneOffset.UTC);
-        long randomEpochSecond = startEpochSecond + random.nextInt((int) (endEpochSecond - startEpochSecond));
-        return LocalDateTime.ofEpochSecond(randomEpochSecond, 0, java.time.ZoneOffset.UTC);
+    private void saveBatch(List<CdrRecord> batch) {
+        transactionOperations.executeWithoutResult(status -> {
+            cdrRecordBatchWriter.insert(batch); // Сохраняем партию одним JDBC-батчем
+            eventPublisher.publishEvent(new CdrRecordsSavedEvent(List.copyOf(batch))); // Обновляем производные данные
+        });
     }
 }
@@ -0,0 +1,150 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.CdrIngestStats;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+
+/**
+ * Загрузка CDR-файлов, появляющихся в каталоге.
+ * <p>
+ * Режим включается свойством {@code cdr.ingest.watch-dir}. После запуска приложения загружаются
+ * файлы {@code *.csv}, уже лежащие в каталоге, затем каталог отслеживается {@link WatchService}.
+ * Загруженный файл переносится в подкаталог {@code processed}, файл, который не удалось
+ * прочитать или записать, — в подкаталог {@code failed}.
+ * <p>
+ * Файл должен появляться в каталоге целиком, например переименованием из временного файла
+ * в том же разделе диска.
+ */
+@Component
+public class CdrIngestDirectoryWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CdrIngestDirectoryWatcher.class);
+
+    private static final String CSV_GLOB = "*.csv";
+
+    private final CdrIngestService cdrIngestService;
+    private final String watchDir;
+
+    private volatile WatchService watchService;
+
+    public CdrIngestDirectoryWatcher(CdrIngestService cdrIngestService,
+                                     @Value("${cdr.ingest.watch-dir:}") String watchDir) {
+        this.cdrIngestService = cdrIngestService;
+        this.watchDir = watchDir;
+    }
+
+    /**
+     * Запускает отслеживание каталога после запуска приложения, если каталог задан.
+     *
+     * @throws IOException Если не удалось создать каталог или зарегистрировать его для отслеживания.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (watchDir == null || watchDir.isBlank()) {
+            return;
+        }
+        Path directory = Path.of(watchDir);
+        Files.createDirectories(directory);
+
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+
+        Thread thread = new Thread(() -> watch(directory), "cdr-ingest-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching {} for CDR files", directory.toAbsolutePath());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Загружает все файлы {@code *.csv} каталога.
+     *
+     * @param directory Каталог с CDR-файлами.
+     */
+    void ingestExisting(Path directory) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, CSV_GLOB)) {
+            for (Path file : files) {
+                ingestFile(file);
+            }
+        } catch (IOException e) {
+            log.error("Failed to list CDR files in {}", directory, e);
+        }
+    }
+
+    /**
+     * Загружает файл и переносит его в подкаталог {@code processed} или {@code failed}.
+     *
+     * @param file CDR-файл.
+     */
+    void ingestFile(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return; // Файл уже обработан по предыдущему событию
+        }
+        String target;
+        try (InputStream in = Files.newInputStream(file)) {
+            CdrIngestStats stats = cdrIngestService.ingest(in);
+            log.info("Ingested {}: {} records, {} rows rejected", file.getFileName(), stats.accepted(), stats.rejected());
+            target = "processed";
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to ingest {}", file, e);
+            target = "failed";
+        }
+        move(file, file.resolveSibling(target));
+    }
+
+    private void watch(Path directory) {
+        ingestExisting(directory);
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        ingestExisting(directory);
+                    } else if (event.context() instanceof Path name && name.toString().endsWith(".csv")) {
+                        ingestFile(directory.resolve(name));
+                    }
+                }
+                if (!key.reset()) {
+                    log.warn("CDR directory {} is no longer accessible", directory);
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Приложение останавливается
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void move(Path file, Path targetDirectory) {
+        try {
+            Files.createDirectories(targetDirectory);
+            Files.move(file, targetDirectory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.error("Failed to move {} to {}", file, targetDirectory, e);
+        }
+    }
+}
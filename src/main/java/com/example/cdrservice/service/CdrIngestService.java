@@ -0,0 +1,182 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.PackedCdr;
+import com.example.cdrservice.compact.PackedCdrConsumer;
+import com.example.cdrservice.dto.CdrIngestStats;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.CdrRecordBatchWriter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Сервис загрузки CDR-файлов коммутаторов в таблицу CDR_RECORD.
+ * <p>
+ * Файл разбирается потоково ({@link CdrCsvParser}), корректные строки собираются в партии, которые
+ * вставляются JDBC-батчами. Разбор и вставка выполняются конвейером: пока одна партия записывается
+ * в базу данных отдельным потоком, следующая уже разбирается. После вставки каждой партии публикуется
+ * {@link CdrRecordsSavedEvent}, как и при генерации записей; партия и помесячные агрегаты сохраняются
+ * в одной транзакции.
+ * <p>
+ * Партии всех загрузок записываются одним потоком, поэтому производные данные обновляются
+ * так же последовательно, как при генерации.
+ */
+@Service
+public class CdrIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(CdrIngestService.class);
+
+    private final CdrRecordBatchWriter cdrRecordBatchWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionOperations transactionOperations;
+    private final ExecutorService writerExecutor;
+    private final int batchSize;
+    private final CdrCsvParser parser = new CdrCsvParser();
+
+    /**
+     * Конструктор для внедрения зависимостей.
+     *
+     * @param cdrRecordBatchWriter Пакетная вставка записей CDR.
+     * @param eventPublisher        Публикатор событий о сохранении записей.
+     * @param transactionOperations Транзакция, в которой сохраняется партия и обновляются агрегаты.
+     * @param batchSize             Размер партии при сохранении записей.
+     */
+    @Autowired
+    public CdrIngestService(CdrRecordBatchWriter cdrRecordBatchWriter,
+                            ApplicationEventPublisher eventPublisher,
+                            TransactionOperations transactionOperations,
+                            @Value("${cdr.ingest.batch-size:5000}") int batchSize) {
+        this(cdrRecordBatchWriter, eventPublisher, transactionOperations, newWriterExecutor(), batchSize);
+    }
+
+    CdrIngestService(CdrRecordBatchWriter cdrRecordBatchWriter,
+                     ApplicationEventPublisher eventPublisher,
+                     TransactionOperations transactionOperations,
+                     ExecutorService writerExecutor,
+                     int batchSize) {
+        this.cdrRecordBatchWriter = cdrRecordBatchWriter;
+        this.eventPublisher = eventPublisher;
+        this.transactionOperations = transactionOperations;
+        this.writerExecutor = writerExecutor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Загружает CDR-записи из CSV-потока.
+     * <p>
+     * Метод возвращает управление после записи всех партий в базу данных.
+     *
+     * @param in Поток с содержимым файла; не закрывается.
+     * @return Количество загруженных записей и отклонённых строк, объём данных и скорость загрузки.
+     * @throws IOException Если не удалось прочитать поток. Партии, записанные до ошибки, сохраняются.
+     */
+    public CdrIngestStats ingest(InputStream in) throws IOException {
+        long startNanos = System.nanoTime();
+
+        BatchPipeline pipeline = new BatchPipeline();
+        CdrCsvParser.Result result;
+        try {
+            result = parser.parse(in, pipeline);
+            pipeline.flush();
+        } finally {
+            pipeline.await();
+        }
+
+        CdrIngestStats stats = CdrIngestStats.of(result.accepted(), result.rejected(), result.bytes(),
+                Duration.ofNanos(System.nanoTime() - startNanos));
+        log.info("Ingested {} CDR records ({} rows rejected, {} bytes) in {} ms ({} records/s)",
+                stats.accepted(), stats.rejected(), stats.bytes(), stats.elapsedMillis(), stats.recordsPerSecond());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writerExecutor.shutdown();
+    }
+
+    /**
+     * Сохраняет партию записей CDR в базу данных и публикует событие о сохранении.
+     *
+     * @param batch Записи в компактном представлении.
+     */
+    private void saveBatch(List<PackedCdr> batch) {
+        List<CdrRecord> records = new ArrayList<>(batch.size());
+        for (PackedCdr record : batch) {
+            records.add(record.toCdrRecord());
+        }
+        transactionOperations.executeWithoutResult(status -> {
+            cdrRecordBatchWriter.insert(records);
+            eventPublisher.publishEvent(new CdrRecordsSavedEvent(List.copyOf(records)));
+        });
+    }
+
+    private static ExecutorService newWriterExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cdr-ingest-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Накапливает разобранные записи в партии и передаёт их потоку записи.
+     * В каждый момент в базу данных записывается не больше одной партии загрузки.
+     */
+    private final class BatchPipeline implements PackedCdrConsumer {
+
+        private List<PackedCdr> batch = new ArrayList<>(batchSize);
+        private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+
+        @Override
+        public void accept(byte callType, long callerNumber, long receiverNumber, long startEpochSecond, long endEpochSecond) {
+            batch.add(new PackedCdr(callType, callerNumber, receiverNumber, startEpochSecond, endEpochSecond));
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Дожидается записи предыдущей партии и отправляет текущую на запись.
+         */
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<PackedCdr> full = batch;
+            batch = new ArrayList<>(batchSize);
+            await();
+            pending = CompletableFuture.runAsync(() -> saveBatch(full), writerExecutor);
+        }
+
+        /**
+         * Дожидается записи последней отправленной партии.
+         *
+         * @throws RuntimeException Ошибка записи партии в базу данных.
+         */
+        void await() {
+            try {
+                pending.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.dto.CdrPartitionInfo;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Сервис управления помесячными партициями CDR-записей.
+ * <p>
+ * Партицией считаются записи с одинаковым месяцем начала звонка ({@code billing_month}).
+ * Устаревший месяц удаляется одним запросом по индексу ключа партиции вместе с помесячными агрегатами UDR
+ * этого месяца, поэтому отчёты по агрегатам, по колоночному хранилищу и по таблице CDR совпадают.
+ */
+@Service
+public class CdrPartitionService {
+
+    private final CdrRecordRepository cdrRecordRepository;
+    private final UdrRollupService udrRollupService;
+    private final UdrReportCache udrReportCache;
+    private final ColumnarCdrStore columnarCdrStore;
+    private final TransactionOperations transactionOperations;
+
+    public CdrPartitionService(CdrRecordRepository cdrRecordRepository,
+                               UdrRollupService udrRollupService,
+                               UdrReportCache udrReportCache,
+                               ColumnarCdrStore columnarCdrStore,
+                               TransactionOperations transactionOperations) {
+        this.cdrRecordRepository = cdrRecordRepository;
+        this.udrRollupService = udrRollupService;
+        this.udrReportCache = udrReportCache;
+        this.columnarCdrStore = columnarCdrStore;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * @return Помесячные партиции с количеством записей в хронологическом порядке.
+     */
+    public List<CdrPartitionInfo> listPartitions() {
+        return cdrRecordRepository.findPartitions();
+    }
+
+    /**
+     * Удаляет все CDR-записи и помесячные агрегаты указанного месяца.
+     * <p>
+     * Записи и агрегаты удаляются в одной транзакции, после фиксации которой из колоночного хранилища
+     * удаляются звонки месяца — без перечитывания остальных записей. Кэш отчётов очищается целиком:
+     * отчёты за весь период могли включать звонки удалённого месяца.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return Количество удалённых записей.
+     */
+    public int dropPartition(String month) {
+        int[] deleted = transactionOperations.execute(status -> new int[]{
+                cdrRecordRepository.deleteByBillingMonth(month),
+                udrRollupService.deleteMonth(month)
+        });
+        if (deleted[0] > 0 || deleted[1] > 0) {
+            udrReportCache.clear();
+        }
+        if (deleted[0] > 0) {
+            LocalDateTime monthStart = YearMonth.parse(month).atDay(1).atStartOfDay();
+            columnarCdrStore.evict(CdrCodec.toEpochSecond(monthStart), CdrCodec.toEpochSecond(monthStart.plusMonths(1)) - 1);
+        }
+        return deleted[0];
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrRecord;
+
+import java.util.List;
+
+/**
+ * Событие о сохранении партии CDR-записей.
+ * Публикуется после записи партии в базу данных; по нему обновляются производные структуры данных
+ * (помесячные агрегаты, хранилища в памяти и т.п.).
+ *
+ * @param records Сохранённые записи.
+ */
+public record CdrRecordsSavedEvent(List<CdrRecord> records) {
+}
@@ -0,0 +1,170 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrReportJob;
+import com.example.cdrservice.repository.CdrReportJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервис асинхронной генерации CDR-отчётов.
+ * <p>
+ * Принимает задание, сразу возвращает его идентификатор и формирует файл отчёта
+ * в ограниченном пуле потоков. Состояние заданий хранится в таблице CDR_REPORT_JOB:
+ * после перезапуска приложения незавершённые задания ставятся в очередь повторно.
+ * <p>
+ * Если включены виртуальные потоки ({@code spring.threads.virtual.enabled}), задания выполняются ими.
+ */
+@Service
+public class CdrReportJobService {
+
+    private final CdrReportJobRepository jobRepository;
+    private final UdrService udrService;
+    private final ExecutorService executor;
+
+    @Autowired
+    public CdrReportJobService(CdrReportJobRepository jobRepository,
+                               UdrService udrService,
+                               Environment environment,
+                               @Value("${cdr.report.executor.pool-size:2}") int poolSize,
+                               @Value("${cdr.report.executor.queue-capacity:100}") int queueCapacity) {
+        this(jobRepository, udrService, newExecutor(poolSize, queueCapacity, Threading.VIRTUAL.isActive(environment)));
+    }
+
+    CdrReportJobService(CdrReportJobRepository jobRepository, UdrService udrService, ExecutorService executor) {
+        this.jobRepository = jobRepository;
+        this.udrService = udrService;
+        this.executor = executor;
+    }
+
+    /**
+     * Создаёт задание на генерацию CDR-отчёта и ставит его в очередь.
+     *
+     * @param msisdn Номер абонента (MSISDN).
+     * @param start  Начало периода.
+     * @param end    Конец периода.
+     * @return Идентификатор задания, совпадающий с идентификатором будущего отчёта.
+     * @throws RejectedExecutionException Если очередь заданий заполнена.
+     */
+    public String submit(String msisdn, LocalDateTime start, LocalDateTime end) {
+        CdrReportJob job = jobRepository.save(new CdrReportJob(UUID.randomUUID().toString(), msisdn, start, end));
+        enqueue(job);
+        return job.getId();
+    }
+
+    /**
+     * Возвращает задание по идентификатору.
+     *
+     * @param id Идентификатор задания.
+     * @return Задание или пустой Optional, если задание не найдено.
+     */
+    public Optional<CdrReportJob> findJob(String id) {
+        return jobRepository.findById(id);
+    }
+
+    /**
+     * Повторно ставит в очередь задания, не завершённые до остановки приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<CdrReportJob> unfinished = jobRepository.findByStatusIn(
+                EnumSet.of(CdrReportJob.Status.PENDING, CdrReportJob.Status.RUNNING));
+        for (CdrReportJob job : unfinished) {
+            job.markPending();
+            jobRepository.save(job);
+            try {
+                enqueue(job);
+            } catch (RejectedExecutionException e) {
+                // Ошибка уже сохранена в задании, продолжаем с остальными
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void enqueue(CdrReportJob job) {
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (RejectedExecutionException e) {
+            job.markFailed("Too many report jobs in progress");
+            jobRepository.save(job);
+            throw e;
+        }
+    }
+
+    /**
+     * Выполняет задание: формирует файл отчёта и сохраняет итоговый статус.
+     * <p>
+     * Итоговый статус сохраняется при любом исходе, в том числе при {@link Error}: иначе задание
+     * осталось бы в статусе RUNNING до перезапуска приложения.
+     *
+     * @param jobId Идентификатор задания.
+     */
+    void run(String jobId) {
+        CdrReportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+
+        job.markRunning();
+        jobRepository.save(job);
+
+        try {
+            Path file = udrService.writeCdrReport(job.getMsisdn(), job.getStartTime(), job.getEndTime(), job.getId());
+            job.markCompleted(file.toString());
+        } catch (Throwable e) {
+            job.markFailed(e.getMessage() != null ? e.getMessage() : e.toString());
+            if (e instanceof Error error) {
+                throw error;
+            }
+        } finally {
+            jobRepository.save(job);
+        }
+    }
+
+    /**
+     * Создаёт пул заданий. Размер пула ограничивает количество одновременно формируемых отчётов
+     * (и занятых ими соединений с базой данных) и при работе на виртуальных потоках.
+     *
+     * @param virtualThreads true, если задания выполняются виртуальными потоками
+     *                       ({@code spring.threads.virtual.enabled} на Java 21 и новее).
+     */
+    private static ExecutorService newExecutor(int poolSize, int queueCapacity, boolean virtualThreads) {
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = new VirtualThreadTaskExecutor("cdr-report-").getVirtualThreadFactory();
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "cdr-report-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+}
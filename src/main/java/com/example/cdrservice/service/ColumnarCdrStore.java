@@ -0,0 +1,443 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.compact.PackedCdr;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.PackedCdrReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Колоночное хранилище CDR-записей в памяти вне кучи для аналитических UDR-запросов.
+ * <p>
+ * Записи хранятся в параллельных массивах (вызывающий, принимающий, тип, начало, длительность)
+ * в direct-буферах и упорядочены по времени начала звонка. Диапазон периода находится
+ * двоичным поиском, после чего длительности суммируются линейным проходом по колонкам.
+ * Записи, начавшиеся раньше последней хранимой, попадают в небольшой неупорядоченный сегмент,
+ * который просматривается целиком и вливается в колонки, когда превышает долю их размера.
+ * <p>
+ * Хранилище включается свойством {@code cdr.columnar.enabled}, загружается из таблицы CDR
+ * после запуска приложения и пополняется при сохранении новых записей. Загрузка читает записи
+ * с идентификатором не больше наибольшего на момент начала загрузки; изменения, поступившие во время
+ * загрузки, откладываются и применяются после неё, причём из сохранённых записей добавляются только
+ * записи с большим идентификатором. Поэтому записи, сохранённые во время загрузки, не теряются
+ * и не учитываются дважды.
+ */
+@Component
+public class ColumnarCdrStore {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * Неупорядоченный сегмент вливается в колонки, когда превышает 1/32 их размера.
+     */
+    private static final int DELTA_SHIFT = 5;
+
+    private final PackedCdrReader packedCdrReader;
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Columns columns = new Columns(0);
+    private List<PackedCdr> delta = new ArrayList<>();
+    private long loadedUpToId;
+    private List<Runnable> pendingUpdates;
+    private volatile boolean ready;
+
+    public ColumnarCdrStore(PackedCdrReader packedCdrReader,
+                            @Value("${cdr.columnar.enabled:false}") boolean enabled) {
+        this.packedCdrReader = packedCdrReader;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Загружает хранилище после запуска приложения, если оно включено.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * Полностью перечитывает записи из таблицы CDR.
+     * <p>
+     * Колонки строятся без блокировки, поэтому запросы во время загрузки обслуживаются прежними колонками.
+     */
+    public synchronized void reload() {
+        lock.writeLock().lock();
+        try {
+            pendingUpdates = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Columns loaded = null;
+        long watermark = 0;
+        try {
+            watermark = packedCdrReader.findMaxId();
+            Columns target = new Columns(INITIAL_CAPACITY);
+            packedCdrReader.forEachOrderedByStartTime(watermark, (callType, caller, receiver, start, end) ->
+                    target.append(callType, caller, receiver, start, (int) (end - start)));
+            loaded = target;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                // При ошибке загрузки отложенные изменения применяются к прежним колонкам
+                if (loaded != null) {
+                    columns = loaded;
+                    delta = new ArrayList<>();
+                    loadedUpToId = watermark;
+                    ready = true;
+                }
+                List<Runnable> updates = pendingUpdates;
+                pendingUpdates = null;
+                if (ready) {
+                    updates.forEach(Runnable::run);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Добавляет сохранённые записи в хранилище после фиксации транзакции, в которой они сохранены.
+     * <p>
+     * Во время загрузки записи откладываются до её окончания; до первой загрузки пропускаются,
+     * поскольку загрузка прочитает их из таблицы.
+     *
+     * @param event Событие о сохранении записей.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onCdrRecordsSaved(CdrRecordsSavedEvent event) {
+        List<CdrRecord> records = event.records();
+        update(() -> appendSaved(records));
+    }
+
+    /**
+     * Удаляет из хранилища записи, начавшиеся в указанном периоде, например при удалении помесячной партиции.
+     *
+     * @param fromEpochSecond Начало периода (секунды от эпохи, включительно).
+     * @param toEpochSecond   Конец периода (секунды от эпохи, включительно).
+     */
+    public void evict(long fromEpochSecond, long toEpochSecond) {
+        update(() -> evictLocked(fromEpochSecond, toEpochSecond));
+    }
+
+    /**
+     * Добавляет записи с сохранением порядка по времени начала.
+     * <p>
+     * Записи не раньше последней хранимой дописываются в конец колонок, остальные — в неупорядоченный сегмент.
+     *
+     * @param records Записи в компактном представлении.
+     */
+    public void append(List<PackedCdr> records) {
+        lock.writeLock().lock();
+        try {
+            appendLocked(records);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true, если хранилище загружено и может отвечать на запросы.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return columns.size + delta.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Суммирует длительности звонков всех абонентов за период.
+     *
+     * @param fromEpochSecond Начало периода (секунды от эпохи, включительно).
+     * @param toEpochSecond   Конец периода (секунды от эпохи, включительно).
+     * @return Длительности по всем участникам звонков, начавшихся в периоде.
+     */
+    public MsisdnTotals aggregate(long fromEpochSecond, long toEpochSecond) {
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(fromEpochSecond);
+            int to = upperBound(toEpochSecond);
+
+            MsisdnTotals totals = new MsisdnTotals();
+            LongBuffer caller = columns.caller;
+            LongBuffer receiver = columns.receiver;
+            ByteBuffer type = columns.type;
+            IntBuffer duration = columns.duration;
+            for (int i = from; i < to; i++) {
+                byte callType = type.get(i);
+                int seconds = duration.get(i);
+                totals.add(caller.get(i), 0, callType == CdrCodec.OUTCOMING_CALL ? seconds : 0);
+                totals.add(receiver.get(i), callType == CdrCodec.INCOMING_CALL ? seconds : 0, 0);
+            }
+            for (PackedCdr record : delta) {
+                if (record.startEpochSecond() >= fromEpochSecond && record.startEpochSecond() <= toEpochSecond) {
+                    long seconds = record.durationSeconds();
+                    totals.add(record.callerNumber(), 0, record.callType() == CdrCodec.OUTCOMING_CALL ? seconds : 0);
+                    totals.add(record.receiverNumber(), record.callType() == CdrCodec.INCOMING_CALL ? seconds : 0, 0);
+                }
+            }
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Суммирует длительности звонков одного абонента за период.
+     * <p>
+     * Цикл не содержит ветвлений по данным: совпадения учитываются условными выражениями над колонками.
+     *
+     * @param msisdn          Номер абонента.
+     * @param fromEpochSecond Начало периода (секунды от эпохи, включительно).
+     * @param toEpochSecond   Конец периода (секунды от эпохи, включительно).
+     * @return Длительности абонента; абонент отсутствует в результате, если у него нет звонков в периоде.
+     */
+    public MsisdnTotals totalsFor(long msisdn, long fromEpochSecond, long toEpochSecond) {
+        lock.readLock().lock();
+        try {
+            int from = lowerBound(fromEpochSecond);
+            int to = upperBound(toEpochSecond);
+
+            LongBuffer caller = columns.caller;
+            LongBuffer receiver = columns.receiver;
+            ByteBuffer type = columns.type;
+            IntBuffer duration = columns.duration;
+            long matches = 0;
+            long incoming = 0;
+            long outcoming = 0;
+            for (int i = from; i < to; i++) {
+                boolean isCaller = caller.get(i) == msisdn;
+                boolean isReceiver = receiver.get(i) == msisdn;
+                byte callType = type.get(i);
+                int seconds = duration.get(i);
+                matches += isCaller | isReceiver ? 1 : 0;
+                outcoming += isCaller & callType == CdrCodec.OUTCOMING_CALL ? seconds : 0;
+                incoming += isReceiver & callType == CdrCodec.INCOMING_CALL ? seconds : 0;
+            }
+            for (PackedCdr record : delta) {
+                if (record.startEpochSecond() < fromEpochSecond || record.startEpochSecond() > toEpochSecond) {
+                    continue;
+                }
+                boolean isCaller = record.callerNumber() == msisdn;
+                boolean isReceiver = record.receiverNumber() == msisdn;
+                matches += isCaller | isReceiver ? 1 : 0;
+                outcoming += isCaller & record.callType() == CdrCodec.OUTCOMING_CALL ? record.durationSeconds() : 0;
+                incoming += isReceiver & record.callType() == CdrCodec.INCOMING_CALL ? record.durationSeconds() : 0;
+            }
+
+            MsisdnTotals totals = new MsisdnTotals(1);
+            if (matches > 0) {
+                totals.add(msisdn, incoming, outcoming);
+            }
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Применяет изменение к загруженному хранилищу или откладывает его до окончания загрузки.
+     */
+    private void update(Runnable update) {
+        lock.writeLock().lock();
+        try {
+            if (pendingUpdates != null) {
+                pendingUpdates.add(update);
+            } else if (ready) {
+                update.run();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет сохранённые записи, которые не были прочитаны загрузкой.
+     * Записи без идентификатора считаются новыми.
+     */
+    private void appendSaved(List<CdrRecord> records) {
+        appendLocked(records.stream()
+                .filter(record -> record.getId() == null || record.getId() > loadedUpToId)
+                .map(PackedCdr::of)
+                .toList());
+    }
+
+    private void appendLocked(List<PackedCdr> records) {
+        for (PackedCdr record : records) {
+            if (columns.size == 0 || record.startEpochSecond() >= columns.start.get(columns.size - 1)) {
+                columns.append(record.callType(), record.callerNumber(), record.receiverNumber(),
+                        record.startEpochSecond(), (int) record.durationSeconds());
+            } else {
+                delta.add(record);
+            }
+        }
+        if (delta.size() > Math.max(INITIAL_CAPACITY, columns.size >> DELTA_SHIFT)) {
+            mergeDelta();
+        }
+    }
+
+    private void evictLocked(long fromEpochSecond, long toEpochSecond) {
+        int from = lowerBound(fromEpochSecond);
+        int to = upperBound(toEpochSecond);
+        if (from < to) {
+            columns = columns.without(from, to);
+        }
+        delta.removeIf(record -> record.startEpochSecond() >= fromEpochSecond && record.startEpochSecond() <= toEpochSecond);
+    }
+
+    /**
+     * Индекс первой записи, начавшейся не раньше указанного момента.
+     */
+    private int lowerBound(long epochSecond) {
+        int low = 0;
+        int high = columns.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.start.get(mid) < epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Индекс первой записи, начавшейся позже указанного момента.
+     */
+    private int upperBound(long epochSecond) {
+        int low = 0;
+        int high = columns.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.start.get(mid) <= epochSecond) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Вливает неупорядоченный сегмент в колонки за один линейный проход.
+     */
+    private void mergeDelta() {
+        List<PackedCdr> batch = new ArrayList<>(delta);
+        batch.sort(Comparator.comparingLong(PackedCdr::startEpochSecond));
+        int size = columns.size;
+        Columns merged = new Columns(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(size + batch.size()) * 2));
+        int i = 0;
+        int j = 0;
+        while (i < size || j < batch.size()) {
+            if (j == batch.size() || (i < size && columns.start.get(i) <= batch.get(j).startEpochSecond())) {
+                merged.append(columns.type.get(i), columns.caller.get(i), columns.receiver.get(i),
+                        columns.start.get(i), columns.duration.get(i));
+                i++;
+            } else {
+                PackedCdr record = batch.get(j++);
+                merged.append(record.callType(), record.callerNumber(), record.receiverNumber(),
+                        record.startEpochSecond(), (int) record.durationSeconds());
+            }
+        }
+        columns = merged;
+        delta = new ArrayList<>();
+    }
+
+    /**
+     * Набор колонок одинаковой ёмкости в direct-буферах, заполненных с начала.
+     */
+    private static final class Columns {
+        int capacity;
+        int size;
+        LongBuffer caller;
+        LongBuffer receiver;
+        LongBuffer start;
+        IntBuffer duration;
+        ByteBuffer type;
+
+        Columns(int capacity) {
+            this.capacity = capacity;
+            this.caller = allocate(capacity, Long.BYTES).asLongBuffer();
+            this.receiver = allocate(capacity, Long.BYTES).asLongBuffer();
+            this.start = allocate(capacity, Long.BYTES).asLongBuffer();
+            this.duration = allocate(capacity, Integer.BYTES).asIntBuffer();
+            this.type = allocate(capacity, Byte.BYTES);
+        }
+
+        void append(byte callType, long callerNumber, long receiverNumber, long startEpochSecond, int durationSeconds) {
+            if (size == capacity) {
+                Columns grown = copy(Math.max(INITIAL_CAPACITY, capacity * 2), 0, size);
+                capacity = grown.capacity;
+                caller = grown.caller;
+                receiver = grown.receiver;
+                start = grown.start;
+                duration = grown.duration;
+                type = grown.type;
+            }
+            type.put(size, callType);
+            caller.put(size, callerNumber);
+            receiver.put(size, receiverNumber);
+            start.put(size, startEpochSecond);
+            duration.put(size, durationSeconds);
+            size++;
+        }
+
+        /**
+         * @return Копия колонок без строк с индексами {@code [from, to)}.
+         */
+        Columns without(int from, int to) {
+            Columns copy = copy(capacity, 0, from);
+            int tail = size - to;
+            copy.caller.put(from, caller, to, tail);
+            copy.receiver.put(from, receiver, to, tail);
+            copy.start.put(from, start, to, tail);
+            copy.duration.put(from, duration, to, tail);
+            copy.type.put(from, type, to, tail);
+            copy.size = from + tail;
+            return copy;
+        }
+
+        private Columns copy(int newCapacity, int from, int length) {
+            Columns copy = new Columns(newCapacity);
+            copy.caller.put(0, caller, from, length);
+            copy.receiver.put(0, receiver, from, length);
+            copy.start.put(0, start, from, length);
+            copy.duration.put(0, duration, from, length);
+            copy.type.put(0, type, from, length);
+            copy.size = length;
+            return copy;
+        }
+
+        private static ByteBuffer allocate(int capacity, int width) {
+            return ByteBuffer.allocateDirect(capacity * width).order(ByteOrder.nativeOrder());
+        }
+    }
+}
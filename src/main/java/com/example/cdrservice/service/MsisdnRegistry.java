@@ -0,0 +1,128 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnSet;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Реестр номеров, участвовавших в звонках.
+ * <p>
+ * Заменяет проверку существования номера запросом {@code COUNT} по таблице CDR: отсутствие номера
+ * определяется поиском в множестве в памяти без обращения к базе данных. Реестр загружается
+ * одним запросом при первом обращении и пополняется при сохранении CDR-записей.
+ * <p>
+ * Как и фильтр Блума, реестр может ошибаться только в одну сторону: номер, записи которого
+ * были удалены, считается известным, и тогда отсутствие записей обнаружит основной запрос.
+ */
+@Component
+public class MsisdnRegistry {
+
+    private final CdrRecordRepository cdrRecordRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MsisdnSet msisdns = new MsisdnSet();
+    private volatile boolean loaded;
+    private volatile boolean nonEncodableSeen;
+
+    public MsisdnRegistry(CdrRecordRepository cdrRecordRepository) {
+        this.cdrRecordRepository = cdrRecordRepository;
+    }
+
+    /**
+     * Проверяет, мог ли номер участвовать в звонках.
+     *
+     * @param msisdn Нормализованный номер абонента.
+     * @return false, если у номера точно нет CDR-записей; всегда false для пустой строки и строки не из цифр.
+     */
+    public boolean mightContain(String msisdn) {
+        if (!isDigits(msisdn)) {
+            // Запросы выполняются по нормализованному номеру из цифр, такая строка не совпадёт ни с одной записью
+            return false;
+        }
+        if (!CdrCodec.isEncodable(msisdn)) {
+            // Номер не укладывается в компактное представление, решение остаётся за базой данных
+            return true;
+        }
+        long key = CdrCodec.encodeMsisdn(msisdn);
+
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return msisdns.contains(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, встречались ли номера, не представимые числом ({@link CdrCodec#isEncodable}).
+     * Такие номера не учитываются колоночным хранилищем и агрегатами, и отчёты дополняют их запросом.
+     *
+     * @return false, если ни у одной CDR-записи нет такого номера.
+     */
+    public boolean hasNonEncodableMsisdns() {
+        ensureLoaded();
+        return nonEncodableSeen;
+    }
+
+    /**
+     * Добавляет участников сохранённых звонков, когда транзакция сохранения зафиксирована.
+     *
+     * @param event Событие о сохранении записей.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(0)
+    public void onCdrRecordsSaved(CdrRecordsSavedEvent event) {
+        lock.writeLock().lock();
+        try {
+            for (CdrRecord record : event.records()) {
+                addQuietly(record.getCallerNumber());
+                addQuietly(record.getReceiverNumber());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                cdrRecordRepository.findAllMsisdns().forEach(this::addQuietly);
+                loaded = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static boolean isDigits(String msisdn) {
+        if (msisdn == null || msisdn.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < msisdn.length(); i++) {
+            char c = msisdn.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addQuietly(String msisdn) {
+        // Номера, не представимые числом, проверяются запросом к базе данных, см. mightContain
+        if (CdrCodec.isEncodable(msisdn)) {
+            msisdns.add(CdrCodec.encodeMsisdn(msisdn));
+        } else if (msisdn != null && !msisdn.isEmpty()) {
+            nonEncodableSeen = true;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.cdrservice.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Индекс интервалов звонков на {@link TreeMap}, упорядоченном по началу звонка.
+ * <p>
+ * Добавленные интервалы не пересекаются, поэтому для проверки нового звонка достаточно
+ * сравнить его с единственным интервалом, начавшимся не позже окончания нового звонка.
+ * Проверка и вставка выполняются за O(log n).
+ */
+public class TreeMapCallIntervalIndex implements CallIntervalIndex {
+
+    private final TreeMap<Long, Long> intervals = new TreeMap<>();
+
+    @Override
+    public boolean tryAdd(long startEpochSecond, long endEpochSecond) {
+        Map.Entry<Long, Long> previous = intervals.floorEntry(endEpochSecond);
+        if (previous != null && previous.getValue() >= startEpochSecond) {
+            return false;
+        }
+        intervals.put(startEpochSecond, endEpochSecond);
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.compact.PackedCdrConsumer;
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.entity.CdrRecord;
+
+/**
+ * Однопроходный агрегатор длительностей звонков.
+ * <p>
+ * Принимает CDR-записи по одной и накапливает суммарную длительность входящих и исходящих звонков
+ * сразу для всех участников звонков. Каждая запись просматривается ровно один раз,
+ * поэтому время агрегации линейно зависит от количества записей, а не от произведения
+ * количества записей на количество абонентов.
+ * <p>
+ * Подсчёт ведётся над примитивами компактного представления ({@link CdrCodec}): номера сравниваются
+ * как {@code long}, длительности складываются в секундах без упаковки. Участник с номером, не представимым
+ * числом ({@link CdrCodec#isEncodable}), пропускается, а второй участник звонка учитывается.
+ */
+public class UdrAggregator implements PackedCdrConsumer {
+
+    private final MsisdnTotals totals = new MsisdnTotals();
+
+    /**
+     * Агрегирует переданные записи за один проход.
+     *
+     * @param records CDR-записи.
+     * @return Длительности по всем участникам звонков.
+     */
+    public static MsisdnTotals aggregate(Iterable<CdrRecord> records) {
+        UdrAggregator aggregator = new UdrAggregator();
+        for (CdrRecord record : records) {
+            aggregator.accept(record);
+        }
+        return aggregator.getTotals();
+    }
+
+    /**
+     * Учитывает одну CDR-запись.
+     *
+     * @param record CDR-запись.
+     */
+    public void accept(CdrRecord record) {
+        accept(CdrCodec.encodeCallType(record.getCallType()),
+                CdrCodec.encodeMsisdnOrInvalid(record.getCallerNumber()),
+                CdrCodec.encodeMsisdnOrInvalid(record.getReceiverNumber()),
+                CdrCodec.toEpochSecond(record.getStartTime()),
+                CdrCodec.toEpochSecond(record.getEndTime()));
+    }
+
+    /**
+     * Учитывает один звонок.
+     *
+     * @param call Звонок.
+     */
+    public void accept(CdrCall call) {
+        accept(CdrCodec.encodeCallType(call.callType()),
+                CdrCodec.encodeMsisdnOrInvalid(call.callerNumber()),
+                CdrCodec.encodeMsisdnOrInvalid(call.receiverNumber()),
+                CdrCodec.toEpochSecond(call.startTime()),
+                CdrCodec.toEpochSecond(call.endTime()));
+    }
+
+    /**
+     * Учитывает одну CDR-запись в компактном представлении.
+     * <p>
+     * Оба участника звонка попадают в результат, даже если запись не увеличивает их длительности:
+     * исходящий звонок учитывается у вызывающего абонента, входящий — у принимающего.
+     */
+    @Override
+    public void accept(byte callType, long callerNumber, long receiverNumber, long startEpochSecond, long endEpochSecond) {
+        long duration = endEpochSecond - startEpochSecond;
+        totals.add(callerNumber, 0, callType == CdrCodec.OUTCOMING_CALL ? duration : 0);
+        totals.add(receiverNumber, callType == CdrCodec.INCOMING_CALL ? duration : 0, 0);
+    }
+
+    /**
+     * @return Накопленные длительности по каждому абоненту.
+     */
+    public MsisdnTotals getTotals() {
+        return totals;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.UdrTotals;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collector;
+
+/**
+ * Сериализатор UDR-отчётов в JSON без {@code String.format}.
+ * <p>
+ * Отчёты записываются в переиспользуемый байтовый буфер: постоянные части JSON копируются
+ * из заранее подготовленных массивов, номер и длительности в формате "HH:mm:ss" записываются
+ * цифрами напрямую. Поэтому добавление отчёта в буфер не создаёт объектов, а вывод идентичен
+ * прежнему форматированию через {@code String.format}.
+ * <p>
+ * Экземпляр не потокобезопасен. Для параллельной сериализации каждая задача заполняет свой
+ * экземпляр, а буферы объединяются в порядке следования отчётов (см. {@link #toReports()}).
+ */
+public class UdrJsonWriter {
+
+    private static final byte[] MSISDN_PREFIX = "{\"msisdn\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INCOMING_PREFIX = "\", \"incomingCall\": {\"totalTime\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OUTCOMING_PREFIX = "\"}, \"outcomingCall\": {\"totalTime\": \"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUFFIX = "\"}}".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private byte[] buffer;
+    private int size;
+
+    public UdrJsonWriter() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public UdrJsonWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    /**
+     * Коллектор, сериализующий итоги абонентов в строки JSON, разделённые переводом строки.
+     * <p>
+     * При параллельной обработке каждая задача пишет в собственный буфер без синхронизации,
+     * а буферы соседних задач склеиваются при объединении, поэтому порядок строк совпадает
+     * с порядком элементов потока.
+     *
+     * @return Коллектор, возвращающий отчёты одной строкой.
+     */
+    public static Collector<UdrTotals, UdrJsonWriter, String> toReports() {
+        return Collector.of(
+                UdrJsonWriter::new,
+                (writer, totals) -> writer.writeUdr(totals.msisdn(), totals.incomingSeconds(), totals.outcomingSeconds())
+                        .newLine(),
+                UdrJsonWriter::append,
+                UdrJsonWriter::toString);
+    }
+
+    /**
+     * Добавляет UDR-отчёт абонента.
+     *
+     * @param msisdn           Номер абонента.
+     * @param incomingSeconds  Длительность входящих звонков (в секундах).
+     * @param outcomingSeconds Длительность исходящих звонков (в секундах).
+     * @return Этот же сериализатор.
+     */
+    public UdrJsonWriter writeUdr(String msisdn, long incomingSeconds, long outcomingSeconds) {
+        write(MSISDN_PREFIX);
+        ensureCapacity(msisdn.length());
+        for (int i = 0; i < msisdn.length(); i++) {
+            buffer[size++] = (byte) msisdn.charAt(i);
+        }
+        writeTotals(incomingSeconds, outcomingSeconds);
+        return this;
+    }
+
+    /**
+     * Добавляет UDR-отчёт абонента, номер которого задан числом.
+     *
+     * @param msisdn           Номер абонента в кодировке {@link com.example.cdrservice.compact.CdrCodec}.
+     * @param incomingSeconds  Длительность входящих звонков (в секундах).
+     * @param outcomingSeconds Длительность исходящих звонков (в секундах).
+     * @return Этот же сериализатор.
+     */
+    public UdrJsonWriter writeUdr(long msisdn, long incomingSeconds, long outcomingSeconds) {
+        write(MSISDN_PREFIX);
+        writeDigits(msisdn, 1);
+        writeTotals(incomingSeconds, outcomingSeconds);
+        return this;
+    }
+
+    /**
+     * Добавляет перевод строки.
+     *
+     * @return Этот же сериализатор.
+     */
+    public UdrJsonWriter newLine() {
+        ensureCapacity(1);
+        buffer[size++] = '\n';
+        return this;
+    }
+
+    /**
+     * Дописывает содержимое другого сериализатора в конец буфера.
+     *
+     * @param other Сериализатор, содержимое которого копируется; сам он не изменяется.
+     * @return Этот же сериализатор.
+     */
+    public UdrJsonWriter append(UdrJsonWriter other) {
+        ensureCapacity(other.size);
+        System.arraycopy(other.buffer, 0, buffer, size, other.size);
+        size += other.size;
+        return this;
+    }
+
+    /**
+     * @return Количество байт в буфере.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Очищает буфер, сохраняя выделенную память.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * Записывает содержимое буфера в поток и очищает буфер.
+     *
+     * @param out Поток для записи.
+     * @throws IOException Если не удалось записать данные в поток.
+     */
+    public void flushTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, size, StandardCharsets.US_ASCII);
+    }
+
+    private void writeTotals(long incomingSeconds, long outcomingSeconds) {
+        write(INCOMING_PREFIX);
+        writeDuration(incomingSeconds);
+        write(OUTCOMING_PREFIX);
+        writeDuration(outcomingSeconds);
+        write(SUFFIX);
+    }
+
+    /**
+     * Записывает длительность в формате "HH:mm:ss"; часы не ограничены двумя цифрами.
+     */
+    private void writeDuration(long totalSeconds) {
+        writeDigits(totalSeconds / 3600, 2);
+        ensureCapacity(6);
+        buffer[size++] = ':';
+        writeTwoDigits((int) (totalSeconds / 60 % 60));
+        buffer[size++] = ':';
+        writeTwoDigits((int) (totalSeconds % 60));
+    }
+
+    private void writeTwoDigits(int value) {
+        buffer[size++] = (byte) ('0' + value / 10);
+        buffer[size++] = (byte) ('0' + value % 10);
+    }
+
+    /**
+     * Записывает неотрицательное число, дополняя его нулями слева до {@code minDigits} цифр.
+     */
+    private void writeDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        ensureCapacity(digits);
+        for (int i = size + digits - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size += digits;
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
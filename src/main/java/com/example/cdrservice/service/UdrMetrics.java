@@ -0,0 +1,121 @@
+package com.example.cdrservice.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Метрики этапов формирования отчётов UDR и CDR.
+ * <p>
+ * Все метрики помечены тегом {@code report} (вид отчёта: {@link #UDR}, {@link #ALL}, {@link #ALL_STREAM},
+ * {@link #CDR_CSV}) и тегом {@code stage} (источник данных или этап: чтение колоночного хранилища, агрегатов,
+ * запрос к таблице CDR, сериализация, запись CSV). Гистограммы перцентилей включаются свойствами
+ * {@code management.metrics.distribution.percentiles-histogram.*}.
+ */
+@Component
+public class UdrMetrics {
+
+    /**
+     * Время этапа формирования отчёта.
+     */
+    public static final String STAGE_TIMER = "cdr.report.stage";
+
+    /**
+     * Количество строк, прочитанных этапом за один отчёт.
+     */
+    public static final String RECORDS_SCANNED = "cdr.report.records.scanned";
+
+    /**
+     * Размер готового отчёта в байтах.
+     */
+    public static final String REPORT_SIZE = "cdr.report.size";
+
+    public static final String UDR = "udr";
+    public static final String ALL = "all";
+    public static final String ALL_STREAM = "all-stream";
+    public static final String CDR_CSV = "cdr-csv";
+
+    public static final String COLUMNAR = "columnar";
+    public static final String ROLLUP = "rollup";
+    public static final String QUERY = "query";
+    public static final String FORMAT = "format";
+    public static final String CSV = "csv";
+
+    private final MeterRegistry registry;
+
+    public UdrMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Выполняет этап и записывает его время.
+     *
+     * @param report Вид отчёта.
+     * @param stage  Этап.
+     * @param action Действие этапа.
+     * @return Результат действия.
+     */
+    public <T> T time(String report, String stage, Supplier<T> action) {
+        return timer(report, stage).record(action);
+    }
+
+    /**
+     * Начинает замер этапа, который может завершиться проверяемым исключением.
+     *
+     * @return Замер, завершаемый {@link #stop}.
+     */
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Завершает замер этапа.
+     *
+     * @param sample Замер, начатый {@link #start()}.
+     * @param report Вид отчёта.
+     * @param stage  Этап.
+     */
+    public void stop(Timer.Sample sample, String report, String stage) {
+        sample.stop(timer(report, stage));
+    }
+
+    /**
+     * Записывает количество строк, прочитанных этапом.
+     *
+     * @param report Вид отчёта.
+     * @param stage  Этап, прочитавший строки.
+     * @param rows   Количество строк.
+     */
+    public void recordScanned(String report, String stage, long rows) {
+        DistributionSummary.builder(RECORDS_SCANNED)
+                .description("Rows read to build one report")
+                .tags("report", report, "stage", stage)
+                .register(registry)
+                .record(rows);
+    }
+
+    /**
+     * Записывает размер готового отчёта.
+     *
+     * @param report Вид отчёта.
+     * @param bytes  Размер в байтах.
+     */
+    public void recordSize(String report, long bytes) {
+        DistributionSummary.builder(REPORT_SIZE)
+                .description("Size of one generated report")
+                .baseUnit("bytes")
+                .tag("report", report)
+                .register(registry)
+                .record(bytes);
+    }
+
+    private Timer timer(String report, String stage) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Time spent in one stage of report generation")
+                .tags("report", report, "stage", stage)
+                .register(registry);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.UdrCacheStats;
+import com.example.cdrservice.entity.CdrRecord;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Кэш UDR-отчётов по отдельным абонентам.
+ * <p>
+ * Ключ — нормализованный MSISDN и месяц ({@code null} означает весь период). Размер кэша и время жизни
+ * записей ограничены. При сохранении CDR-записей сбрасываются только отчёты участников звонков
+ * за месяц начала звонка и за весь период, поэтому отчёты за закрытые месяцы остаются в кэше.
+ */
+@Component
+public class UdrReportCache {
+
+    private final Cache<Key, String> cache;
+
+    public UdrReportCache(@Value("${cdr.udr-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${cdr.udr-cache.ttl:PT1H}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Возвращает отчёт из кэша или формирует и запоминает его.
+     *
+     * @param msisdn Нормализованный номер абонента.
+     * @param month  Месяц в формате "YYYY-MM" или {@code null} для всего периода.
+     * @param loader Формирование отчёта при промахе.
+     * @return UDR-отчёт.
+     */
+    public String get(String msisdn, String month, Supplier<String> loader) {
+        return cache.get(new Key(msisdn, month), key -> loader.get());
+    }
+
+    /**
+     * Сбрасывает отчёты, затронутые сохранёнными записями.
+     * <p>
+     * Выполняется после фиксации записей и обновления остальных производных данных, чтобы повторно
+     * сформированный отчёт уже учитывал новые записи.
+     *
+     * @param event Событие о сохранении записей.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onCdrRecordsSaved(CdrRecordsSavedEvent event) {
+        Set<Key> keys = new HashSet<>();
+        for (CdrRecord record : event.records()) {
+            String month = UdrRollupService.monthOf(record.getStartTime());
+            addKeys(keys, record.getCallerNumber(), month);
+            addKeys(keys, record.getReceiverNumber(), month);
+        }
+        cache.invalidateAll(keys);
+    }
+
+    /**
+     * Полностью очищает кэш, например после удаления CDR-записей.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return Статистика попаданий и промахов кэша.
+     */
+    public UdrCacheStats stats() {
+        return UdrCacheStats.from(cache.stats(), cache.estimatedSize());
+    }
+
+    private static void addKeys(Set<Key> keys, String msisdn, String month) {
+        if (msisdn != null) {
+            keys.add(new Key(msisdn, month));
+            keys.add(new Key(msisdn, null));
+        }
+    }
+
+    private record Key(String msisdn, String month) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.dto.CdrPartitionInfo;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.entity.UdrMonthlyRollup;
+import com.example.cdrservice.entity.UdrMonthlyRollupId;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import com.example.cdrservice.repository.PackedCdrReader;
+import com.example.cdrservice.repository.UdrMonthlyRollupRepository;
+import com.example.cdrservice.repository.UdrRollupBatchWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Сервис сопровождения помесячных агрегатов UDR.
+ * <p>
+ * Агрегаты обновляются инкрементально при сохранении CDR-записей, поэтому UDR-отчёты
+ * читают одну строку на абонента и месяц вместо пересчёта по исходным записям. Обновление выполняется
+ * в транзакции, в которой сохранены записи, поэтому записи и агрегаты фиксируются или откатываются вместе.
+ * Агрегаты существуют только для месяцев, записи которых хранятся в таблице CDR: при удалении партиции
+ * удаляются и агрегаты её месяца. Поэтому для восстановления согласованности достаточно полного пересчёта
+ * по таблице CDR.
+ */
+@Service
+public class UdrRollupService {
+
+    private final UdrMonthlyRollupRepository rollupRepository;
+    private final UdrRollupBatchWriter rollupBatchWriter;
+    private final CdrRecordRepository cdrRecordRepository;
+    private final PackedCdrReader packedCdrReader;
+    private final EntityManager entityManager;
+
+    public UdrRollupService(UdrMonthlyRollupRepository rollupRepository,
+                            UdrRollupBatchWriter rollupBatchWriter,
+                            CdrRecordRepository cdrRecordRepository,
+                            PackedCdrReader packedCdrReader,
+                            EntityManager entityManager) {
+        this.rollupRepository = rollupRepository;
+        this.rollupBatchWriter = rollupBatchWriter;
+        this.cdrRecordRepository = cdrRecordRepository;
+        this.packedCdrReader = packedCdrReader;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Обновляет помесячные агрегаты при сохранении партии CDR-записей.
+     * <p>
+     * Событие публикуется внутри транзакции, в которой вставлена партия, и обработчик присоединяется к ней.
+     *
+     * @param event Событие о сохранении записей.
+     */
+    @EventListener
+    @Order(0)
+    @Transactional
+    public void onCdrRecordsSaved(CdrRecordsSavedEvent event) {
+        applyRecords(event.records());
+    }
+
+    /**
+     * Учитывает сохранённые CDR-записи в помесячных агрегатах.
+     * <p>
+     * Приросты длительностей сначала суммируются в памяти по месяцам, затем прибавляются к агрегатам
+     * атомарными операторами {@code MERGE} ({@link UdrRollupBatchWriter}): параллельные партии не теряют
+     * приросты друг друга и не создают агрегат дважды.
+     *
+     * @param records Сохранённые CDR-записи.
+     */
+    @Transactional
+    public void applyRecords(Collection<CdrRecord> records) {
+        // Месяцы обрабатываются по порядку, чтобы параллельные транзакции блокировали строки в одном порядке
+        records.stream()
+                .collect(Collectors.groupingBy(record -> monthOf(record.getStartTime()), TreeMap::new, Collectors.toList()))
+                .forEach((month, monthRecords) -> {
+                    MsisdnTotals totals = UdrAggregator.aggregate(monthRecords);
+                    if (!totals.isEmpty()) {
+                        rollupBatchWriter.add(month, totals);
+                    }
+                });
+    }
+
+    /**
+     * Полностью пересчитывает помесячные агрегаты по исходным CDR-записям.
+     * <p>
+     * Записи обрабатываются по одной помесячной партиции и читаются через JDBC в компактном представлении;
+     * после каждого месяца контекст персистентности очищается от созданных агрегатов.
+     *
+     * @return Количество сохранённых агрегатов.
+     */
+    @Transactional
+    public int rebuild() {
+        rollupRepository.deleteAllInBatch();
+
+        int saved = 0;
+        for (CdrPartitionInfo partition : cdrRecordRepository.findPartitions()) {
+            String month = partition.month();
+
+            // Записи месяца читаются из его партиции в компактном представлении, без создания сущностей
+            UdrAggregator aggregator = new UdrAggregator();
+            packedCdrReader.forEachInMonth(month, aggregator);
+
+            MsisdnTotals.Cursor cursor = aggregator.getTotals().cursor();
+            while (cursor.next()) {
+                UdrMonthlyRollup rollup = new UdrMonthlyRollup(
+                        new UdrMonthlyRollupId(CdrCodec.decodeMsisdn(cursor.msisdn()), month));
+                rollup.add(cursor.incomingSeconds(), cursor.outcomingSeconds());
+                entityManager.persist(rollup);
+            }
+            saved += aggregator.getTotals().size();
+
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return saved;
+    }
+
+    /**
+     * @return true, если сохранён хотя бы один помесячный агрегат.
+     */
+    public boolean hasRollups() {
+        return rollupRepository.count() > 0;
+    }
+
+    /**
+     * Удаляет агрегаты указанного месяца.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return Количество удалённых агрегатов.
+     */
+    @Transactional
+    public int deleteMonth(String month) {
+        return rollupRepository.deleteByMonth(month);
+    }
+
+    /**
+     * Удаляет все помесячные агрегаты.
+     */
+    @Transactional
+    public void clear() {
+        rollupRepository.deleteAllInBatch();
+    }
+
+    /**
+     * Возвращает месяц звонка в формате "YYYY-MM", используемый в ключе агрегата.
+     *
+     * @param startTime Время начала звонка.
+     * @return Месяц в формате "YYYY-MM".
+     */
+    static String monthOf(LocalDateTime startTime) {
+        return CdrRecord.billingMonthOf(startTime);
+    }
+}
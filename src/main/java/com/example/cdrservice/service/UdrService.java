@@ -1,22 +1,32 @@
 package com.example.cdrservice.service;
 
-import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.dto.UdrTotals;
+import com.example.cdrservice.entity.UdrMonthlyRollup;
+import com.example.cdrservice.entity.UdrMonthlyRollupId;
 import com.example.cdrservice.repository.CdrRecordRepository;
+import com.example.cdrservice.repository.UdrMonthlyRollupRepository;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 /**
@@ -27,20 +37,52 @@ import java.util.stream.Stream;
  *   <li>Консолидированных отчётов для всех абонентов за указанный период (UDR).</li>
  *   <li>CDR-отчётов в формате CSV.</li>
  * </ul>
+ * Время этапов, количество прочитанных строк и размеры отчётов записываются в {@link UdrMetrics}.
  */
 @Service
 public class UdrService {
 
+    /**
+     * Размер буфера, после которого отчёты передаются в поток ответа.
+     */
+    private static final int FLUSH_THRESHOLD_BYTES = 8192;
+
+    /**
+     * Количество абонентов, начиная с которого отчёты за месяц сериализуются параллельно.
+     */
+    static final int PARALLEL_THRESHOLD = 4096;
+
     private final CdrRecordRepository cdrRecordRepository;
+    private final UdrMonthlyRollupRepository rollupRepository;
+    private final ColumnarCdrStore columnarCdrStore;
+    private final UdrReportCache udrReportCache;
+    private final MsisdnRegistry msisdnRegistry;
+    private final BillingPeriodTracker billingPeriodTracker;
+    private final UdrMetrics udrMetrics;
+    private final CdrCsvWriter cdrCsvWriter = new CdrCsvWriter();
 
-    public UdrService(CdrRecordRepository cdrRecordRepository) {
+    public UdrService(CdrRecordRepository cdrRecordRepository,
+                      UdrMonthlyRollupRepository rollupRepository,
+                      ColumnarCdrStore columnarCdrStore,
+                      UdrReportCache udrReportCache,
+                      MsisdnRegistry msisdnRegistry,
+                      BillingPeriodTracker billingPeriodTracker,
+                      UdrMetrics udrMetrics) {
         this.cdrRecordRepository = cdrRecordRepository;
+        this.rollupRepository = rollupRepository;
+        this.columnarCdrStore = columnarCdrStore;
+        this.udrReportCache = udrReportCache;
+        this.msisdnRegistry = msisdnRegistry;
+        this.billingPeriodTracker = billingPeriodTracker;
+        this.udrMetrics = udrMetrics;
     }
 
     /**
      * Генерирует UDR для указанного абонента.
      * <p>
      * Отчёт включает информацию о входящих и исходящих звонках за указанный месяц или весь доступный период.
+     * Длительности берутся из колоночного хранилища, если оно загружено, иначе из помесячных агрегатов;
+     * если агрегатов нет, они суммируются запросом к таблице CDR. Готовые отчёты кэшируются ({@link UdrReportCache}).
      *
      * @param msisdn Номер абонента (MSISDN).
      * @param month  Месяц в формате "YYYY-MM" (опционально). Если не указан, используется весь период.
@@ -49,13 +91,53 @@ public class UdrService {
      */
     public String generateUdrReport(String msisdn, String month) {
         // Нормализация номера
-        msisdn = normalizeMsisdn(msisdn);
+        String normalized = normalizeMsisdn(msisdn);
+
+        // Отчёт формируется только при промахе кэша
+        return udrReportCache.get(normalized, month, () -> buildUdrReport(normalized, month));
+    }
 
-        // Проверяем, существует ли указанный номер в базе данных
-        if (cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber(msisdn)) {
+    private String buildUdrReport(String msisdn, String month) {
+        // Проверяем по реестру номеров, может ли номер быть в базе данных
+        if (!msisdnRegistry.mightContain(msisdn)) {
             return "No records found for the specified MSISDN.";
         }
 
+        // Колоночное хранилище отвечает одним проходом по колонкам в памяти; номера, не представимые числом,
+        // в нём и в агрегатах не учитываются, поэтому по ним длительности суммируются запросом к таблице CDR
+        boolean encodable = CdrCodec.isEncodable(msisdn);
+        if (encodable && columnarCdrStore.isReady()) {
+            long key = CdrCodec.encodeMsisdn(msisdn);
+            MsisdnTotals totals = udrMetrics.time(UdrMetrics.UDR, UdrMetrics.COLUMNAR, () -> month != null
+                    ? columnarCdrStore.totalsFor(key, monthStartEpochSecond(month), monthEndEpochSecond(month))
+                    : columnarCdrStore.totalsFor(key, Long.MIN_VALUE, Long.MAX_VALUE));
+            if (!totals.contains(key)) {
+                return "No records found for the specified MSISDN.";
+            }
+            return formatUdrReport(
+                    msisdn,
+                    totals.incomingSeconds(key),
+                    totals.outcomingSeconds(key)
+            );
+        }
+
+        // Отвечаем из помесячных агрегатов: одна строка на месяц вместо всех звонков абонента
+        if (encodable) {
+            List<UdrMonthlyRollup> rollups = udrMetrics.time(UdrMetrics.UDR, UdrMetrics.ROLLUP, () -> month != null
+                    ? rollupRepository.findById(new UdrMonthlyRollupId(msisdn, month)).map(List::of).orElse(List.of())
+                    : rollupRepository.findByIdMsisdn(msisdn));
+            udrMetrics.recordScanned(UdrMetrics.UDR, UdrMetrics.ROLLUP, rollups.size());
+            if (!rollups.isEmpty()) {
+                long incomingSeconds = 0;
+                long outcomingSeconds = 0;
+                for (UdrMonthlyRollup rollup : rollups) {
+                    incomingSeconds += rollup.getIncomingSeconds();
+                    outcomingSeconds += rollup.getOutcomingSeconds();
+                }
+                return formatUdrReport(msisdn, incomingSeconds, outcomingSeconds);
+            }
+        }
+
         LocalDateTime start;
         LocalDateTime end;
 
@@ -64,22 +146,23 @@ public class UdrService {
             start = LocalDateTime.parse(month + "-01T00:00:00");
             end = start.plusMonths(1).minusSeconds(1);
         } else {
-            // Берем весь тарифицируемый период
-            start = cdrRecordRepository.findEarliestStartTime();
-            end = cdrRecordRepository.findLatestEndTime();
+            // Берем весь тарифицируемый период из отслеживаемых границ, без сканирования таблицы
+            start = billingPeriodTracker.getEarliestStartTime();
+            end = billingPeriodTracker.getLatestEndTime();
         }
 
-        List<CdrRecord> records = cdrRecordRepository.findRecordsForMsisdnInPeriod(msisdn, start, end);
-        if (records.isEmpty()) {
+        // Длительности суммируются в базе данных: передаётся одна строка вместо всех звонков абонента
+        Optional<UdrTotals> totals = udrMetrics.time(UdrMetrics.UDR, UdrMetrics.QUERY,
+                () -> cdrRecordRepository.sumDurationsForMsisdnInPeriod(msisdn, start, end));
+        udrMetrics.recordScanned(UdrMetrics.UDR, UdrMetrics.QUERY, totals.isPresent() ? 1 : 0);
+        if (totals.isEmpty()) {
             return "No records found for the specified MSISDN.";
         }
 
-        Map<String, Duration> durations = calculateDurations(records, msisdn);
-
         return formatUdrReport(
                 msisdn,
-                durations.get("incoming"),
-                durations.get("outcoming")
+                totals.get().incomingSeconds(),
+                totals.get().outcomingSeconds()
         );
     }
 
@@ -87,43 +170,242 @@ public class UdrService {
      * Генерирует консолидированные отчёты для всех абонентов за указанный месяц.
      * <p>
      * Для каждого абонента, участвовавшего в звонках за указанный период, создается UDR.
+     * Отчёты строятся по колоночному хранилищу, если оно загружено, иначе по помесячным агрегатам;
+     * абоненты с номерами, не представимыми числом, добавляются к ним запросом (см. {@link #nonEncodableTotals}).
+     * Если агрегатов за месяц нет, длительности
+     * суммируются запросом с группировкой по абоненту: из базы данных передаётся по одной строке на абонента.
+     * Отчёты упорядочены по MSISDN; при большом числе абонентов они сериализуются параллельно.
      *
      * @param month Месяц в формате "YYYY-MM".
      * @return Строка с JSON-объектами, разделенными символом новой строки (\n).
      *         Если записи отсутствуют, возвращается сообщение "No records found for the specified period."
      */
     public String generateAllUdrReports(String month) {
-        // Преобразуем месяц в диапазон дат
-        LocalDateTime startOfMonth = LocalDateTime.parse(month + "-01T00:00:00");
-        LocalDateTime endOfMonth = startOfMonth.plusMonths(1).minusSeconds(1);
+        if (columnarCdrStore.isReady()) {
+            MsisdnTotals totals = udrMetrics.time(UdrMetrics.ALL, UdrMetrics.COLUMNAR,
+                    () -> columnarCdrStore.aggregate(monthStartEpochSecond(month), monthEndEpochSecond(month)));
+            List<UdrTotals> nonEncodable = nonEncodableTotals(UdrMetrics.ALL, month);
+            if (totals.isEmpty() && nonEncodable.isEmpty()) {
+                return "No records found for the specified period.";
+            }
+            if (nonEncodable.isEmpty()) {
+                return recordAllReport(udrMetrics.time(UdrMetrics.ALL, UdrMetrics.FORMAT, () -> formatAll(totals)));
+            }
+            return recordAllReport(udrMetrics.time(UdrMetrics.ALL, UdrMetrics.FORMAT,
+                    () -> formatAll(Stream.concat(toList(totals).stream(), nonEncodable.stream()).toList())));
+        }
 
-        // Ищем все записи за указанный месяц
-        List<CdrRecord> records = cdrRecordRepository.findByStartTimeBetween(startOfMonth, endOfMonth);
+        // Помесячные агрегаты содержат ровно одну строку на каждого участника звонков за месяц
+        List<UdrMonthlyRollup> rollups = udrMetrics.time(UdrMetrics.ALL, UdrMetrics.ROLLUP,
+                () -> rollupRepository.findByIdMonth(month));
+        udrMetrics.recordScanned(UdrMetrics.ALL, UdrMetrics.ROLLUP, rollups.size());
+        if (!rollups.isEmpty()) {
+            List<UdrTotals> nonEncodable = nonEncodableTotals(UdrMetrics.ALL, month);
+            return recordAllReport(udrMetrics.time(UdrMetrics.ALL, UdrMetrics.FORMAT, () -> formatAll(Stream.concat(
+                    rollups.stream().map(rollup -> new UdrTotals(rollup.getId().getMsisdn(),
+                            rollup.getIncomingSeconds(), rollup.getOutcomingSeconds())),
+                    nonEncodable.stream()).toList())));
+        }
 
-        if (records.isEmpty()) {
+        // Суммируем длительности всех абонентов по партиции месяца в базе данных
+        List<UdrTotals> totals = udrMetrics.time(UdrMetrics.ALL, UdrMetrics.QUERY,
+                () -> cdrRecordRepository.sumDurationsByBillingMonth(month));
+        udrMetrics.recordScanned(UdrMetrics.ALL, UdrMetrics.QUERY, totals.size());
+        if (totals.isEmpty()) {
             return "No records found for the specified period.";
         }
+        return recordAllReport(udrMetrics.time(UdrMetrics.ALL, UdrMetrics.FORMAT, () -> formatAll(totals)));
+    }
 
-        // Собираем уникальные номера абонентов
-        Set<String> allMsisdns = records.parallelStream()
-                .flatMap(record -> Stream.of(record.getCallerNumber(), record.getReceiverNumber()))
-                .collect(Collectors.toSet());
+    /**
+     * Суммирует длительности абонентов с номерами, не представимыми числом ({@link CdrCodec#isEncodable}).
+     * <p>
+     * Колоночное хранилище и помесячные агрегаты такие номера не учитывают, поэтому их итоги за месяц
+     * запрашиваются из партиции отдельно. Запрос выполняется, только если такие номера встречались.
+     *
+     * @param report Вид отчёта для метрик.
+     * @param month  Месяц в формате "YYYY-MM".
+     * @return Итоги абонентов в порядке номера; пустой список, если таких абонентов нет.
+     */
+    private List<UdrTotals> nonEncodableTotals(String report, String month) {
+        if (!msisdnRegistry.hasNonEncodableMsisdns()) {
+            return List.of();
+        }
+        List<UdrTotals> totals = udrMetrics.time(report, UdrMetrics.QUERY,
+                () -> cdrRecordRepository.sumNonEncodableDurationsByBillingMonth(month));
+        udrMetrics.recordScanned(report, UdrMetrics.QUERY, totals.size());
+        return totals;
+    }
 
-        StringBuilder result = new StringBuilder();
-        allMsisdns.parallelStream().forEach(msisdn -> {
-            // Рассчитываем длительность звонков для каждого абонента
-            Map<String, Duration> durations = calculateDurations(records, msisdn);
-            String report = formatUdrReport(
-                    msisdn,
-                    durations.get("incoming"),
-                    durations.get("outcoming")
-            );
-            synchronized (result) {
-                result.append(report).append("\n");
+    private static List<UdrTotals> toList(MsisdnTotals totals) {
+        List<UdrTotals> list = new ArrayList<>(totals.size());
+        MsisdnTotals.Cursor cursor = totals.cursor();
+        while (cursor.next()) {
+            list.add(new UdrTotals(CdrCodec.decodeMsisdn(cursor.msisdn()),
+                    cursor.incomingSeconds(), cursor.outcomingSeconds()));
+        }
+        return list;
+    }
+
+    private String recordAllReport(String reports) {
+        // Отчёты состоят из ASCII-символов, поэтому длина строки равна размеру в байтах
+        udrMetrics.recordSize(UdrMetrics.ALL, reports.length());
+        return reports;
+    }
+
+    /**
+     * Сериализует итоги абонентов в порядке возрастания MSISDN.
+     * <p>
+     * Для большого числа абонентов номера распределяются между потоками: каждая задача пишет
+     * отчёты своего диапазона в собственный {@link UdrJsonWriter}, буферы склеиваются по порядку.
+     */
+    static String formatAll(MsisdnTotals totals) {
+        LongStream msisdns = Arrays.stream(totals.sortedMsisdns());
+        if (totals.size() >= PARALLEL_THRESHOLD) {
+            msisdns = msisdns.parallel();
+        }
+        return msisdns.collect(
+                UdrJsonWriter::new,
+                (writer, msisdn) -> writer.writeUdr(msisdn, totals.incomingSeconds(msisdn), totals.outcomingSeconds(msisdn))
+                        .newLine(),
+                UdrJsonWriter::append).toString();
+    }
+
+    /**
+     * Сериализует итоги абонентов в порядке MSISDN независимо от порядка строк источника.
+     */
+    static String formatAll(List<UdrTotals> totals) {
+        Stream<UdrTotals> sorted = totals.stream().sorted(Comparator.comparing(UdrTotals::msisdn));
+        if (totals.size() >= PARALLEL_THRESHOLD) {
+            sorted = sorted.parallel();
+        }
+        return sorted.collect(UdrJsonWriter.toReports());
+    }
+
+    private static long monthStartEpochSecond(String month) {
+        return CdrCodec.toEpochSecond(LocalDateTime.parse(month + "-01T00:00:00"));
+    }
+
+    private static long monthEndEpochSecond(String month) {
+        return CdrCodec.toEpochSecond(LocalDateTime.parse(month + "-01T00:00:00").plusMonths(1).minusSeconds(1));
+    }
+
+    /**
+     * Проверяет, есть ли данные для консолидированного отчёта за указанный месяц.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return true, если за месяц есть агрегаты или CDR-записи.
+     */
+    public boolean hasRecordsForMonth(String month) {
+        if (rollupRepository.existsByIdMonth(month)) {
+            return true;
+        }
+        return cdrRecordRepository.existsByBillingMonth(month);
+    }
+
+    /**
+     * Потоково записывает консолидированные отчёты за указанный месяц в формате NDJSON.
+     * <p>
+     * Каждый отчёт записывается в поток сразу после формирования, поэтому клиент начинает получать данные
+     * до окончания обработки, а объём памяти не зависит от количества абонентов. Агрегаты читаются
+     * курсором в порядке MSISDN, и между ними вставляются итоги абонентов с номерами, не представимыми числом.
+     * Если агрегатов за месяц нет, длительности суммируются запросом с группировкой по абоненту и также
+     * читаются курсором.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @param out   Поток, в который записываются отчёты.
+     * @throws IOException Если не удалось записать данные в поток.
+     */
+    @Transactional(readOnly = true)
+    public void writeAllUdrReports(String month, OutputStream out) throws IOException {
+        UdrJsonWriter writer = new UdrJsonWriter();
+        try (Stream<UdrTotals> rollups = rollupRepository.streamTotalsByMonth(month)) {
+            Iterator<UdrTotals> sorted = rollups.iterator();
+            if (sorted.hasNext()) {
+                List<UdrTotals> nonEncodable = nonEncodableTotals(UdrMetrics.ALL_STREAM, month);
+                writeTotals(mergeByMsisdn(sorted, nonEncodable), writer, out, UdrMetrics.ROLLUP);
+                return;
+            }
+        }
+
+        try (Stream<UdrTotals> totals = cdrRecordRepository.streamDurationsByBillingMonth(month)) {
+            writeTotals(totals.iterator(), writer, out, UdrMetrics.QUERY);
+        }
+    }
+
+    /**
+     * Объединяет два упорядоченных по MSISDN источника итогов в один, сохраняя порядок.
+     */
+    private static Iterator<UdrTotals> mergeByMsisdn(Iterator<UdrTotals> sorted, List<UdrTotals> other) {
+        if (other.isEmpty()) {
+            return sorted;
+        }
+        return new Iterator<>() {
+            private UdrTotals head = sorted.hasNext() ? sorted.next() : null;
+            private int otherIndex;
+
+            @Override
+            public boolean hasNext() {
+                return head != null || otherIndex < other.size();
             }
-        });
 
-        return result.toString();
+            @Override
+            public UdrTotals next() {
+                if (otherIndex < other.size()
+                        && (head == null || other.get(otherIndex).msisdn().compareTo(head.msisdn()) < 0)) {
+                    return other.get(otherIndex++);
+                }
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                UdrTotals result = head;
+                head = sorted.hasNext() ? sorted.next() : null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Записывает отчёты по итогам абонентов в поток.
+     * <p>
+     * Чтение курсора и сериализация чередуются, поэтому время записывается для этапа источника целиком.
+     *
+     * @return true, если был записан хотя бы один отчёт.
+     */
+    private boolean writeTotals(Iterator<UdrTotals> totals, UdrJsonWriter writer, OutputStream out,
+                                String stage) throws IOException {
+        if (!totals.hasNext()) {
+            return false;
+        }
+        Timer.Sample sample = udrMetrics.start();
+        long rows = 0;
+        long bytes = 0;
+        while (totals.hasNext()) {
+            UdrTotals subscriber = totals.next();
+            writer.writeUdr(subscriber.msisdn(), subscriber.incomingSeconds(), subscriber.outcomingSeconds()).newLine();
+            rows++;
+            bytes += flushIfFull(writer, out);
+        }
+        bytes += writer.size();
+        writer.flushTo(out);
+        udrMetrics.stop(sample, UdrMetrics.ALL_STREAM, stage);
+        udrMetrics.recordScanned(UdrMetrics.ALL_STREAM, stage, rows);
+        udrMetrics.recordSize(UdrMetrics.ALL_STREAM, bytes);
+        return true;
+    }
+
+    /**
+     * Передаёт накопленные отчёты в поток, когда буфер сериализатора заполнен.
+     *
+     * @return Количество переданных байт.
+     */
+    private int flushIfFull(UdrJsonWriter writer, OutputStream out) throws IOException {
+        int size = writer.size();
+        if (size >= FLUSH_THRESHOLD_BYTES) {
+            writer.flushTo(out);
+            return size;
+        }
+        return 0;
     }
 
     /**
@@ -137,96 +419,83 @@ public class UdrService {
      * @return Уникальный идентификатор отчёта (UUID).
      * @throws RuntimeException Если записи отсутствуют или возникла ошибка при записи файла.
      */
+    @Transactional(readOnly = true)
     public String generateCdrReport(String msisdn, String startDate, String endDate) {
+        String reportId = UUID.randomUUID().toString();
+        writeCdrReport(msisdn, LocalDateTime.parse(startDate), LocalDateTime.parse(endDate), reportId);
+        return reportId;
+    }
+
+    /**
+     * Записывает CDR-отчёт в формате CSV с заданным идентификатором.
+     * <p>
+     * Используется как синхронной генерацией отчёта, так и асинхронными заданиями. Звонки читаются
+     * курсором без загрузки сущностей и сразу записываются в файл, поэтому потребление памяти
+     * не зависит от длины периода.
+     *
+     * @param msisdn   Номер абонента (MSISDN).
+     * @param start    Начало периода.
+     * @param end      Конец периода.
+     * @param reportId Уникальный идентификатор отчёта.
+     * @return Путь к созданному файлу.
+     * @throws RuntimeException Если записи отсутствуют или возникла ошибка при записи файла.
+     */
+    @Transactional(readOnly = true)
+    public Path writeCdrReport(String msisdn, LocalDateTime start, LocalDateTime end, String reportId) {
         // Нормализация номера
         msisdn = normalizeMsisdn(msisdn);
 
-        // Проверяем, существует ли указанный номер в базе данных
-        if (cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber(msisdn)) {
+        // Проверяем по реестру номеров, может ли номер быть в базе данных
+        if (!msisdnRegistry.mightContain(msisdn)) {
             throw new RuntimeException("No records found for the specified MSISDN.");
         }
 
-        LocalDateTime start = LocalDateTime.parse(startDate);
-        LocalDateTime end = LocalDateTime.parse(endDate);
-
-        List<CdrRecord> records = cdrRecordRepository.findRecordsForMsisdnInPeriod(msisdn, start, end);
-        if (records.isEmpty()) {
-            throw new RuntimeException("No records found for the specified period.");
-        }
-
-        String reportId = UUID.randomUUID().toString();
         String fileName = msisdn + "_" + reportId + ".csv";
         Path filePath = Paths.get("reports", fileName);
 
-        try (BufferedWriter writer = Files.newBufferedWriter(filePath)) {
-            for (CdrRecord record : records) {
-                writer.write(String.format("%s,%s,%s,%s,%s\n",
-                        record.getCallType(),
-                        record.getCallerNumber(),
-                        record.getReceiverNumber(),
-                        record.getStartTime(),
-                        record.getEndTime()));
+        Timer.Sample sample = udrMetrics.start();
+        try (Stream<CdrCall> stream = cdrRecordRepository.streamCallsForMsisdnInPeriod(msisdn, start, end)) {
+            Iterator<CdrCall> calls = stream.iterator();
+            if (!calls.hasNext()) {
+                throw new RuntimeException("No records found for the specified period.");
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate CDR report", e);
-        }
-
-        return reportId;
-    }
-
-    /**
-     * Рассчитывает общую длительность входящих и исходящих звонков для указанного абонента.
-     *
-     * @param records Список CDR-записей.
-     * @param msisdn  Номер абонента (MSISDN).
-     * @return Карта с длительностями звонков ("incoming" и "outcoming").
-     */
-    private Map<String, Duration> calculateDurations(List<CdrRecord> records, String msisdn) {
-        Map<String, Duration> durations = new HashMap<>();
-        durations.put("incoming", Duration.ZERO);
-        durations.put("outcoming", Duration.ZERO);
-
-        for (CdrRecord record : records) {
-            if ("01".equals(record.getCallType())) {
-                // Исходящий звонок
-                if (record.getCallerNumber().equals(msisdn)) {
-                    durations.put("outcoming", durations.get("outcoming").plus(Duration.between(record.getStartTime(), record.getEndTime())));
+            // Звонки читаются курсором во время записи, поэтому чтение и запись измеряются одним этапом
+            long[] rows = new long[1];
+            cdrCsvWriter.write(filePath, () -> new Iterator<CdrCall>() {
+                @Override
+                public boolean hasNext() {
+                    return calls.hasNext();
                 }
-            } else if ("02".equals(record.getCallType())) {
-                // Входящий звонок
-                if (record.getReceiverNumber().equals(msisdn)) {
-                    durations.put("incoming", durations.get("incoming").plus(Duration.between(record.getStartTime(), record.getEndTime())));
+
+                @Override
+                public CdrCall next() {
+                    rows[0]++;
+                    return calls.next();
                 }
-            }
+            });
+            udrMetrics.stop(sample, UdrMetrics.CDR_CSV, UdrMetrics.CSV);
+            udrMetrics.recordScanned(UdrMetrics.CDR_CSV, UdrMetrics.CSV, rows[0]);
+            udrMetrics.recordSize(UdrMetrics.CDR_CSV, Files.size(filePath));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to generate CDR report", e);
         }
 
-        return durations;
+        return filePath;
     }
 
     /**
      * Форматирует данные отчёта в JSON-строку.
      *
-     * @param msisdn            Номер абонента (MSISDN).
-     * @param incomingDuration  Длительность входящих звонков.
-     * @param outcomingDuration Длительность исходящих звонков.
+     * @param msisdn           Номер абонента (MSISDN).
+     * @param incomingSeconds  Длительность входящих звонков (в секундах).
+     * @param outcomingSeconds Длительность исходящих звонков (в секундах).
      * @return JSON-строка с данными отчёта.
      */
-    private String formatUdrReport(String msisdn, Duration incomingDuration, Duration outcomingDuration) {
-        return String.format("{\"msisdn\": \"%s\", \"incomingCall\": {\"totalTime\": \"%s\"}, \"outcomingCall\": {\"totalTime\": \"%s\"}}",
-                msisdn, formatDuration(incomingDuration), formatDuration(outcomingDuration));
-    }
-
-    /**
-     * Форматирует длительность в строку в формате "HH:mm:ss".
-     *
-     * @param duration Длительность.
-     * @return Строка в формате "HH:mm:ss".
-     */
-    private String formatDuration(Duration duration) {
-        long hours = duration.toHours();
-        long minutes = duration.toMinutes() % 60;
-        long seconds = duration.getSeconds() % 60;
-        return String.format("%02d:%02d:%02d", hours, minutes, seconds);
+    String formatUdrReport(String msisdn, long incomingSeconds, long outcomingSeconds) {
+        String report = udrMetrics.time(UdrMetrics.UDR, UdrMetrics.FORMAT,
+                () -> new UdrJsonWriter(128).writeUdr(msisdn, incomingSeconds, outcomingSeconds).toString());
+        udrMetrics.recordSize(UdrMetrics.UDR, report.length());
+        return report;
     }
 
     /**
@@ -235,7 +504,7 @@ public class UdrService {
      * @param msisdn Номер абонента (MSISDN).
      * @return Нормализованный номер.
      */
-    private String normalizeMsisdn(String msisdn) {
+    String normalizeMsisdn(String msisdn) {
         // Убираем лишние символы и приводим к стандартному формату
         return msisdn.replaceAll("[^0-9]", ""); // Оставляем только цифры
     }
@@ -0,0 +1,182 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.repository.ReactiveCdrCallRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveUdrServiceTest {
+
+    @Mock
+    private ReactiveCdrCallRepository callRepository;
+
+    @Mock
+    private MsisdnRegistry msisdnRegistry;
+
+    @Mock
+    private BillingPeriodTracker billingPeriodTracker;
+
+    @InjectMocks
+    private ReactiveUdrService reactiveUdrService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(msisdnRegistry.mightContain(anyString())).thenReturn(true);
+    }
+
+    /**
+     * Проверяет, что длительности звонков абонента за месяц суммируются из потока строк.
+     */
+    @Test
+    void testGenerateUdrReport_AggregatesStreamedCalls() {
+        when(callRepository.findCallsForMsisdnInPeriod(eq("79991112233"), any(), any())).thenReturn(Flux.just(
+                call("01", "79991112233", "79992221122", "2025-02-01T10:00:00", "2025-02-01T10:05:00"),
+                call("02", "79992221122", "79991112233", "2025-02-02T12:00:00", "2025-02-02T12:00:30")));
+
+        StepVerifier.create(reactiveUdrService.generateUdrReport("79991112233", "2025-02"))
+                .expectNext("{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:00:30\"}, "
+                        + "\"outcomingCall\": {\"totalTime\": \"00:05:00\"}}")
+                .verifyComplete();
+        verify(callRepository).findCallsForMsisdnInPeriod("79991112233",
+                LocalDateTime.parse("2025-02-01T00:00:00"), LocalDateTime.parse("2025-02-28T23:59:59"));
+    }
+
+    /**
+     * Проверяет, что для номера с ведущим нулём длительности суммируются по строковому значению номера.
+     */
+    @Test
+    void testGenerateUdrReport_NonEncodableMsisdn() {
+        when(callRepository.findCallsForMsisdnInPeriod(eq("079991112233"), any(), any())).thenReturn(Flux.just(
+                call("01", "079991112233", "79992221122", "2025-02-01T10:00:00", "2025-02-01T10:05:00"),
+                call("02", "79992221122", "079991112233", "2025-02-02T12:00:00", "2025-02-02T12:00:30")));
+
+        StepVerifier.create(reactiveUdrService.generateUdrReport("079991112233", "2025-02"))
+                .expectNext("{\"msisdn\": \"079991112233\", \"incomingCall\": {\"totalTime\": \"00:00:30\"}, "
+                        + "\"outcomingCall\": {\"totalTime\": \"00:05:00\"}}")
+                .verifyComplete();
+    }
+
+    /**
+     * Проверяет, что для номера, отсутствующего в реестре, база данных не запрашивается.
+     */
+    @Test
+    void testGenerateUdrReport_UnknownMsisdn() {
+        when(msisdnRegistry.mightContain("79990000000")).thenReturn(false);
+
+        StepVerifier.create(reactiveUdrService.generateUdrReport("79990000000", "2025-02"))
+                .expectNext("No records found for the specified MSISDN.")
+                .verifyComplete();
+        verify(callRepository, never()).findCallsForMsisdnInPeriod(anyString(), any(), any());
+    }
+
+    /**
+     * Проверяет, что NDJSON выдаётся по одной строке на абонента в порядке MSISDN и по запросу подписчика.
+     */
+    @Test
+    void testToNdjson_EmitsSortedLinesOnDemand() {
+        when(callRepository.findCallsByBillingMonth("2025-02")).thenReturn(Flux.just(
+                call("01", "79992221122", "79991112233", "2025-02-01T10:00:00", "2025-02-01T10:01:00")));
+
+        Flux<String> lines = reactiveUdrService.aggregateMonth("2025-02")
+                .flatMapMany(reactiveUdrService::toNdjson)
+                .map(ReactiveUdrServiceTest::asString);
+
+        StepVerifier.create(lines, 1)
+                .expectNext("{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, "
+                        + "\"outcomingCall\": {\"totalTime\": \"00:00:00\"}}\n")
+                .thenRequest(1)
+                .expectNext("{\"msisdn\": \"79992221122\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, "
+                        + "\"outcomingCall\": {\"totalTime\": \"00:01:00\"}}\n")
+                .verifyComplete();
+    }
+
+    /**
+     * Проверяет сообщение об отсутствии записей за месяц.
+     */
+    @Test
+    void testGenerateAllUdrReports_NoRecords() {
+        when(callRepository.findCallsByBillingMonth("2025-03")).thenReturn(Flux.empty());
+
+        StepVerifier.create(reactiveUdrService.generateAllUdrReports("2025-03"))
+                .expectNext("No records found for the specified period.")
+                .verifyComplete();
+    }
+
+    /**
+     * Проверяет, что CDR-отчёт записывается в файл в формате {@link CdrCsvWriter}.
+     */
+    @Test
+    void testGenerateCdrReport_WritesFile() throws IOException {
+        when(callRepository.findCallsForMsisdnInPeriod(eq("79991112233"), any(), any())).thenReturn(Flux.just(
+                call("01", "79991112233", "79992221122", "2025-02-01T10:00:00", "2025-02-01T10:05:00"),
+                call("02", null, "79991112233", "2025-02-02T12:00:00", "2025-02-02T12:00:30")));
+
+        String reportId = reactiveUdrService.generateCdrReport("79991112233",
+                LocalDateTime.parse("2025-02-01T00:00:00"), LocalDateTime.parse("2025-02-28T23:59:59")).block();
+
+        Path filePath = Paths.get("reports", "79991112233_" + reportId + ".csv");
+        try {
+            assertThat(Files.readAllLines(filePath)).containsExactly(
+                    "01,79991112233,79992221122,2025-02-01T10:00,2025-02-01T10:05",
+                    "02,null,79991112233,2025-02-02T12:00,2025-02-02T12:00:30");
+        } finally {
+            Files.deleteIfExists(filePath);
+        }
+    }
+
+    /**
+     * Проверяет ошибку CDR-отчёта при отсутствии звонков за период: файл отчёта не создаётся.
+     */
+    @Test
+    void testGenerateCdrReport_NoRecords() throws IOException {
+        when(callRepository.findCallsForMsisdnInPeriod(eq("79993334455"), any(), any())).thenReturn(Flux.empty());
+
+        StepVerifier.create(reactiveUdrService.generateCdrReport("79993334455",
+                        LocalDateTime.parse("2025-02-01T00:00:00"), LocalDateTime.parse("2025-02-28T23:59:59")))
+                .expectErrorMessage("No records found for the specified period.")
+                .verify();
+        assertThat(reportFiles("79993334455_")).isEmpty();
+    }
+
+    private static List<Path> reportFiles(String prefix) throws IOException {
+        Path reports = Paths.get("reports");
+        if (!Files.isDirectory(reports)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(reports)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).toList();
+        }
+    }
+
+    private static CdrCall call(String callType, String caller, String receiver, String start, String end) {
+        return new CdrCall(callType, caller, receiver, LocalDateTime.parse(start), LocalDateTime.parse(end));
+    }
+
+    private static String asString(DataBuffer buffer) {
+        return buffer.toString(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.cdrservice.controller;
+
+import com.example.cdrservice.service.ReactiveUdrService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Реактивный контроллер отчётов UDR и CDR для профиля {@code reactive}.
+ * <p>
+ * Повторяет адреса, параметры и ответы {@link UdrController} для сравнения стеков под одинаковой нагрузкой.
+ * Асинхронные задания, агрегаты, кэш и партиции в этом профиле недоступны.
+ */
+@RestController
+@RequestMapping("/udr")
+@Profile("reactive")
+public class ReactiveUdrController {
+
+    private final ReactiveUdrService reactiveUdrService;
+
+    public ReactiveUdrController(ReactiveUdrService reactiveUdrService) {
+        this.reactiveUdrService = reactiveUdrService;
+    }
+
+    /**
+     * Получает UDR для указанного абонента.
+     *
+     * @param msisdn Номер абонента (MSISDN).
+     * @param month  Месяц в формате "YYYY-MM" (опционально). Если не указан, используется весь период.
+     * @return ResponseEntity с JSON-отчетом или сообщением об ошибке (HTTP 404, если записи отсутствуют).
+     */
+    @GetMapping("/{msisdn}")
+    public Mono<ResponseEntity<String>> getUdrReport(@PathVariable String msisdn,
+                                                     @RequestParam(required = false) String month) {
+        if (month != null) {
+            ResponseEntity<String> dateValidation = UdrController.validateMonthFormat(month);
+            if (dateValidation != null) {
+                return Mono.just(dateValidation);
+            }
+        }
+
+        return reactiveUdrService.generateUdrReport(msisdn, month)
+                .map(report -> report.contains("No records found")
+                        ? ResponseEntity.status(HttpStatus.NOT_FOUND).body(report)
+                        : ResponseEntity.ok(report));
+    }
+
+    /**
+     * Получает консолидированные отчёты для всех абонентов за указанный месяц.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return ResponseEntity с JSON-отчетами или сообщением об ошибке (HTTP 404, если записи отсутствуют).
+     */
+    @GetMapping("/all")
+    public Mono<ResponseEntity<String>> getAllUdrReports(@RequestParam String month) {
+        ResponseEntity<String> dateValidation = UdrController.validateMonthFormat(month);
+        if (dateValidation != null) {
+            return Mono.just(dateValidation);
+        }
+
+        return reactiveUdrService.generateAllUdrReports(month)
+                .map(reports -> reports.contains("No records found")
+                        ? ResponseEntity.status(HttpStatus.NOT_FOUND).body(reports)
+                        : ResponseEntity.ok(reports));
+    }
+
+    /**
+     * Потоково выдаёт консолидированные отчёты для всех абонентов за указанный месяц в формате NDJSON.
+     * <p>
+     * Строки формируются по мере того, как клиент успевает их принимать.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return ResponseEntity с потоком JSON-отчётов по одному на строку или сообщением об ошибке
+     *         (HTTP 404, если записи отсутствуют).
+     */
+    @GetMapping("/all/stream")
+    public Mono<ResponseEntity<?>> streamAllUdrReports(@RequestParam String month) {
+        ResponseEntity<String> dateValidation = UdrController.validateMonthFormat(month);
+        if (dateValidation != null) {
+            return Mono.just(dateValidation);
+        }
+
+        return reactiveUdrService.aggregateMonth(month)
+                .map(totals -> totals.isEmpty()
+                        ? ResponseEntity.status(HttpStatus.NOT_FOUND).body("No records found for the specified period.")
+                        : ResponseEntity.ok()
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .body(reactiveUdrService.toNdjson(totals)));
+    }
+
+    /**
+     * Генерирует CDR-отчёт в формате CSV для указанного абонента за указанный период.
+     *
+     * @param msisdn    Номер абонента (MSISDN).
+     * @param startDate Начальная дата и время периода в формате "YYYY-MM-DDTHH:mm:ss".
+     * @param endDate   Конечная дата и время периода в формате "YYYY-MM-DDTHH:mm:ss".
+     * @return ResponseEntity с уникальным идентификатором отчёта или сообщением об ошибке (HTTP 404, если записи отсутствуют).
+     */
+    @GetMapping("/cdr-report/{msisdn}")
+    public Mono<ResponseEntity<String>> generateCdrReport(@PathVariable String msisdn,
+                                                          @RequestParam String startDate,
+                                                          @RequestParam String endDate) {
+        ResponseEntity<String> dateValidation = UdrController.validateDateTimeRange(startDate, endDate);
+        if (dateValidation != null) {
+            return Mono.just(dateValidation);
+        }
+
+        return reactiveUdrService.generateCdrReport(msisdn, LocalDateTime.parse(startDate), LocalDateTime.parse(endDate))
+                .map(reportId -> ResponseEntity.ok("Report generated with ID: " + reportId))
+                .onErrorResume(RuntimeException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage())));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.dto.CdrCall;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+/**
+ * Реактивное чтение звонков из таблицы CDR_RECORD через R2DBC.
+ * <p>
+ * Подключение строится по {@code spring.datasource.*}, поэтому R2DBC и JPA работают с одной базой H2.
+ * Фабрика соединений не регистрируется как бин: иначе Spring Boot не создал бы {@code DataSource}
+ * для JPA, через который по-прежнему генерируются и загружаются записи.
+ * <p>
+ * Запросы совпадают с запросами {@link CdrRecordRepository}; строки передаются потоком {@link Flux}
+ * по мере запроса подписчиком.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveCdrCallRepository {
+
+    private static final String JDBC_H2_PREFIX = "jdbc:h2:";
+
+    private static final String CALLS_BY_BILLING_MONTH =
+            "SELECT call_type, caller_number, receiver_number, start_time, end_time " +
+            "FROM cdr_record WHERE billing_month = :month";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveCdrCallRepository(@Value("${spring.datasource.url}") String url,
+                                     @Value("${spring.datasource.username:sa}") String username,
+                                     @Value("${spring.datasource.password:}") String password) {
+        this(DatabaseClient.create(new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(url.startsWith(JDBC_H2_PREFIX) ? url.substring(JDBC_H2_PREFIX.length()) : url)
+                .username(username)
+                .password(password)
+                .build())));
+    }
+
+    ReactiveCdrCallRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Возвращает звонки абонента за период в хронологическом порядке.
+     *
+     * @param msisdn Номер абонента (MSISDN).
+     * @param start  Начало периода.
+     * @param end    Конец периода.
+     * @return Звонки, в которых абонент был вызывающим или принимающим.
+     */
+    public Flux<CdrCall> findCallsForMsisdnInPeriod(String msisdn, LocalDateTime start, LocalDateTime end) {
+        return databaseClient.sql(CdrRecordRepository.CALLS_FOR_MSISDN_IN_PERIOD)
+                .bind("msisdn", msisdn)
+                .bind("start", start)
+                .bind("end", end)
+                .map(ReactiveCdrCallRepository::toCall)
+                .all();
+    }
+
+    /**
+     * Возвращает звонки помесячной партиции.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return Звонки, начавшиеся в указанном месяце.
+     */
+    public Flux<CdrCall> findCallsByBillingMonth(String month) {
+        return databaseClient.sql(CALLS_BY_BILLING_MONTH)
+                .bind("month", month)
+                .map(ReactiveCdrCallRepository::toCall)
+                .all();
+    }
+
+    private static CdrCall toCall(Readable row) {
+        return new CdrCall(
+                row.get(0, String.class),
+                row.get(1, String.class),
+                row.get(2, String.class),
+                row.get(3, LocalDateTime.class),
+                row.get(4, LocalDateTime.class));
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.repository.ReactiveCdrCallRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Реактивная реализация отчётов UDR и CDR поверх R2DBC для профиля {@code reactive}.
+ * <p>
+ * В отличие от {@link UdrService}, звонки не суммируются запросом и не берутся из агрегатов:
+ * строки CDR читаются потоком и суммируются {@link UdrAggregator} по мере поступления, а отчёты
+ * передаются подписчику с учётом его запроса (back-pressure). Это позволяет сравнить оба стека
+ * под одинаковой нагрузкой.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUdrService {
+
+    private static final DefaultDataBufferFactory BUFFER_FACTORY = DefaultDataBufferFactory.sharedInstance;
+
+    private final ReactiveCdrCallRepository callRepository;
+    private final MsisdnRegistry msisdnRegistry;
+    private final BillingPeriodTracker billingPeriodTracker;
+
+    public ReactiveUdrService(ReactiveCdrCallRepository callRepository,
+                              MsisdnRegistry msisdnRegistry,
+                              BillingPeriodTracker billingPeriodTracker) {
+        this.callRepository = callRepository;
+        this.msisdnRegistry = msisdnRegistry;
+        this.billingPeriodTracker = billingPeriodTracker;
+    }
+
+    /**
+     * Генерирует UDR для указанного абонента.
+     *
+     * @param msisdn Номер абонента (MSISDN).
+     * @param month  Месяц в формате "YYYY-MM" (опционально). Если не указан, используется весь период.
+     * @return JSON-строка отчёта или сообщение "No records found for the specified MSISDN."
+     */
+    public Mono<String> generateUdrReport(String msisdn, String month) {
+        String normalized = normalizeMsisdn(msisdn);
+        if (!msisdnRegistry.mightContain(normalized)) {
+            return Mono.just("No records found for the specified MSISDN.");
+        }
+
+        LocalDateTime start;
+        LocalDateTime end;
+        if (month != null) {
+            start = LocalDateTime.parse(month + "-01T00:00:00");
+            end = start.plusMonths(1).minusSeconds(1);
+        } else {
+            start = billingPeriodTracker.getEarliestStartTime();
+            end = billingPeriodTracker.getLatestEndTime();
+            if (start == null || end == null) {
+                return Mono.just("No records found for the specified MSISDN.");
+            }
+        }
+
+        Flux<CdrCall> calls = callRepository.findCallsForMsisdnInPeriod(normalized, start, end);
+        if (!CdrCodec.isEncodable(normalized)) {
+            return sumByNumber(calls, normalized);
+        }
+        long key = CdrCodec.encodeMsisdn(normalized);
+        return aggregate(calls)
+                .map(totals -> totals.contains(key)
+                        ? new UdrJsonWriter(128).writeUdr(normalized, totals.incomingSeconds(key), totals.outcomingSeconds(key)).toString()
+                        : "No records found for the specified MSISDN.");
+    }
+
+    /**
+     * Суммирует длительности звонков номера, не представимого числом, сравнением строк.
+     * Так же, как {@link UdrAggregator}, исходящий звонок учитывается у вызывающего абонента, входящий — у принимающего.
+     */
+    private static Mono<String> sumByNumber(Flux<CdrCall> calls, String msisdn) {
+        return calls.collect(() -> new long[3], (totals, call) -> {
+                    boolean isCaller = msisdn.equals(call.callerNumber());
+                    boolean isReceiver = msisdn.equals(call.receiverNumber());
+                    long seconds = Duration.between(call.startTime(), call.endTime()).toSeconds();
+                    totals[0] += isCaller || isReceiver ? 1 : 0;
+                    totals[1] += isReceiver && "02".equals(call.callType()) ? seconds : 0;
+                    totals[2] += isCaller && "01".equals(call.callType()) ? seconds : 0;
+                })
+                .map(totals -> totals[0] > 0
+                        ? new UdrJsonWriter(128).writeUdr(msisdn, totals[1], totals[2]).toString()
+                        : "No records found for the specified MSISDN.");
+    }
+
+    /**
+     * Генерирует консолидированные отчёты для всех абонентов за указанный месяц.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return Отчёты по одному на строку, упорядоченные по MSISDN, или сообщение
+     *         "No records found for the specified period."
+     */
+    public Mono<String> generateAllUdrReports(String month) {
+        return aggregateMonth(month)
+                .map(totals -> totals.isEmpty()
+                        ? "No records found for the specified period."
+                        : UdrService.formatAll(totals));
+    }
+
+    /**
+     * Суммирует длительности звонков всех абонентов за месяц.
+     *
+     * @param month Месяц в формате "YYYY-MM".
+     * @return Длительности по всем участникам звонков месяца; без абонентов, если звонков нет.
+     */
+    public Mono<MsisdnTotals> aggregateMonth(String month) {
+        return aggregate(callRepository.findCallsByBillingMonth(month));
+    }
+
+    /**
+     * Представляет итоги абонентов в формате NDJSON, упорядоченными по MSISDN.
+     * Строки формируются по мере запроса подписчиком.
+     *
+     * @param totals Длительности абонентов.
+     * @return Поток строк отчётов, каждая с завершающим переводом строки.
+     */
+    public Flux<DataBuffer> toNdjson(MsisdnTotals totals) {
+        long[] msisdns = totals.sortedMsisdns();
+        return Flux.range(0, msisdns.length)
+                .map(i -> {
+                    long msisdn = msisdns[i];
+                    UdrJsonWriter writer = new UdrJsonWriter(128)
+                            .writeUdr(msisdn, totals.incomingSeconds(msisdn), totals.outcomingSeconds(msisdn))
+                            .newLine();
+                    return BUFFER_FACTORY.wrap(writer.toString().getBytes(StandardCharsets.US_ASCII));
+                });
+    }
+
+    /**
+     * Генерирует CDR-отчёт в формате CSV для указанного абонента за указанный период.
+     * <p>
+     * Файл совпадает с отчётом {@link UdrService#generateCdrReport}; строки записываются в файл
+     * асинхронно по мере чтения из базы данных.
+     *
+     * @param msisdn Номер абонента (MSISDN).
+     * @param start  Начало периода.
+     * @param end    Конец периода.
+     * @return Уникальный идентификатор отчёта (UUID) или ошибка, если записи отсутствуют.
+     */
+    public Mono<String> generateCdrReport(String msisdn, LocalDateTime start, LocalDateTime end) {
+        String normalized = normalizeMsisdn(msisdn);
+        if (!msisdnRegistry.mightContain(normalized)) {
+            return Mono.error(new RuntimeException("No records found for the specified MSISDN."));
+        }
+
+        String reportId = UUID.randomUUID().toString();
+        Path filePath = Paths.get("reports", normalized + "_" + reportId + ".csv");
+
+        // Файл открывается только после первой строки, поэтому для пустого периода он не создаётся
+        return callRepository.findCallsForMsisdnInPeriod(normalized, start, end)
+                .map(ReactiveUdrService::toCsvLine)
+                .switchOnFirst((first, lines) -> first.hasValue()
+                        ? writeFile(lines, filePath)
+                        : lines.then(Mono.<Void>error(new RuntimeException("No records found for the specified period."))))
+                .then(Mono.just(reportId));
+    }
+
+    private static Mono<Void> writeFile(Flux<DataBuffer> lines, Path filePath) {
+        return Mono.fromCallable(() -> Files.createDirectories(filePath.getParent()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(DataBufferUtils.write(lines, filePath,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+                .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(filePath))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.<Void>error(e)));
+    }
+
+    private static Mono<MsisdnTotals> aggregate(Flux<CdrCall> calls) {
+        return calls.collect(UdrAggregator::new, (aggregator, call) -> aggregator.accept(call))
+                .map(UdrAggregator::getTotals);
+    }
+
+    /**
+     * Строка CSV в формате {@link CdrCsvWriter}: отсутствующие значения выводятся как {@code null}.
+     */
+    private static DataBuffer toCsvLine(CdrCall call) {
+        String line = call.callType() + "," + call.callerNumber() + "," + call.receiverNumber() + ","
+                + call.startTime() + "," + call.endTime() + "\n";
+        return BUFFER_FACTORY.wrap(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String normalizeMsisdn(String msisdn) {
+        return msisdn.replaceAll("[^0-9]", "");
+    }
+}
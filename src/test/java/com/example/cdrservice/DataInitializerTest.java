@@ -0,0 +1,153 @@
+package com.example.cdrservice;
+
+import com.example.cdrservice.entity.Subscriber;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import com.example.cdrservice.repository.SubscriberRepository;
+import com.example.cdrservice.service.CdrGeneratorService;
+import com.example.cdrservice.service.UdrRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DataInitializerTest {
+
+    @Mock
+    private SubscriberRepository subscriberRepository;
+
+    @Mock
+    private CdrRecordRepository cdrRecordRepository;
+
+    @Mock
+    private CdrGeneratorService cdrGeneratorService;
+
+    @Mock
+    private UdrRollupService udrRollupService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    /**
+     * Проверяет, что при существующих записях таблицы не очищаются, а звонки догенерируются
+     * после самого позднего сохранённого звонка.
+     */
+    @Test
+    void testRun_IncrementalTopsUpExistingData() {
+        LocalDateTime latestStartTime = LocalDateTime.of(2024, 3, 31, 12, 0);
+        when(subscriberRepository.findAll()).thenReturn(List.of(subscriber("79991112233")));
+        when(cdrRecordRepository.findLatestStartTime()).thenReturn(latestStartTime);
+        when(udrRollupService.hasRollups()).thenReturn(true);
+
+        initializer(DataInitializer.StartupMode.INCREMENTAL).run();
+
+        verify(cdrRecordRepository, never()).truncate();
+        verify(udrRollupService, never()).rebuild();
+        verify(subscriberRepository, never()).deleteAllInBatch();
+        verify(cdrGeneratorService).generateCdrRecordsAfter(latestStartTime);
+        verify(cdrGeneratorService, never()).generateCdrRecords();
+
+        // Сохраняются только недостающие абоненты
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Subscriber>> saved = ArgumentCaptor.forClass(List.class);
+        verify(subscriberRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).extracting(Subscriber::getMsisdn)
+                .hasSize(DataInitializer.MSISDNS.size() - 1)
+                .doesNotContain("79991112233");
+    }
+
+    /**
+     * Проверяет, что записям прежних версий заполняется ключ партиции и агрегаты пересчитываются до догенерации.
+     */
+    @Test
+    void testRun_IncrementalUpgradesRecordsOfEarlierVersions() {
+        LocalDateTime latestStartTime = LocalDateTime.of(2024, 3, 31, 12, 0);
+        when(subscriberRepository.findAll()).thenReturn(List.of());
+        when(cdrRecordRepository.findLatestStartTime()).thenReturn(latestStartTime);
+        when(cdrRecordRepository.backfillBillingMonth()).thenReturn(1520);
+        when(udrRollupService.hasRollups()).thenReturn(true);
+
+        initializer(DataInitializer.StartupMode.INCREMENTAL).run();
+
+        InOrder order = inOrder(cdrRecordRepository, udrRollupService, cdrGeneratorService);
+        order.verify(cdrRecordRepository).backfillBillingMonth();
+        order.verify(udrRollupService).rebuild();
+        order.verify(cdrGeneratorService).generateCdrRecordsAfter(latestStartTime);
+    }
+
+    /**
+     * Проверяет, что агрегаты пересчитываются, если записи есть, а таблица агрегатов пуста.
+     */
+    @Test
+    void testRun_IncrementalRebuildsMissingRollups() {
+        when(subscriberRepository.findAll()).thenReturn(List.of());
+        when(cdrRecordRepository.findLatestStartTime()).thenReturn(LocalDateTime.of(2024, 3, 31, 12, 0));
+
+        initializer(DataInitializer.StartupMode.INCREMENTAL).run();
+
+        verify(udrRollupService).rebuild();
+    }
+
+    /**
+     * Проверяет, что в пустой базе данных записи генерируются за год.
+     */
+    @Test
+    void testRun_IncrementalGeneratesYearForEmptyDatabase() {
+        when(subscriberRepository.findAll()).thenReturn(List.of());
+
+        initializer(DataInitializer.StartupMode.INCREMENTAL).run();
+
+        verify(cdrGeneratorService).generateCdrRecords();
+        verify(cdrGeneratorService, never()).generateCdrRecordsAfter(any());
+    }
+
+    /**
+     * Проверяет, что сброс очищает таблицы пакетно и генерирует записи заново.
+     */
+    @Test
+    void testRun_ResetTruncatesAndRegenerates() {
+        when(subscriberRepository.findAll()).thenReturn(List.of());
+
+        initializer(DataInitializer.StartupMode.RESET).run();
+
+        verify(cdrRecordRepository).truncate();
+        verify(subscriberRepository).deleteAllInBatch();
+        verify(udrRollupService).clear();
+        verify(cdrRecordRepository, never()).deleteAll();
+        verify(cdrGeneratorService).generateCdrRecords();
+    }
+
+    /**
+     * Проверяет, что в режиме none данные не изменяются.
+     */
+    @Test
+    void testRun_NoneLeavesDataUntouched() {
+        initializer(DataInitializer.StartupMode.NONE).run();
+
+        verifyNoInteractions(subscriberRepository, cdrRecordRepository, cdrGeneratorService, udrRollupService);
+    }
+
+    private DataInitializer initializer(DataInitializer.StartupMode mode) {
+        return new DataInitializer(subscriberRepository, cdrRecordRepository, cdrGeneratorService, udrRollupService, mode);
+    }
+
+    private static Subscriber subscriber(String msisdn) {
+        Subscriber subscriber = new Subscriber();
+        subscriber.setMsisdn(msisdn);
+        return subscriber;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.cdrservice.compact;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MsisdnSetTest {
+
+    /**
+     * Проверяет добавление, поиск и сохранность номеров при расширении таблицы.
+     */
+    @Test
+    void testAddAndContains() {
+        MsisdnSet set = new MsisdnSet();
+        for (long i = 1; i <= 10_000; i++) {
+            assertThat(set.add(79990000000L + i)).isTrue();
+        }
+
+        assertThat(set.add(79990000001L)).isFalse();
+        assertThat(set.add(CdrCodec.NO_MSISDN)).isFalse();
+        assertThat(set.size()).isEqualTo(10_000);
+        assertThat(set.contains(79990010000L)).isTrue();
+        assertThat(set.contains(79990010001L)).isFalse();
+        assertThat(set.contains(CdrCodec.NO_MSISDN)).isFalse();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.cdrservice.compact;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MsisdnTotalsTest {
+
+    /**
+     * Проверяет накопление длительностей и сохранность данных при расширении таблицы.
+     */
+    @Test
+    void testAddAndResize() {
+        MsisdnTotals totals = new MsisdnTotals();
+        for (long i = 1; i <= 10_000; i++) {
+            totals.add(79990000000L + i, i, 2 * i);
+        }
+        totals.add(79990000001L, 10, 0);
+
+        assertThat(totals.size()).isEqualTo(10_000);
+        assertThat(totals.incomingSeconds(79990000001L)).isEqualTo(11);
+        assertThat(totals.outcomingSeconds(79990010000L)).isEqualTo(20_000);
+        assertThat(totals.contains(79990010001L)).isFalse();
+        assertThat(totals.incomingSeconds(79990010001L)).isZero();
+    }
+
+    /**
+     * Проверяет, что курсор обходит каждого абонента ровно один раз, а отсутствующий номер не учитывается.
+     */
+    @Test
+    void testCursorAndSortedMsisdns() {
+        MsisdnTotals totals = new MsisdnTotals();
+        totals.add(79992221122L, 600, 0);
+        totals.add(79991112233L, 0, 300);
+        totals.add(CdrCodec.NO_MSISDN, 100, 100);
+
+        long incoming = 0;
+        long outcoming = 0;
+        int visited = 0;
+        MsisdnTotals.Cursor cursor = totals.cursor();
+        while (cursor.next()) {
+            incoming += cursor.incomingSeconds();
+            outcoming += cursor.outcomingSeconds();
+            visited++;
+        }
+
+        assertThat(visited).isEqualTo(2);
+        assertThat(incoming).isEqualTo(600);
+        assertThat(outcoming).isEqualTo(300);
+        assertThat(totals.sortedMsisdns()).containsExactly(79991112233L, 79992221122L);
+    }
+
+    /**
+     * Проверяет, что номера, не представимые числом, не попадают в итоги.
+     */
+    @Test
+    void testAdd_IgnoresInvalidMsisdn() {
+        MsisdnTotals totals = new MsisdnTotals();
+
+        totals.add(CdrCodec.INVALID_MSISDN, 60, 0);
+        totals.add(79991112233L, 0, 30);
+
+        assertThat(totals.size()).isEqualTo(1);
+        assertThat(totals.contains(CdrCodec.INVALID_MSISDN)).isFalse();
+    }
+
+    /**
+     * Проверяет кодирование полей CDR-записи в примитивы и обратно.
+     */
+    @Test
+    void testCdrCodec() {
+        assertThat(CdrCodec.encodeMsisdn("79991112233")).isEqualTo(79991112233L);
+        assertThat(CdrCodec.decodeMsisdn(79991112233L)).isEqualTo("79991112233");
+        assertThat(CdrCodec.encodeMsisdn(null)).isEqualTo(CdrCodec.NO_MSISDN);
+        assertThrows(IllegalArgumentException.class, () -> CdrCodec.encodeMsisdn("+79991112233"));
+        assertThrows(IllegalArgumentException.class, () -> CdrCodec.encodeMsisdn("0123"));
+
+        // Номера с ведущим нулём, нецифровые и длиннее 18 цифр не представимы числом без потерь
+        assertThat(CdrCodec.isEncodable("123")).isTrue();
+        assertThat(CdrCodec.isEncodable("0123")).isFalse();
+        assertThat(CdrCodec.isEncodable(null)).isFalse();
+        assertThat(CdrCodec.encodeMsisdnOrInvalid("79991112233")).isEqualTo(79991112233L);
+        assertThat(CdrCodec.encodeMsisdnOrInvalid("7999abc")).isEqualTo(CdrCodec.INVALID_MSISDN);
+        assertThat(CdrCodec.encodeMsisdnOrInvalid("1234567890123456789")).isEqualTo(CdrCodec.INVALID_MSISDN);
+
+        assertThat(CdrCodec.encodeCallType("01")).isEqualTo(CdrCodec.OUTCOMING_CALL);
+        assertThat(CdrCodec.decodeCallType(CdrCodec.INCOMING_CALL)).isEqualTo("02");
+
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 10, 0, 15);
+        assertThat(CdrCodec.fromEpochSecond(CdrCodec.toEpochSecond(time))).isEqualTo(time);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.cdrservice.controller;
+
+import com.example.cdrservice.dto.CdrIngestStats;
+import com.example.cdrservice.service.CdrIngestService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CdrIngestControllerTest {
+
+    @Mock
+    private CdrIngestService cdrIngestService;
+
+    @InjectMocks
+    private CdrIngestController cdrIngestController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(cdrIngestController).build();
+    }
+
+    /**
+     * Проверяет, что тело запроса передаётся сервису потоком, а итоги загрузки возвращаются в JSON.
+     */
+    @Test
+    void testIngest() throws Exception {
+        String csv = "01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05\n";
+        StringBuilder received = new StringBuilder();
+        when(cdrIngestService.ingest(any())).thenAnswer(invocation -> {
+            InputStream in = invocation.getArgument(0);
+            received.append(new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+            return new CdrIngestStats(1, 0, csv.length(), 5, 200);
+        });
+
+        mockMvc.perform(post("/cdr/ingest").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.rejected").value(0))
+                .andExpect(jsonPath("$.recordsPerSecond").value(200));
+
+        assertThat(received.toString()).isEqualTo(csv);
+    }
+
+    /**
+     * Проверяет, что тело другого типа не принимается.
+     */
+    @Test
+    void testIngest_UnsupportedContentType() throws Exception {
+        mockMvc.perform(post("/cdr/ingest").contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cdrservice.controller;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportConcurrencyLimitFilterTest {
+
+    /**
+     * Проверяет, что запрос сверх лимита получает HTTP 503, а после завершения запроса разрешение освобождается.
+     */
+    @Test
+    void testDoFilter_RejectsRequestsOverLimit() throws Exception {
+        ReportConcurrencyLimitFilter filter = new ReportConcurrencyLimitFilter(1, Duration.ZERO);
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+
+        // Второй запрос приходит, пока первый ещё обрабатывается
+        FilterChain holdingChain = (request, response) ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/udr/79992221122"), nested, new MockFilterChain());
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/udr/79991112233"), first, holdingChain);
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(nested.getStatus()).isEqualTo(503);
+        assertThat(nested.getHeader("Retry-After")).isEqualTo("1");
+
+        MockHttpServletResponse next = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/udr/79991112233"), next, new MockFilterChain());
+        assertThat(next.getStatus()).isEqualTo(200);
+    }
+
+    /**
+     * Проверяет, что при асинхронной обработке разрешение удерживается до её завершения.
+     */
+    @Test
+    void testDoFilter_HoldsPermitUntilAsyncCompletion() throws Exception {
+        ReportConcurrencyLimitFilter filter = new ReportConcurrencyLimitFilter(1, Duration.ZERO);
+        MockHttpServletRequest stream = new MockHttpServletRequest("GET", "/udr/all/stream");
+        stream.setAsyncSupported(true);
+
+        filter.doFilter(stream, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        // Пока выгрузка продолжается асинхронно, следующий запрос отклоняется
+        MockHttpServletResponse during = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/udr/79991112233"), during, new MockFilterChain());
+        assertThat(during.getStatus()).isEqualTo(503);
+
+        stream.getAsyncContext().complete();
+
+        MockHttpServletResponse after = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/udr/79991112233"), after, new MockFilterChain());
+        assertThat(after.getStatus()).isEqualTo(200);
+    }
+
+    /**
+     * Проверяет, что запросы вне /udr/** и запросы при отключённом лимите не ограничиваются.
+     */
+    @Test
+    void testDoFilter_SkipsOtherPathsAndDisabledLimit() throws Exception {
+        ReportConcurrencyLimitFilter limited = new ReportConcurrencyLimitFilter(1, Duration.ZERO);
+        ReportConcurrencyLimitFilter disabled = new ReportConcurrencyLimitFilter(0, Duration.ZERO);
+        MockHttpServletResponse ingest = new MockHttpServletResponse();
+        MockHttpServletResponse report = new MockHttpServletResponse();
+
+        limited.doFilter(new MockHttpServletRequest("POST", "/cdr/ingest"), new MockHttpServletResponse(),
+                (request, response) -> limited.doFilter(new MockHttpServletRequest("POST", "/cdr/ingest"), ingest, new MockFilterChain()));
+        disabled.doFilter(new MockHttpServletRequest("GET", "/udr/79991112233"), new MockHttpServletResponse(),
+                (request, response) -> disabled.doFilter(new MockHttpServletRequest("GET", "/udr/79992221122"), report, new MockFilterChain()));
+
+        assertThat(ingest.getStatus()).isEqualTo(200);
+        assertThat(report.getStatus()).isEqualTo(200);
+    }
+}
@@ -1,5 +1,12 @@
 package com.example.cdrservice.controller;
 
+import com.example.cdrservice.dto.CdrPartitionInfo;
+import com.example.cdrservice.dto.UdrCacheStats;
+import com.example.cdrservice.entity.CdrReportJob;
+import com.example.cdrservice.service.CdrPartitionService;
+import com.example.cdrservice.service.CdrReportJobService;
+import com.example.cdrservice.service.UdrReportCache;
+import com.example.cdrservice.service.UdrRollupService;
 import com.example.cdrservice.service.UdrService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,10 +14,23 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import static org.mockito.Mockito.*;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 class UdrControllerTest {
@@ -18,6 +38,18 @@ class UdrControllerTest {
     @Mock
     private UdrService udrService;
 
+    @Mock
+    private UdrRollupService udrRollupService;
+
+    @Mock
+    private CdrReportJobService cdrReportJobService;
+
+    @Mock
+    private UdrReportCache udrReportCache;
+
+    @Mock
+    private CdrPartitionService cdrPartitionService;
+
     @InjectMocks
     private UdrController udrController;
 
@@ -120,6 +152,55 @@ class UdrControllerTest {
         verify(udrService, never()).generateAllUdrReports(any());
     }
 
+    // Тесты для /udr/all/stream
+    // Успешная потоковая выдача отчётов
+    @Test
+    void testStreamAllUdrReports_Success() throws Exception {
+        String month = "2024-03";
+        String line = "{\"msisdn\": \"79991112233\", \"incomingCall\": " +
+                "{\"totalTime\": \"00:10:00\"}, \"outcomingCall\": {\"totalTime\": \"00:05:00\"}}\n";
+
+        when(udrService.hasRecordsForMonth(month)).thenReturn(true);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(udrService).writeAllUdrReports(eq(month), any());
+
+        MvcResult result = mockMvc.perform(get("/udr/all/stream").param("month", month))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(line));
+    }
+
+    //Отсутствие записей
+    @Test
+    void testStreamAllUdrReports_NoRecords() throws Exception {
+        String month = "2024-03";
+
+        when(udrService.hasRecordsForMonth(month)).thenReturn(false);
+
+        mockMvc.perform(get("/udr/all/stream").param("month", month))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("No records found for the specified period."));
+
+        verify(udrService, never()).writeAllUdrReports(any(), any());
+    }
+
+    //Неверный формат месяца
+    @Test
+    void testStreamAllUdrReports_InvalidMonthFormat() throws Exception {
+        mockMvc.perform(get("/udr/all/stream").param("month", "2024-13"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Invalid month format. Expected format: YYYY-MM"));
+
+        verify(udrService, never()).hasRecordsForMonth(any());
+    }
+
     // Тесты для /udr/cdr-report/{msisdn}
     // Успешная генерация отчёта
     @Test
@@ -203,4 +284,164 @@ class UdrControllerTest {
 
         verify(udrService, never()).generateCdrReport(any(), any(), any());
     }
+
+    // Тесты для асинхронной генерации CDR-отчёта
+    // Задание принято
+    @Test
+    void testSubmitCdrReport_Accepted() throws Exception {
+        String msisdn = "79991112233";
+        String reportId = "123e4567-e89b-12d3-a456-426614174000";
+
+        when(cdrReportJobService.submit(msisdn,
+                LocalDateTime.of(2024, 3, 1, 0, 0),
+                LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
+                .thenReturn(reportId);
+
+        mockMvc.perform(post("/udr/cdr-report/{msisdn}", msisdn)
+                        .param("startDate", "2024-03-01T00:00:00")
+                        .param("endDate", "2024-03-31T23:59:59"))
+                .andExpect(status().isAccepted())
+                .andExpect(content().string("Report job accepted with ID: " + reportId));
+    }
+
+    // Очередь заданий заполнена
+    @Test
+    void testSubmitCdrReport_QueueFull() throws Exception {
+        when(cdrReportJobService.submit(any(), any(), any())).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(post("/udr/cdr-report/{msisdn}", "79991112233")
+                        .param("startDate", "2024-03-01T00:00:00")
+                        .param("endDate", "2024-03-31T23:59:59"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().string("Too many report jobs in progress"));
+    }
+
+    @Test
+    void testSubmitCdrReport_StartDateAfterEndDate() throws Exception {
+        mockMvc.perform(post("/udr/cdr-report/{msisdn}", "79991112233")
+                        .param("startDate", "2024-03-31T23:59:59")
+                        .param("endDate", "2024-03-01T00:00:00"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("startDate must be before endDate"));
+
+        verify(cdrReportJobService, never()).submit(any(), any(), any());
+    }
+
+    @Test
+    void testGetCdrReportStatus() throws Exception {
+        CdrReportJob job = new CdrReportJob("123e4567-e89b-12d3-a456-426614174000", "79991112233",
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59, 59));
+        job.markRunning();
+
+        when(cdrReportJobService.findJob(job.getId())).thenReturn(Optional.of(job));
+
+        mockMvc.perform(get("/udr/cdr-report/status/{id}", job.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(job.getId()))
+                .andExpect(jsonPath("$.status").value("RUNNING"));
+    }
+
+    @Test
+    void testGetCdrReportStatus_NotFound() throws Exception {
+        when(cdrReportJobService.findJob("unknown")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/udr/cdr-report/status/{id}", "unknown"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().string("Report job not found"));
+    }
+
+    @Test
+    void testDownloadCdrReport() throws Exception {
+        Path file = Files.createTempFile("79991112233_", ".csv");
+        Files.writeString(file, "01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05\n");
+
+        CdrReportJob job = new CdrReportJob("123e4567-e89b-12d3-a456-426614174000", "79991112233",
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59, 59));
+        job.markCompleted(file.toString());
+
+        when(cdrReportJobService.findJob(job.getId())).thenReturn(Optional.of(job));
+
+        try {
+            mockMvc.perform(get("/udr/cdr-report/download/{id}", job.getId()))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\""))
+                    .andExpect(content().string("01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05\n"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testDownloadCdrReport_NotReady() throws Exception {
+        CdrReportJob job = new CdrReportJob("123e4567-e89b-12d3-a456-426614174000", "79991112233",
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59, 59));
+
+        when(cdrReportJobService.findJob(job.getId())).thenReturn(Optional.of(job));
+
+        mockMvc.perform(get("/udr/cdr-report/download/{id}", job.getId()))
+                .andExpect(status().isConflict())
+                .andExpect(content().string("Report is not ready: PENDING"));
+    }
+
+    // Тесты для /udr/rollup/rebuild
+    @Test
+    void testRebuildRollup() throws Exception {
+        when(udrRollupService.rebuild()).thenReturn(42);
+
+        mockMvc.perform(post("/udr/rollup/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Rollup rebuilt: 42 rows"));
+
+        verify(udrRollupService, times(1)).rebuild();
+    }
+
+    // Тесты для /udr/cache/stats
+    @Test
+    void testGetCacheStats() throws Exception {
+        when(udrReportCache.stats()).thenReturn(new UdrCacheStats(3, 1, 0.75, 0, 2));
+
+        mockMvc.perform(get("/udr/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hitCount").value(3))
+                .andExpect(jsonPath("$.missCount").value(1))
+                .andExpect(jsonPath("$.hitRate").value(0.75))
+                .andExpect(jsonPath("$.size").value(2));
+    }
+
+    // Тесты для /udr/partitions
+    @Test
+    void testGetPartitions() throws Exception {
+        when(cdrPartitionService.listPartitions()).thenReturn(List.of(
+                new CdrPartitionInfo("2024-02", 5), new CdrPartitionInfo("2024-03", 7)));
+
+        mockMvc.perform(get("/udr/partitions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].month").value("2024-02"))
+                .andExpect(jsonPath("$[1].records").value(7));
+    }
+
+    @Test
+    void testDropPartition_Success() throws Exception {
+        when(cdrPartitionService.dropPartition("2024-03")).thenReturn(7);
+
+        mockMvc.perform(delete("/udr/partitions/{month}", "2024-03"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Partition 2024-03 dropped: 7 records"));
+    }
+
+    @Test
+    void testDropPartition_NoRecords() throws Exception {
+        when(cdrPartitionService.dropPartition("2024-03")).thenReturn(0);
+
+        mockMvc.perform(delete("/udr/partitions/{month}", "2024-03"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testDropPartition_InvalidMonth() throws Exception {
+        mockMvc.perform(delete("/udr/partitions/{month}", "2024-13"))
+                .andExpect(status().isBadRequest());
+
+        verify(cdrPartitionService, never()).dropPartition(any());
+    }
 }
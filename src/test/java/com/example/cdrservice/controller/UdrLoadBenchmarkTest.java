@@ -0,0 +1,200 @@
+package com.example.cdrservice.controller;
+
+import com.example.cdrservice.CdrServiceApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Нагрузочное сравнение обработки {@code GET /udr/{msisdn}} потоками Tomcat, виртуальными потоками
+ * и реактивным стеком WebFlux + R2DBC.
+ * <p>
+ * Приложение поднимается несколько раз на случайном порту с одинаковым пулом соединений: в обычном режиме,
+ * с профилем {@code virtual-threads} и с профилем {@code reactive}. Кэш отчётов отключён, поэтому каждый запрос
+ * обращается к базе данных. Клиенты отправляют запросы из {@code benchmark.load.clients} потоков; печатаются
+ * p50/p99 задержки, пропускная способность, пик занятой кучи и количество ответов HTTP 503.
+ * Виртуальные потоки требуют Java 21, реактивный стек — сборки с профилем Maven {@code reactive};
+ * иначе соответствующий тест пропускается. Запускается только в профиле benchmark:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=UdrLoadBenchmarkTest -Dbenchmark.load.clients=400 -Dbenchmark.load.requests=20000
+ * mvn test -Pbenchmark,reactive -Dtest=UdrLoadBenchmarkTest#benchmarkServletVersusReactive
+ * </pre>
+ */
+@Tag("benchmark")
+class UdrLoadBenchmarkTest {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.load.clients", 400);
+    private static final int REQUESTS = Integer.getInteger("benchmark.load.requests", 20_000);
+
+    private static final String[] MSISDNS = {
+            "79991112233", "79992221122", "79993334455", "79994445566", "79995556677",
+            "79996667788", "79997778899", "79998889900", "79990001122", "79991113344"
+    };
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    /**
+     * Сравнивает задержку отчётов по абонентам под одинаковой нагрузкой в двух режимах.
+     */
+    @Test
+    void benchmarkPlatformVersusVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require Java 21");
+
+        Result platform = run("platform", "local");
+        Result virtual = run("virtual", "local,virtual-threads");
+
+        report("Platform threads (Tomcat pool)", platform);
+        report("Virtual threads + request limit", virtual);
+        assertThat(platform.failed()).isZero();
+        assertThat(virtual.failed()).isZero();
+    }
+
+    /**
+     * Сравнивает задержку, пропускную способность и память JPA-стека и реактивного стека под одинаковой нагрузкой.
+     */
+    @Test
+    void benchmarkServletVersusReactive() throws Exception {
+        assumeTrue(ClassUtils.isPresent("com.example.cdrservice.controller.ReactiveUdrController", null),
+                "Reactive stack requires the reactive Maven profile");
+
+        Result servlet = run("servlet", "local");
+        Result reactive = run("reactive", "local,reactive");
+
+        report("Servlet + JPA", servlet);
+        report("WebFlux + R2DBC", reactive);
+        assertThat(servlet.failed()).isZero();
+        assertThat(reactive.failed()).isZero();
+    }
+
+    private Result run(String name, String profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CdrServiceApplication.class)
+                .properties(
+                        "spring.profiles.active=" + profiles,
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:udr-load-" + name + ";DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.h2.console.enabled=false",
+                        "cdr.udr-cache.maximum-size=0")
+                .run()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+
+            // Прогрев
+            load(baseUrl, Math.min(REQUESTS, 2000));
+            System.gc();
+            resetPeakHeap();
+            return load(baseUrl, REQUESTS);
+        }
+    }
+
+    /**
+     * Выполняет запросы из {@link #CLIENTS} потоков и возвращает отсортированные задержки успешных ответов.
+     */
+    private Result load(String baseUrl, int requests) throws InterruptedException, ExecutionException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        long[] latencies = new long[requests];
+        AtomicInteger completed = new AtomicInteger();
+
+        long startedAt = System.nanoTime();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<?>> futures = new ArrayList<>(CLIENTS);
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(clients.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        HttpRequest request = HttpRequest.newBuilder(
+                                URI.create(baseUrl + "/udr/" + MSISDNS[i % MSISDNS.length])).GET().build();
+                        long start = System.nanoTime();
+                        try {
+                            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 200) {
+                                latencies[completed.getAndIncrement()] = System.nanoTime() - start;
+                            } else if (status == 503) {
+                                rejected.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            failed.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - startedAt;
+
+        long[] succeeded = Arrays.copyOf(latencies, completed.get());
+        Arrays.sort(succeeded);
+        return new Result(succeeded, rejected.get(), failed.get(), elapsed, peakHeap());
+    }
+
+    private void report(String name, Result result) {
+        System.out.printf("%-32s p50 = %8.3f ms, p99 = %8.3f ms, %8.0f req/s, peak heap = %6d MB, ok = %d, 503 = %d%n",
+                name, percentile(result.latencies(), 50) / 1e6, percentile(result.latencies(), 99) / 1e6,
+                result.latencies().length * 1e9 / result.elapsedNanos(), result.peakHeapBytes() >> 20,
+                result.latencies().length, result.rejected());
+    }
+
+    private void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Сумма пиков занятой памяти пулов кучи с последнего {@link #resetPeakHeap()}.
+     */
+    private long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private record Result(long[] latencies, int rejected, int failed, long elapsedNanos, long peakHeapBytes) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.entity.CdrRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(CdrRecordBatchWriter.class)
+class CdrRecordBatchWriterTest {
+
+    @Autowired
+    private CdrRecordRepository cdrRecordRepository;
+
+    @Autowired
+    private CdrRecordBatchWriter cdrRecordBatchWriter;
+
+    /**
+     * Описание: Проверяет пакетную вставку записей через JDBC.
+     * Сценарий:
+     * - Все поля записей должны сохраниться, идентификаторы назначаются базой данных и присваиваются записям.
+     */
+    @Test
+    void testInsert() {
+        CdrRecord outgoing = new CdrRecord();
+        outgoing.setCallType("01");
+        outgoing.setCallerNumber("79991112233");
+        outgoing.setReceiverNumber("79992221122");
+        outgoing.setStartTime(LocalDateTime.of(2024, 3, 1, 10, 0));
+        outgoing.setEndTime(LocalDateTime.of(2024, 3, 1, 10, 5));
+
+        CdrRecord incoming = new CdrRecord();
+        incoming.setCallType("02");
+        incoming.setCallerNumber("79992221122");
+        incoming.setReceiverNumber("79991112233");
+        incoming.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
+        incoming.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
+
+        cdrRecordBatchWriter.insert(List.of(outgoing, incoming));
+
+        assertThat(outgoing.getId()).isNotNull();
+        assertThat(incoming.getId()).isGreaterThan(outgoing.getId());
+
+        List<CdrRecord> saved = cdrRecordRepository.findAll(Sort.by("startTime"));
+        assertThat(saved).hasSize(2);
+        assertThat(saved.get(0).getId()).isNotNull();
+        assertThat(saved.get(0).getCallType()).isEqualTo("01");
+        assertThat(saved.get(1).getEndTime()).isEqualTo(LocalDateTime.of(2024, 3, 1, 11, 10));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.entity.CdrRecord;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Бенчмарк поиска звонков абонента за месяц на большой таблице CDR.
+ * <p>
+ * Сравнивает прежний запрос с условием "caller OR receiver" без индексов
+ * и текущий запрос {@link CdrRecordRepository#CALLS_FOR_MSISDN_IN_PERIOD} (UNION ALL двух диапазонных сканирований по индексам).
+ * Новый запрос выполняется напрямую, а не курсором репозитория, потому что курсор требует транзакции.
+ * Запускается только в профиле benchmark:
+ * <pre>
+ * mvn test -Pbenchmark -Dbenchmark.rows=10000000
+ * </pre>
+ */
+@Tag("benchmark")
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CdrRecordQueryBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 10_000_000);
+    private static final int SUBSCRIBERS = 10_000;
+    private static final int SAMPLES = 200;
+
+    private static final String OR_QUERY = "SELECT r FROM CdrRecord r " +
+            "WHERE (r.callerNumber = :msisdn OR r.receiverNumber = :msisdn) AND r.startTime BETWEEN :start AND :end";
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Сравнивает задержку запроса по одному абоненту до и после введения индексов и UNION.
+     */
+    @Test
+    void benchmarkFindRecordsForMsisdnInPeriod() {
+        populate();
+
+        dropIndexes();
+        long[] before = measure(msisdn -> entityManager.createQuery(OR_QUERY, CdrRecord.class)
+                .setParameter("msisdn", msisdn)
+                .setParameter("start", START)
+                .setParameter("end", END)
+                .getResultList());
+
+        createIndexes();
+        long[] after = measure(msisdn -> entityManager.createNativeQuery(CdrRecordRepository.CALLS_FOR_MSISDN_IN_PERIOD)
+                .setParameter("msisdn", msisdn)
+                .setParameter("start", START)
+                .setParameter("end", END)
+                .getResultList());
+
+        report("OR query, no indexes", before);
+        report("UNION ALL query, composite indexes", after);
+        assertThat(percentile(after, 50)).isLessThan(percentile(before, 50));
+    }
+
+    /**
+     * Заполняет таблицу синтетическими звонками средствами H2: каждые 30 секунд начинается новый звонок.
+     */
+    private void populate() {
+        System.out.printf("Benchmark dataset: %,d CDR rows, %,d subscribers%n", ROWS, SUBSCRIBERS);
+        jdbcTemplate.update("INSERT INTO cdr_record (call_type, caller_number, receiver_number, start_time, end_time) " +
+                "SELECT CASEWHEN(MOD(X, 2) = 0, '01', '02'), " +
+                "CAST(79990000000 + MOD(X, ?) AS VARCHAR), " +
+                "CAST(79990000000 + MOD(X * 7 + 1, ?) AS VARCHAR), " +
+                "DATEADD(SECOND, X * 30, TIMESTAMP '2023-01-01 00:00:00'), " +
+                "DATEADD(SECOND, X * 30 + MOD(X, 600) + 10, TIMESTAMP '2023-01-01 00:00:00') " +
+                "FROM SYSTEM_RANGE(1, ?)", SUBSCRIBERS, SUBSCRIBERS, ROWS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    private void dropIndexes() {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_cdr_caller_start");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_cdr_receiver_start");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_cdr_start");
+    }
+
+    private void createIndexes() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_cdr_caller_start ON cdr_record (caller_number, start_time)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_cdr_receiver_start ON cdr_record (receiver_number, start_time)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_cdr_start ON cdr_record (start_time)");
+    }
+
+    /**
+     * Выполняет запрос для выборки абонентов и возвращает отсортированные задержки в наносекундах.
+     */
+    private long[] measure(Function<String, List<?>> query) {
+        // Прогрев
+        for (int i = 0; i < 10; i++) {
+            query.apply(msisdn(i));
+            entityManager.clear();
+        }
+
+        long[] latencies = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            String msisdn = msisdn(i * 37);
+            long start = System.nanoTime();
+            query.apply(msisdn);
+            latencies[i] = System.nanoTime() - start;
+            entityManager.clear();
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private String msisdn(int i) {
+        return String.valueOf(79990000000L + i % SUBSCRIBERS);
+    }
+
+    private void report(String name, long[] latencies) {
+        System.out.printf("%-32s p50 = %8.3f ms, p99 = %8.3f ms%n",
+                name, percentile(latencies, 50) / 1e6, percentile(latencies, 99) / 1e6);
+    }
+
+    private long percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -1,13 +1,19 @@
 package com.example.cdrservice.repository;
 
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.dto.CdrPartitionInfo;
+import com.example.cdrservice.dto.UdrTotals;
 import com.example.cdrservice.entity.CdrRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -17,6 +23,9 @@ class CdrRecordRepositoryTest {
     @Autowired
     private CdrRecordRepository cdrRecordRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @BeforeEach
     void setUp() {
         // Создаём записи для тестов
@@ -47,6 +56,16 @@ class CdrRecordRepositoryTest {
         assertThat(cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber("79993334455")).isTrue();
     }
 
+    /**
+     * Описание: Проверяет выборку всех номеров участников звонков.
+     * Сценарий:
+     * - Номера вызывающих и принимающих абонентов возвращаются без повторов и без пустых значений.
+     */
+    @Test
+    void testFindAllMsisdns() {
+        assertThat(cdrRecordRepository.findAllMsisdns()).containsExactlyInAnyOrder("79991112233", "79992221122");
+    }
+
     /**
      * Описание: Проверяет метод поиска самой ранней даты начала звонка.
      * Сценарий:
@@ -88,6 +107,190 @@ class CdrRecordRepositoryTest {
         assertThat(records.get(1).getStartTime()).isEqualTo(LocalDateTime.of(2024, 3, 1, 11, 0));
     }
 
+    /**
+     * Описание: Проверяет поиск звонков абонента за период.
+     * Сценарий:
+     * - Абонент участвует в звонках и как вызывающий, и как принимающий.
+     * - Метод должен вернуть обе роли в хронологическом порядке без записей вне периода.
+     */
+    @Test
+    void testStreamCallsForMsisdnInPeriod() {
+        CdrRecord incoming = new CdrRecord();
+        incoming.setCallType("02");
+        incoming.setCallerNumber("79992221122");
+        incoming.setReceiverNumber("79991112233");
+        incoming.setStartTime(LocalDateTime.of(2024, 3, 1, 9, 0));
+        incoming.setEndTime(LocalDateTime.of(2024, 3, 1, 9, 1));
+
+        CdrRecord outOfPeriod = new CdrRecord();
+        outOfPeriod.setCallType("01");
+        outOfPeriod.setCallerNumber("79991112233");
+        outOfPeriod.setReceiverNumber("79992221122");
+        outOfPeriod.setStartTime(LocalDateTime.of(2024, 4, 1, 9, 0));
+        outOfPeriod.setEndTime(LocalDateTime.of(2024, 4, 1, 9, 1));
+
+        cdrRecordRepository.saveAll(List.of(incoming, outOfPeriod));
+
+        try (Stream<CdrCall> calls = cdrRecordRepository.streamCallsForMsisdnInPeriod(
+                "79991112233",
+                LocalDateTime.of(2024, 3, 1, 0, 0),
+                LocalDateTime.of(2024, 3, 31, 23, 59, 59)
+        )) {
+            assertThat(calls.toList()).extracting(CdrCall::startTime).containsExactly(
+                    LocalDateTime.of(2024, 3, 1, 9, 0),
+                    LocalDateTime.of(2024, 3, 1, 10, 0)
+            );
+        }
+    }
+
+    /**
+     * Описание: Проверяет чтение звонков без загрузки сущностей.
+     * Сценарий:
+     * - Звонки абонента за период возвращаются в хронологическом порядке, звонок самому себе — один раз.
+     */
+    @Test
+    void testCallProjections() {
+        CdrRecord selfCall = new CdrRecord();
+        selfCall.setCallType("01");
+        selfCall.setCallerNumber("79992221122");
+        selfCall.setReceiverNumber("79992221122");
+        selfCall.setStartTime(LocalDateTime.of(2024, 3, 2, 8, 0));
+        selfCall.setEndTime(LocalDateTime.of(2024, 3, 2, 8, 1));
+        cdrRecordRepository.save(selfCall);
+
+        try (Stream<CdrCall> calls = cdrRecordRepository.streamCallsForMsisdnInPeriod("79992221122",
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59, 59))) {
+            assertThat(calls.toList()).containsExactly(
+                    new CdrCall("02", null, "79992221122",
+                            LocalDateTime.of(2024, 3, 1, 11, 0), LocalDateTime.of(2024, 3, 1, 11, 10)),
+                    new CdrCall("01", "79992221122", "79992221122",
+                            LocalDateTime.of(2024, 3, 2, 8, 0), LocalDateTime.of(2024, 3, 2, 8, 1)));
+        }
+    }
+
+    /**
+     * Описание: Проверяет суммирование длительностей звонков в базе данных.
+     * Сценарий:
+     * - Исходящие звонки суммируются у вызывающего, входящие — у принимающего абонента.
+     * - Второй участник исходящего звонка попадает в месячные итоги с нулевой длительностью.
+     * - Для абонента без звонков в периоде итоги отсутствуют.
+     */
+    @Test
+    void testSumDurations() {
+        CdrRecord outgoing = new CdrRecord();
+        outgoing.setCallType("01");
+        outgoing.setCallerNumber("79991112233");
+        outgoing.setReceiverNumber("79992221122");
+        outgoing.setStartTime(LocalDateTime.of(2024, 3, 2, 12, 0));
+        outgoing.setEndTime(LocalDateTime.of(2024, 3, 2, 12, 1));
+        cdrRecordRepository.save(outgoing);
+
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+        assertThat(cdrRecordRepository.sumDurationsForMsisdnInPeriod("79991112233", start, end))
+                .contains(new UdrTotals("79991112233", 0, 360));
+        assertThat(cdrRecordRepository.sumDurationsForMsisdnInPeriod("79992221122", start, end))
+                .contains(new UdrTotals("79992221122", 600, 0));
+        assertThat(cdrRecordRepository.sumDurationsForMsisdnInPeriod("79993334455", start, end)).isEmpty();
+
+        assertThat(cdrRecordRepository.sumDurationsByBillingMonth("2024-03")).containsExactlyInAnyOrder(
+                new UdrTotals("79991112233", 0, 360),
+                new UdrTotals("79992221122", 600, 0));
+        try (Stream<UdrTotals> totals = cdrRecordRepository.streamDurationsByBillingMonth("2024-03")) {
+            assertThat(totals.toList()).hasSize(2);
+        }
+        assertThat(cdrRecordRepository.sumDurationsByBillingMonth("2024-04")).isEmpty();
+    }
+
+    /**
+     * Описание: Проверяет длительности звонков с долями секунды во времени начала и окончания.
+     * Сценарий:
+     * - Время сохраняется с точностью до секунды.
+     * - Длительность в запросах совпадает с {@link Duration#between} сохранённого времени.
+     */
+    @Test
+    void testSumDurations_SubSecondTimes() {
+        CdrRecord outgoing = new CdrRecord();
+        outgoing.setCallType("01");
+        outgoing.setCallerNumber("79993334455");
+        outgoing.setReceiverNumber("79992221122");
+        outgoing.setStartTime(LocalDateTime.of(2024, 3, 4, 12, 0, 0, 900_000_000));
+        outgoing.setEndTime(LocalDateTime.of(2024, 3, 4, 12, 0, 1, 100_000_000));
+        cdrRecordRepository.saveAndFlush(outgoing);
+
+        assertThat(outgoing.getStartTime()).isEqualTo(LocalDateTime.of(2024, 3, 4, 12, 0, 0));
+        assertThat(outgoing.getEndTime()).isEqualTo(LocalDateTime.of(2024, 3, 4, 12, 0, 1));
+        long seconds = Duration.between(outgoing.getStartTime(), outgoing.getEndTime()).getSeconds();
+
+        assertThat(cdrRecordRepository.sumDurationsForMsisdnInPeriod("79993334455",
+                LocalDateTime.of(2024, 3, 1, 0, 0), LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
+                .contains(new UdrTotals("79993334455", 0, seconds));
+        assertThat(cdrRecordRepository.sumDurationsByBillingMonth("2024-03"))
+                .contains(new UdrTotals("79993334455", 0, seconds));
+    }
+
+    /**
+     * Описание: Проверяет суммирование длительностей только для номеров, не представимых числом.
+     * Сценарий:
+     * - Номер с ведущим нулём суммируется по строковому значению.
+     * - Номера, представимые числом, в результат не попадают.
+     */
+    @Test
+    void testSumNonEncodableDurations() {
+        CdrRecord leadingZero = new CdrRecord();
+        leadingZero.setCallType("01");
+        leadingZero.setCallerNumber("079991112233");
+        leadingZero.setReceiverNumber("79992221122");
+        leadingZero.setStartTime(LocalDateTime.of(2024, 3, 3, 12, 0));
+        leadingZero.setEndTime(LocalDateTime.of(2024, 3, 3, 12, 2));
+        cdrRecordRepository.save(leadingZero);
+
+        assertThat(cdrRecordRepository.sumNonEncodableDurationsByBillingMonth("2024-03")).containsExactly(
+                new UdrTotals("079991112233", 0, 120));
+        assertThat(cdrRecordRepository.sumNonEncodableDurationsByBillingMonth("2024-04")).isEmpty();
+    }
+
+    /**
+     * Описание: Проверяет помесячные партиции записей.
+     * Сценарий:
+     * - Ключ партиции заполняется по времени начала звонка при сохранении.
+     * - Партиции перечисляются с количеством записей, итоги месяца учитывают только его записи.
+     * - Удаление месяца не затрагивает другие партиции.
+     */
+    @Test
+    void testBillingMonthPartitions() {
+        CdrRecord april = new CdrRecord();
+        april.setCallType("01");
+        april.setCallerNumber("79991112233");
+        april.setStartTime(LocalDateTime.of(2024, 4, 1, 9, 0));
+        april.setEndTime(LocalDateTime.of(2024, 4, 1, 9, 1));
+        cdrRecordRepository.save(april);
+
+        assertThat(april.getBillingMonth()).isEqualTo("2024-04");
+        assertThat(cdrRecordRepository.findPartitions()).containsExactly(
+                new CdrPartitionInfo("2024-03", 2),
+                new CdrPartitionInfo("2024-04", 1));
+        assertThat(cdrRecordRepository.sumDurationsByBillingMonth("2024-04"))
+                .containsExactly(new UdrTotals("79991112233", 0, 60));
+
+        assertThat(cdrRecordRepository.deleteByBillingMonth("2024-03")).isEqualTo(2);
+        assertThat(cdrRecordRepository.existsByBillingMonth("2024-03")).isFalse();
+        assertThat(cdrRecordRepository.existsByBillingMonth("2024-04")).isTrue();
+    }
+
+    /**
+     * Проверяет, что записям, сохранённым без ключа партиции, он заполняется по времени начала звонка.
+     */
+    @Test
+    void testBackfillBillingMonth() {
+        cdrRecordRepository.flush();
+        jdbcTemplate.update("UPDATE cdr_record SET billing_month = NULL");
+
+        assertThat(cdrRecordRepository.backfillBillingMonth()).isEqualTo(2);
+        assertThat(cdrRecordRepository.existsByBillingMonth("2024-03")).isTrue();
+        assertThat(cdrRecordRepository.backfillBillingMonth()).isZero();
+    }
+
     /**
      * Проверяет сохранение и извлечение записи из базы данных.
      * Сценарий:
@@ -0,0 +1,92 @@
+package com.example.cdrservice.repository;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.PackedCdr;
+import com.example.cdrservice.entity.CdrRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import(PackedCdrReader.class)
+class PackedCdrReaderTest {
+
+    @Autowired
+    private CdrRecordRepository cdrRecordRepository;
+
+    @Autowired
+    private PackedCdrReader packedCdrReader;
+
+    /**
+     * Описание: Проверяет чтение записей месяца в компактном представлении.
+     * Сценарий:
+     * - Номера, тип вызова и время должны быть приведены к примитивам на стороне базы данных.
+     * - Отсутствующий номер читается как {@link CdrCodec#NO_MSISDN}.
+     */
+    @Test
+    void testForEachInMonth() {
+        CdrRecord record = new CdrRecord();
+        record.setCallType("02");
+        record.setCallerNumber("79992221122");
+        record.setReceiverNumber("79991112233");
+        record.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
+        record.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
+
+        CdrRecord withoutReceiver = new CdrRecord();
+        withoutReceiver.setCallType("01");
+        withoutReceiver.setCallerNumber("79991112233");
+        withoutReceiver.setStartTime(LocalDateTime.of(2024, 3, 2, 10, 0));
+        withoutReceiver.setEndTime(LocalDateTime.of(2024, 3, 2, 10, 5));
+
+        CdrRecord otherMonth = new CdrRecord();
+        otherMonth.setCallType("01");
+        otherMonth.setCallerNumber("79991112233");
+        otherMonth.setReceiverNumber("79992221122");
+        otherMonth.setStartTime(LocalDateTime.of(2024, 4, 1, 10, 0));
+        otherMonth.setEndTime(LocalDateTime.of(2024, 4, 1, 10, 5));
+
+        cdrRecordRepository.saveAll(List.of(record, withoutReceiver, otherMonth));
+
+        List<PackedCdr> packed = new ArrayList<>();
+        packedCdrReader.forEachInMonth("2024-03",
+                (callType, caller, receiver, start, end) -> packed.add(new PackedCdr(callType, caller, receiver, start, end)));
+
+        assertThat(packed).containsExactlyInAnyOrder(
+                PackedCdr.of(record),
+                new PackedCdr(CdrCodec.OUTCOMING_CALL, 79991112233L, CdrCodec.NO_MSISDN,
+                        CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 2, 10, 0)),
+                        CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 2, 10, 5)))
+        );
+    }
+
+    /**
+     * Описание: Проверяет чтение записей с номерами, не представимыми числом.
+     * Сценарий:
+     * - Нецифровой номер и номер с ведущим нулём читаются как {@link CdrCodec#INVALID_MSISDN}, чтение не прерывается.
+     */
+    @Test
+    void testForEachInMonth_NonEncodableNumbers() {
+        CdrRecord record = new CdrRecord();
+        record.setCallType("01");
+        record.setCallerNumber("SERVICE");
+        record.setReceiverNumber("079991112233");
+        record.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
+        record.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
+        cdrRecordRepository.save(record);
+
+        List<PackedCdr> packed = new ArrayList<>();
+        packedCdrReader.forEachInMonth("2024-03",
+                (callType, caller, receiver, start, end) -> packed.add(new PackedCdr(callType, caller, receiver, start, end)));
+
+        assertThat(packed).containsExactly(PackedCdr.of(record));
+        assertThat(packed.get(0).callerNumber()).isEqualTo(CdrCodec.INVALID_MSISDN);
+        assertThat(packed.get(0).receiverNumber()).isEqualTo(CdrCodec.INVALID_MSISDN);
+    }
+}
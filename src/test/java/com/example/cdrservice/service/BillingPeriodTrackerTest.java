@@ -0,0 +1,80 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BillingPeriodTrackerTest {
+
+    private final CdrRecordRepository cdrRecordRepository = mock(CdrRecordRepository.class);
+    private final BillingPeriodTracker tracker = new BillingPeriodTracker(cdrRecordRepository);
+
+    /**
+     * Проверяет, что границы читаются из базы данных один раз и расширяются новыми записями.
+     */
+    @Test
+    void testBoundsLoadedOnceAndExtended() {
+        when(cdrRecordRepository.findEarliestStartTime()).thenReturn(LocalDateTime.of(2024, 3, 1, 10, 0));
+        when(cdrRecordRepository.findLatestStartTime()).thenReturn(LocalDateTime.of(2024, 3, 31, 12, 0));
+        assertThat(tracker.getEarliestStartTime()).isEqualTo(LocalDateTime.of(2024, 3, 1, 10, 0));
+
+        tracker.onCdrRecordsSaved(new CdrRecordsSavedEvent(List.of(
+                record(LocalDateTime.of(2024, 2, 10, 9, 0), LocalDateTime.of(2024, 2, 10, 9, 5)),
+                record(LocalDateTime.of(2024, 4, 1, 8, 0), LocalDateTime.of(2024, 4, 1, 8, 30)))));
+        tracker.onCdrRecordsSaved(new CdrRecordsSavedEvent(List.of(
+                record(LocalDateTime.of(2024, 3, 15, 9, 0), LocalDateTime.of(2024, 3, 15, 9, 5)))));
+
+        assertThat(tracker.getEarliestStartTime()).isEqualTo(LocalDateTime.of(2024, 2, 10, 9, 0));
+        assertThat(tracker.getLatestEndTime()).isEqualTo(LocalDateTime.of(2024, 4, 1, 8, 30));
+        verify(cdrRecordRepository, times(1)).findEarliestStartTime();
+        verify(cdrRecordRepository, times(1)).findLatestStartTime();
+    }
+
+    /**
+     * Проверяет, что окончание самого позднего звонка оценивается по индексу времени начала,
+     * без сканирования колонки времени окончания.
+     */
+    @Test
+    void testLatestEndTimeEstimatedFromLatestStart() {
+        when(cdrRecordRepository.findEarliestStartTime()).thenReturn(LocalDateTime.of(2024, 3, 1, 10, 0));
+        when(cdrRecordRepository.findLatestStartTime()).thenReturn(LocalDateTime.of(2024, 3, 31, 12, 0));
+
+        assertThat(tracker.getLatestEndTime()).isEqualTo(LocalDateTime.of(2024, 3, 31, 14, 0));
+        verify(cdrRecordRepository, never()).findLatestEndTime();
+    }
+
+    /**
+     * Проверяет, что при пустой таблице границы отсутствуют до сохранения первых записей.
+     */
+    @Test
+    void testEmptyTable() {
+        assertThat(tracker.getEarliestStartTime()).isNull();
+        assertThat(tracker.getLatestEndTime()).isNull();
+
+        tracker.onCdrRecordsSaved(new CdrRecordsSavedEvent(List.of(
+                record(LocalDateTime.of(2024, 3, 1, 10, 0), LocalDateTime.of(2024, 3, 1, 10, 5)))));
+
+        assertThat(tracker.getEarliestStartTime()).isEqualTo(LocalDateTime.of(2024, 3, 1, 10, 0));
+        assertThat(tracker.getLatestEndTime()).isEqualTo(LocalDateTime.of(2024, 3, 1, 10, 5));
+    }
+
+    private static CdrRecord record(LocalDateTime start, LocalDateTime end) {
+        CdrRecord record = new CdrRecord();
+        record.setCallType("01");
+        record.setCallerNumber("79991112233");
+        record.setReceiverNumber("79992221122");
+        record.setStartTime(start);
+        record.setEndTime(end);
+        return record;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.PackedCdr;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CdrCallGeneratorTest {
+
+    private static final long[] MSISDNS = {79991112233L, 79992221122L, 79993334455L, 79994445566L};
+    private static final long FROM = 1_700_000_000L;
+    private static final long TO = FROM + 30L * 24 * 3600;
+
+    private final CdrCallGenerator generator = new CdrCallGenerator();
+
+    /**
+     * Проверяет, что звонки упорядочены по времени, лежат в периоде и не совершаются самому себе.
+     */
+    @Test
+    void testGenerate_ValidCalls() {
+        PackedCdr[] calls = generator.generate(MSISDNS, FROM, TO, 200, 42L);
+
+        assertThat(calls).isNotEmpty();
+        assertThat(calls).isSortedAccordingTo(Comparator.comparingLong(PackedCdr::startEpochSecond));
+        for (PackedCdr call : calls) {
+            assertThat(call.startEpochSecond()).isBetween(FROM, TO - 1);
+            assertThat(call.durationSeconds()).isBetween(10L, 7200L);
+            assertThat(call.callerNumber()).isNotEqualTo(call.receiverNumber());
+        }
+    }
+
+    /**
+     * Проверяет, что звонки одного абонента не пересекаются по времени.
+     */
+    @Test
+    void testGenerate_NoOverlappingCallsPerCaller() {
+        PackedCdr[] calls = generator.generate(MSISDNS, FROM, TO, 200, 7L);
+
+        Map<Long, PackedCdr[]> byCaller = Arrays.stream(calls)
+                .collect(Collectors.groupingBy(PackedCdr::callerNumber,
+                        Collectors.collectingAndThen(Collectors.toList(), list -> list.toArray(PackedCdr[]::new))));
+        for (PackedCdr[] callerCalls : byCaller.values()) {
+            for (int i = 1; i < callerCalls.length; i++) {
+                assertThat(callerCalls[i].startEpochSecond()).isGreaterThan(callerCalls[i - 1].endEpochSecond());
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что при одинаковом начальном значении результат воспроизводится.
+     */
+    @Test
+    void testGenerate_Deterministic() {
+        assertThat(generator.generate(MSISDNS, FROM, TO, 50, 1L))
+                .containsExactly(generator.generate(MSISDNS, FROM, TO, 50, 1L));
+    }
+
+    /**
+     * Проверяет, что звонки передаются частями, упорядоченными по времени, и каждая часть
+     * начинается не раньше окончания звонков предыдущей.
+     */
+    @Test
+    void testGenerate_StreamsTimeOrderedChunks() {
+        List<PackedCdr[]> chunks = new ArrayList<>();
+
+        long generated = generator.generate(MSISDNS, FROM, TO, 200, 3L, chunks::add);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks.stream().mapToLong(chunk -> chunk.length).sum()).isEqualTo(generated);
+        long previousEnd = Long.MIN_VALUE;
+        for (PackedCdr[] chunk : chunks) {
+            assertThat(chunk).isNotEmpty();
+            assertThat(chunk).isSortedAccordingTo(Comparator.comparingLong(PackedCdr::startEpochSecond));
+            assertThat(chunk[0].startEpochSecond()).isGreaterThanOrEqualTo(previousEnd);
+            previousEnd = Arrays.stream(chunk).mapToLong(PackedCdr::endEpochSecond).max().orElseThrow();
+        }
+    }
+
+    /**
+     * Проверяет, что генерация завершается, если запрошенные звонки не помещаются в период:
+     * звонков не больше ёмкости периода, и они не пересекаются.
+     */
+    @Test
+    void testGenerate_ClampsCallsToPeriodCapacity() {
+        long to = FROM + 24 * 3600;
+
+        PackedCdr[] calls = generator.generate(MSISDNS, FROM, to, 1_000_000, 11L);
+
+        Map<Long, List<PackedCdr>> byCaller = Arrays.stream(calls)
+                .collect(Collectors.groupingBy(PackedCdr::callerNumber));
+        for (List<PackedCdr> callerCalls : byCaller.values()) {
+            assertThat(callerCalls.size()).isLessThanOrEqualTo(12);
+            for (int i = 1; i < callerCalls.size(); i++) {
+                assertThat(callerCalls.get(i).startEpochSecond()).isGreaterThan(callerCalls.get(i - 1).endEpochSecond());
+            }
+        }
+        for (PackedCdr call : calls) {
+            assertThat(call.endEpochSecond()).isLessThanOrEqualTo(to);
+        }
+    }
+
+    /**
+     * Проверяет, что индекс отклоняет пересекающиеся и касающиеся интервалы.
+     */
+    @Test
+    void testTreeMapCallIntervalIndex() {
+        CallIntervalIndex index = new TreeMapCallIntervalIndex();
+
+        assertThat(index.tryAdd(100, 200)).isTrue();
+        assertThat(index.tryAdd(300, 400)).isTrue();
+        assertThat(index.tryAdd(150, 160)).isFalse();
+        assertThat(index.tryAdd(50, 100)).isFalse();
+        assertThat(index.tryAdd(200, 250)).isFalse();
+        assertThat(index.tryAdd(250, 500)).isFalse();
+        assertThat(index.tryAdd(201, 299)).isTrue();
+    }
+}
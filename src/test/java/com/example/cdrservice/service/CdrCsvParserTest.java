@@ -0,0 +1,105 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.PackedCdr;
+import com.example.cdrservice.dto.CdrCall;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CdrCsvParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Проверяет, что файл, записанный CdrCsvWriter, разбирается без потерь,
+     * в том числе когда строки пересекают границу буфера.
+     */
+    @Test
+    void testParse_ReadsCdrCsvWriterOutput() throws IOException {
+        List<CdrCall> calls = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i * 7919L);
+            calls.add(new CdrCall(i % 2 == 0 ? "01" : "02", "7999" + (1000000 + i), "7998" + (1000000 + i),
+                    start, start.plusSeconds(i % 7200)));
+        }
+        Path file = tempDir.resolve("report.csv");
+        new CdrCsvWriter().write(file, calls);
+
+        List<PackedCdr> parsed = new ArrayList<>();
+        CdrCsvParser.Result result;
+        try (InputStream in = Files.newInputStream(file)) {
+            result = new CdrCsvParser().parse(in, (callType, caller, receiver, start, end) ->
+                    parsed.add(new PackedCdr(callType, caller, receiver, start, end)));
+        }
+
+        assertThat(result.accepted()).isEqualTo(calls.size());
+        assertThat(result.rejected()).isZero();
+        assertThat(result.bytes()).isEqualTo(Files.size(file));
+        assertThat(parsed).extracting(PackedCdr::toCdrRecord).extracting(CdrCall::of).containsExactlyElementsOf(calls);
+    }
+
+    /**
+     * Проверяет отклонение некорректных строк и пропуск пустых строк.
+     */
+    @Test
+    void testParse_RejectsInvalidRows() throws IOException {
+        String csv = String.join("\n",
+                "call_type,caller_number,receiver_number,start_time,end_time",
+                "01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05:07",
+                "03,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05",
+                "01,null,79992221122,2024-03-01T10:00,2024-03-01T10:05",
+                "01,7999111223x,79992221122,2024-03-01T10:00,2024-03-01T10:05",
+                "01,79991112233,79992221122,2024-02-30T10:00,2024-03-01T10:05",
+                "01,79991112233,79992221122,2024-03-01T10:05,2024-03-01T10:00",
+                "01,79991112233,79992221122,2024-03-01T10:00",
+                "",
+                "02,79993334455,79991112233,2024-02-29T23:59:59.123,2024-03-01T00:00:30\r",
+                "");
+
+        List<PackedCdr> parsed = new ArrayList<>();
+        CdrCsvParser.Result result = new CdrCsvParser().parse(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)),
+                (callType, caller, receiver, start, end) -> parsed.add(new PackedCdr(callType, caller, receiver, start, end)));
+
+        assertThat(result.accepted()).isEqualTo(2);
+        assertThat(result.rejected()).isEqualTo(7);
+        assertThat(parsed).containsExactly(
+                new PackedCdr(CdrCodec.OUTCOMING_CALL, 79991112233L, 79992221122L,
+                        CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 1, 10, 0)),
+                        CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 1, 10, 5, 7))),
+                new PackedCdr(CdrCodec.INCOMING_CALL, 79993334455L, 79991112233L,
+                        CdrCodec.toEpochSecond(LocalDateTime.of(2024, 2, 29, 23, 59, 59)),
+                        CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 1, 0, 0, 30))));
+    }
+
+    /**
+     * Проверяет, что строка длиннее буфера отклоняется целиком, а разбор продолжается со следующей строки.
+     */
+    @Test
+    void testParse_RejectsLineLongerThanBuffer() throws IOException {
+        String csv = "01," + "7".repeat(200_000) + ",79992221122,2024-03-01T10:00,2024-03-01T10:05\n" +
+                "01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05";
+
+        List<PackedCdr> parsed = new ArrayList<>();
+        CdrCsvParser.Result result = new CdrCsvParser().parse(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.US_ASCII)),
+                (callType, caller, receiver, start, end) -> parsed.add(new PackedCdr(callType, caller, receiver, start, end)));
+
+        assertThat(result.accepted()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(1);
+        assertThat(parsed).extracting(PackedCdr::callerNumber).containsExactly(79991112233L);
+    }
+}
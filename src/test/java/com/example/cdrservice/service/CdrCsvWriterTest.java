@@ -0,0 +1,72 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.CdrCall;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CdrCsvWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Проверяет, что файл совпадает с записью через String.format, включая время без секунд,
+     * дробные секунды, отсутствующие значения и объём больше одного буфера.
+     */
+    @Test
+    void testWrite_MatchesStringFormat() throws IOException {
+        List<CdrCall> calls = new ArrayList<>();
+        calls.add(call("01", "79991112233", "79992221122",
+                LocalDateTime.of(2024, 3, 1, 10, 0), LocalDateTime.of(2024, 3, 1, 10, 5, 7)));
+        calls.add(call("02", "79993334455", null,
+                LocalDateTime.of(2024, 3, 1, 11, 0, 0, 120_000_000), LocalDateTime.of(2024, 3, 1, 11, 10, 0, 1_500)));
+        calls.add(call("01", "79991112233", "79992221122",
+                LocalDateTime.of(2024, 12, 31, 23, 59, 59, 123_456_000), null));
+        for (int i = 0; i < 5000; i++) {
+            LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0).plusSeconds(i * 7919L);
+            calls.add(call(i % 2 == 0 ? "01" : "02", "7999" + (1000000 + i), "7998" + (1000000 + i),
+                    start, start.plusSeconds(i % 7200)));
+        }
+
+        Path file = tempDir.resolve("report.csv");
+        new CdrCsvWriter().write(file, calls);
+
+        StringBuilder expected = new StringBuilder();
+        for (CdrCall call : calls) {
+            expected.append(String.format("%s,%s,%s,%s,%s\n",
+                    call.callType(),
+                    call.callerNumber(),
+                    call.receiverNumber(),
+                    call.startTime(),
+                    call.endTime()));
+        }
+        assertThat(Files.readString(file)).isEqualTo(expected.toString());
+    }
+
+    /**
+     * Проверяет, что повторная запись заменяет содержимое файла.
+     */
+    @Test
+    void testWrite_TruncatesExistingFile() throws IOException {
+        Path file = tempDir.resolve("report.csv");
+        Files.writeString(file, "old content that is longer than the new one\n".repeat(10));
+
+        new CdrCsvWriter().write(file, List.of(call("01", "79991112233", "79992221122",
+                LocalDateTime.of(2024, 3, 1, 10, 0), LocalDateTime.of(2024, 3, 1, 10, 5))));
+
+        assertThat(Files.readString(file)).isEqualTo("01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05\n");
+    }
+
+    private static CdrCall call(String callType, String caller, String receiver, LocalDateTime start, LocalDateTime end) {
+        return new CdrCall(callType, caller, receiver, start, end);
+    }
+}
@@ -111,4 +111,44 @@ class CdrGeneratorServiceTest {
         List<CdrRecord> records = cdrRecordRepository.findAll();
         assertThat(records).isNotEmpty();
     }
+
+    /**
+     * Проверяет, что итоги генерации совпадают с количеством сохранённых записей.
+     */
+    @Test
+    void testGenerateCdrRecords_Stats() {
+        CdrGenerationStats stats = cdrGeneratorService.generateCdrRecords();
+
+        assertThat(stats.records()).isEqualTo(cdrRecordRepository.count());
+        assertThat(stats.recordsPerSecond()).isPositive();
+    }
+
+    /**
+     * Проверяет, что догенерированные звонки начинаются после окончания самого позднего возможного
+     * сохранённого звонка и не позже текущего момента.
+     */
+    @Test
+    void testGenerateCdrRecordsAfter_StartsAfterExistingCalls() {
+        LocalDateTime latestStartTime = LocalDateTime.now().minusDays(30);
+
+        CdrGenerationStats stats = cdrGeneratorService.generateCdrRecordsAfter(latestStartTime);
+
+        List<CdrRecord> records = cdrRecordRepository.findAll();
+        assertThat(stats.records()).isEqualTo(records.size()).isPositive();
+        for (CdrRecord record : records) {
+            assertThat(record.getStartTime()).isAfterOrEqualTo(latestStartTime.plusHours(2).withNano(0));
+            assertThat(record.getStartTime()).isBefore(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Проверяет, что звонки не догенерируются, пока мог продолжаться самый поздний сохранённый звонок.
+     */
+    @Test
+    void testGenerateCdrRecordsAfter_RecentCalls() {
+        CdrGenerationStats stats = cdrGeneratorService.generateCdrRecordsAfter(LocalDateTime.now().minusMinutes(30));
+
+        assertThat(stats.records()).isZero();
+        assertThat(cdrRecordRepository.count()).isZero();
+    }
 }
@@ -0,0 +1,63 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.CdrIngestStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CdrIngestDirectoryWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final CdrIngestService ingestService = mock(CdrIngestService.class);
+
+    /**
+     * Проверяет, что загруженные файлы переносятся в processed, а файлы с ошибкой — в failed.
+     */
+    @Test
+    void testIngestExisting_MovesFiles() throws IOException {
+        Files.writeString(tempDir.resolve("good.csv"), "ok");
+        Files.writeString(tempDir.resolve("bad.csv"), "fail");
+        Files.writeString(tempDir.resolve("notes.txt"), "skip");
+        when(ingestService.ingest(any())).thenAnswer(invocation -> {
+            InputStream in = invocation.getArgument(0);
+            if (new String(in.readAllBytes()).equals("fail")) {
+                throw new IOException("broken file");
+            }
+            return new CdrIngestStats(1, 0, 2, 1, 1000);
+        });
+
+        new CdrIngestDirectoryWatcher(ingestService, tempDir.toString()).ingestExisting(tempDir);
+
+        assertThat(tempDir.resolve("processed/good.csv")).exists();
+        assertThat(tempDir.resolve("failed/bad.csv")).exists();
+        assertThat(tempDir.resolve("notes.txt")).exists();
+        assertThat(tempDir.resolve("good.csv")).doesNotExist();
+        assertThat(tempDir.resolve("bad.csv")).doesNotExist();
+    }
+
+    /**
+     * Проверяет, что без заданного каталога отслеживание не запускается.
+     */
+    @Test
+    void testStart_DisabledWithoutDirectory() throws IOException {
+        CdrIngestDirectoryWatcher watcher = new CdrIngestDirectoryWatcher(ingestService, "");
+
+        watcher.start();
+        watcher.stop();
+
+        verify(ingestService, never()).ingest(any());
+    }
+}
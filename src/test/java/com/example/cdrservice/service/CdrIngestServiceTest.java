@@ -0,0 +1,104 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.CdrIngestStats;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.CdrRecordBatchWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CdrIngestServiceTest {
+
+    @Mock
+    private CdrRecordBatchWriter cdrRecordBatchWriter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ExecutorService writerExecutor;
+    private CdrIngestService ingestService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        writerExecutor = Executors.newSingleThreadExecutor();
+        ingestService = new CdrIngestService(cdrRecordBatchWriter, eventPublisher,
+                TransactionOperations.withoutTransaction(), writerExecutor, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writerExecutor.shutdownNow();
+    }
+
+    /**
+     * Проверяет загрузку партиями в порядке строк файла, публикацию событий и подсчёт отклонённых строк.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testIngest_SavesBatchesInOrder() throws IOException {
+        CdrIngestStats stats = ingestService.ingest(csv(
+                "01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05",
+                "02,79992221122,79991112233,2024-03-02T10:00,2024-03-02T10:10",
+                "01,79991112233,79993334455,2024-03-03T10:00,2024-03-03T10:01",
+                "broken row",
+                "02,79993334455,79991112233,2024-03-04T10:00,2024-03-04T10:02",
+                "01,79992221122,79993334455,2024-03-05T10:00,2024-03-05T10:03"));
+
+        assertThat(stats.accepted()).isEqualTo(5);
+        assertThat(stats.rejected()).isEqualTo(1);
+
+        ArgumentCaptor<List<CdrRecord>> batches = ArgumentCaptor.forClass(List.class);
+        verify(cdrRecordBatchWriter, times(3)).insert(batches.capture());
+        assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(batches.getAllValues().stream().flatMap(List::stream).map(CdrRecord::getStartTime).toList())
+                .containsExactly(
+                        LocalDateTime.of(2024, 3, 1, 10, 0),
+                        LocalDateTime.of(2024, 3, 2, 10, 0),
+                        LocalDateTime.of(2024, 3, 3, 10, 0),
+                        LocalDateTime.of(2024, 3, 4, 10, 0),
+                        LocalDateTime.of(2024, 3, 5, 10, 0));
+        verify(eventPublisher, times(3)).publishEvent(any(CdrRecordsSavedEvent.class));
+    }
+
+    /**
+     * Проверяет, что ошибка записи партии прерывает загрузку и передаётся вызывающему.
+     */
+    @Test
+    void testIngest_PropagatesWriteFailure() {
+        doThrow(new DataIntegrityViolationException("duplicate")).when(cdrRecordBatchWriter).insert(any());
+
+        assertThatThrownBy(() -> ingestService.ingest(csv(
+                "01,79991112233,79992221122,2024-03-01T10:00,2024-03-01T10:05",
+                "02,79992221122,79991112233,2024-03-02T10:00,2024-03-02T10:10")))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private static InputStream csv(String... lines) {
+        return new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CdrPartitionServiceTest {
+
+    private final CdrRecordRepository cdrRecordRepository = mock(CdrRecordRepository.class);
+    private final UdrRollupService udrRollupService = mock(UdrRollupService.class);
+    private final UdrReportCache udrReportCache = mock(UdrReportCache.class);
+    private final ColumnarCdrStore columnarCdrStore = mock(ColumnarCdrStore.class);
+    private final CdrPartitionService service = new CdrPartitionService(cdrRecordRepository, udrRollupService,
+            udrReportCache, columnarCdrStore, TransactionOperations.withoutTransaction());
+
+    /**
+     * Проверяет, что вместе с записями месяца удаляются его агрегаты, очищается кэш отчётов,
+     * а из хранилища удаляются звонки месяца.
+     */
+    @Test
+    void testDropPartition() {
+        when(cdrRecordRepository.deleteByBillingMonth("2024-03")).thenReturn(7);
+        when(udrRollupService.deleteMonth("2024-03")).thenReturn(3);
+
+        assertThat(service.dropPartition("2024-03")).isEqualTo(7);
+
+        verify(udrRollupService).deleteMonth("2024-03");
+        verify(udrReportCache).clear();
+        verify(columnarCdrStore).evict(CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 1, 0, 0)),
+                CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 31, 23, 59, 59)));
+        verify(columnarCdrStore, never()).reload();
+    }
+
+    /**
+     * Проверяет, что удаление пустого месяца не сбрасывает кэш и хранилище.
+     */
+    @Test
+    void testDropPartition_Empty() {
+        when(cdrRecordRepository.deleteByBillingMonth("2024-03")).thenReturn(0);
+
+        assertThat(service.dropPartition("2024-03")).isZero();
+
+        verify(udrReportCache, never()).clear();
+        verify(columnarCdrStore, never()).evict(anyLong(), anyLong());
+    }
+
+    /**
+     * Проверяет, что агрегаты месяца без записей тоже удаляются, а кэш отчётов очищается.
+     */
+    @Test
+    void testDropPartition_OnlyRollups() {
+        when(cdrRecordRepository.deleteByBillingMonth("2024-03")).thenReturn(0);
+        when(udrRollupService.deleteMonth("2024-03")).thenReturn(3);
+
+        assertThat(service.dropPartition("2024-03")).isZero();
+
+        verify(udrReportCache).clear();
+        verify(columnarCdrStore, never()).evict(anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrReportJob;
+import com.example.cdrservice.repository.CdrReportJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+class CdrReportJobServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 3, 31, 23, 59, 59);
+
+    @Mock
+    private CdrReportJobRepository jobRepository;
+
+    @Mock
+    private UdrService udrService;
+
+    private final Map<String, CdrReportJob> jobs = new HashMap<>();
+    private ExecutorService executor;
+    private CdrReportJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        // Репозиторий заданий хранит состояние в памяти
+        when(jobRepository.save(any())).thenAnswer(invocation -> {
+            CdrReportJob job = invocation.getArgument(0);
+            jobs.put(job.getId(), job);
+            return job;
+        });
+        when(jobRepository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(jobs.get(invocation.getArgument(0))));
+
+        executor = Executors.newSingleThreadExecutor();
+        jobService = new CdrReportJobService(jobRepository, udrService, executor);
+    }
+
+    /**
+     * Проверяет, что задание возвращает идентификатор сразу, а после выполнения переходит в статус COMPLETED.
+     */
+    @Test
+    void testSubmit_Completes() throws InterruptedException {
+        when(udrService.writeCdrReport(eq("79991112233"), eq(START), eq(END), anyString()))
+                .thenAnswer(invocation -> Path.of("reports", "79991112233_" + invocation.getArgument(3) + ".csv"));
+
+        String id = jobService.submit("79991112233", START, END);
+        awaitJobs();
+
+        CdrReportJob job = jobService.findJob(id).orElseThrow();
+        assertThat(job.getStatus()).isEqualTo(CdrReportJob.Status.COMPLETED);
+        assertThat(job.getFilePath()).isEqualTo(Path.of("reports", "79991112233_" + id + ".csv").toString());
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    /**
+     * Проверяет, что ошибка генерации сохраняется в задании со статусом FAILED.
+     */
+    @Test
+    void testSubmit_Fails() throws InterruptedException {
+        when(udrService.writeCdrReport(any(), any(), any(), any()))
+                .thenThrow(new RuntimeException("No records found for the specified period."));
+
+        String id = jobService.submit("79991112233", START, END);
+        awaitJobs();
+
+        CdrReportJob job = jobService.findJob(id).orElseThrow();
+        assertThat(job.getStatus()).isEqualTo(CdrReportJob.Status.FAILED);
+        assertThat(job.getErrorMessage()).isEqualTo("No records found for the specified period.");
+    }
+
+    /**
+     * Проверяет, что при {@link Error} задание всё равно получает статус FAILED, а длинное сообщение обрезается.
+     */
+    @Test
+    void testRun_SavesFailureOnError() {
+        CdrReportJob job = new CdrReportJob("123e4567-e89b-12d3-a456-426614174000", "79991112233", START, END);
+        jobs.put(job.getId(), job);
+        when(udrService.writeCdrReport(any(), any(), any(), any())).thenThrow(new OutOfMemoryError("x".repeat(1000)));
+
+        assertThatThrownBy(() -> jobService.run(job.getId())).isInstanceOf(OutOfMemoryError.class);
+
+        assertThat(job.getStatus()).isEqualTo(CdrReportJob.Status.FAILED);
+        assertThat(job.getErrorMessage()).hasSize(CdrReportJob.ERROR_MESSAGE_LENGTH);
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    /**
+     * Проверяет, что незавершённые до перезапуска задания выполняются повторно.
+     */
+    @Test
+    void testResumeUnfinishedJobs() throws InterruptedException {
+        CdrReportJob interrupted = new CdrReportJob("123e4567-e89b-12d3-a456-426614174000", "79991112233", START, END);
+        interrupted.markRunning();
+        jobs.put(interrupted.getId(), interrupted);
+
+        when(jobRepository.findByStatusIn(any())).thenReturn(List.of(interrupted));
+        when(udrService.writeCdrReport(any(), any(), any(), any())).thenReturn(Path.of("reports", "report.csv"));
+
+        jobService.resumeUnfinishedJobs();
+        awaitJobs();
+
+        assertThat(interrupted.getStatus()).isEqualTo(CdrReportJob.Status.COMPLETED);
+    }
+
+    private void awaitJobs() throws InterruptedException {
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.compact.PackedCdr;
+import com.example.cdrservice.compact.PackedCdrConsumer;
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.PackedCdrReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ColumnarCdrStoreTest {
+
+    private static final long FIRST = 79991112233L;
+    private static final long SECOND = 79992221122L;
+
+    private ColumnarCdrStore store;
+
+    private PackedCdrReader reader;
+
+    @BeforeEach
+    void setUp() {
+        reader = mock(PackedCdrReader.class);
+        when(reader.findMaxId()).thenReturn(3L);
+        doAnswer(invocation -> {
+            PackedCdrConsumer consumer = invocation.getArgument(1);
+            consumer.accept(CdrCodec.OUTCOMING_CALL, FIRST, SECOND, epoch(2024, 3, 1, 10), epoch(2024, 3, 1, 10) + 300);
+            consumer.accept(CdrCodec.INCOMING_CALL, SECOND, FIRST, epoch(2024, 3, 31, 23), epoch(2024, 3, 31, 23) + 600);
+            consumer.accept(CdrCodec.OUTCOMING_CALL, SECOND, FIRST, epoch(2024, 4, 1, 0), epoch(2024, 4, 1, 0) + 60);
+            return null;
+        }).when(reader).forEachOrderedByStartTime(eq(3L), any());
+
+        store = new ColumnarCdrStore(reader, true);
+        store.load();
+    }
+
+    /**
+     * Проверяет, что агрегация учитывает только звонки, начавшиеся в границах периода.
+     */
+    @Test
+    void testAggregate_PeriodBounds() {
+        MsisdnTotals totals = store.aggregate(epoch(2024, 3, 1, 10), epoch(2024, 3, 31, 23));
+
+        assertThat(store.isReady()).isTrue();
+        assertThat(totals.size()).isEqualTo(2);
+        assertThat(totals.outcomingSeconds(FIRST)).isEqualTo(300);
+        assertThat(totals.incomingSeconds(FIRST)).isEqualTo(600);
+        assertThat(totals.outcomingSeconds(SECOND)).isZero();
+    }
+
+    /**
+     * Проверяет, что добавленные не по порядку записи вливаются в хранилище с сохранением сортировки.
+     */
+    @Test
+    void testAppend_OutOfOrder() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 15, 12, 0);
+        PackedCdr late = new PackedCdr(CdrCodec.OUTCOMING_CALL, FIRST, SECOND,
+                CdrCodec.toEpochSecond(start), CdrCodec.toEpochSecond(start) + 120);
+        PackedCdr early = new PackedCdr(CdrCodec.INCOMING_CALL, SECOND, FIRST,
+                epoch(2024, 2, 1, 0), epoch(2024, 2, 1, 0) + 30);
+
+        store.append(List.of(late, early));
+
+        assertThat(store.size()).isEqualTo(5);
+        assertThat(store.totalsFor(FIRST, epoch(2024, 3, 1, 0), epoch(2024, 3, 31, 23)).outcomingSeconds(FIRST))
+                .isEqualTo(420);
+        assertThat(store.totalsFor(FIRST, epoch(2024, 2, 1, 0), epoch(2024, 2, 1, 0)).incomingSeconds(FIRST))
+                .isEqualTo(30);
+    }
+
+    /**
+     * Проверяет, что записи, сохранённые во время загрузки, не теряются и не учитываются дважды:
+     * прочитанные загрузкой записи пропускаются, остальные добавляются после загрузки.
+     */
+    @Test
+    void testReload_AppliesRecordsSavedDuringLoad() {
+        ColumnarCdrStore reloading = new ColumnarCdrStore(reader, true);
+        when(reader.findMaxId()).thenReturn(4L);
+        doAnswer(invocation -> {
+            PackedCdrConsumer consumer = invocation.getArgument(1);
+            reloading.onCdrRecordsSaved(new CdrRecordsSavedEvent(List.of(
+                    record(4L, "02", "79992221122", "79991112233", LocalDateTime.of(2024, 3, 10, 9, 0), 40),
+                    record(5L, "01", "79991112233", "79992221122", LocalDateTime.of(2024, 3, 20, 9, 0), 50))));
+            consumer.accept(CdrCodec.INCOMING_CALL, SECOND, FIRST, epoch(2024, 3, 10, 9), epoch(2024, 3, 10, 9) + 40);
+            return null;
+        }).when(reader).forEachOrderedByStartTime(eq(4L), any());
+
+        reloading.load();
+
+        assertThat(reloading.size()).isEqualTo(2);
+        MsisdnTotals totals = reloading.totalsFor(FIRST, epoch(2024, 3, 1, 0), epoch(2024, 3, 31, 23));
+        assertThat(totals.incomingSeconds(FIRST)).isEqualTo(40);
+        assertThat(totals.outcomingSeconds(FIRST)).isEqualTo(50);
+    }
+
+    /**
+     * Проверяет, что удаление периода убирает звонки как из упорядоченных колонок, так и из неупорядоченного сегмента.
+     */
+    @Test
+    void testEvict() {
+        store.append(List.of(new PackedCdr(CdrCodec.OUTCOMING_CALL, FIRST, SECOND,
+                epoch(2024, 3, 15, 12), epoch(2024, 3, 15, 12) + 120)));
+
+        store.evict(epoch(2024, 3, 1, 0), epoch(2024, 4, 1, 0) - 1);
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.aggregate(epoch(2024, 3, 1, 0), epoch(2024, 3, 31, 23)).isEmpty()).isTrue();
+        assertThat(store.totalsFor(SECOND, epoch(2024, 4, 1, 0), epoch(2024, 4, 1, 0)).outcomingSeconds(SECOND))
+                .isEqualTo(60);
+    }
+
+    /**
+     * Проверяет, что абонент без звонков в периоде отсутствует в результате.
+     */
+    @Test
+    void testTotalsFor_NoCallsInPeriod() {
+        MsisdnTotals totals = store.totalsFor(FIRST, epoch(2024, 5, 1, 0), epoch(2024, 5, 31, 23));
+
+        assertThat(totals.contains(FIRST)).isFalse();
+    }
+
+    private static CdrRecord record(Long id, String callType, String caller, String receiver,
+                                    LocalDateTime start, int durationSeconds) {
+        CdrRecord record = new CdrRecord();
+        record.setId(id);
+        record.setCallType(callType);
+        record.setCallerNumber(caller);
+        record.setReceiverNumber(receiver);
+        record.setStartTime(start);
+        record.setEndTime(start.plusSeconds(durationSeconds));
+        return record;
+    }
+
+    private static long epoch(int year, int month, int day, int hour) {
+        return CdrCodec.toEpochSecond(LocalDateTime.of(year, month, day, hour, 0));
+    }
+}
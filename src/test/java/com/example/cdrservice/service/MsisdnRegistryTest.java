@@ -0,0 +1,79 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MsisdnRegistryTest {
+
+    private final CdrRecordRepository cdrRecordRepository = mock(CdrRecordRepository.class);
+    private final MsisdnRegistry registry = new MsisdnRegistry(cdrRecordRepository);
+
+    /**
+     * Проверяет, что реестр загружается из базы данных один раз и отвечает без повторных запросов.
+     */
+    @Test
+    void testMightContain_LoadsOnce() {
+        when(cdrRecordRepository.findAllMsisdns()).thenReturn(List.of("79991112233", "79992221122"));
+
+        assertThat(registry.mightContain("79991112233")).isTrue();
+        assertThat(registry.mightContain("79992221122")).isTrue();
+        assertThat(registry.mightContain("79993334455")).isFalse();
+        assertThat(registry.mightContain("")).isFalse();
+        assertThat(registry.hasNonEncodableMsisdns()).isFalse();
+
+        verify(cdrRecordRepository, times(1)).findAllMsisdns();
+    }
+
+    /**
+     * Проверяет, что участники сохранённых звонков добавляются в реестр.
+     */
+    @Test
+    void testOnCdrRecordsSaved() {
+        when(cdrRecordRepository.findAllMsisdns()).thenReturn(List.of());
+
+        CdrRecord record = new CdrRecord();
+        record.setCallType("01");
+        record.setCallerNumber("79993334455");
+        record.setReceiverNumber("79994445566");
+        record.setStartTime(LocalDateTime.of(2024, 3, 1, 10, 0));
+        record.setEndTime(LocalDateTime.of(2024, 3, 1, 10, 5));
+        registry.onCdrRecordsSaved(new CdrRecordsSavedEvent(List.of(record)));
+
+        assertThat(registry.mightContain("79993334455")).isTrue();
+        assertThat(registry.mightContain("79994445566")).isTrue();
+        assertThat(registry.mightContain("79991112233")).isFalse();
+    }
+
+    /**
+     * Проверяет, что номер, не укладывающийся в компактное представление, не отсекается реестром,
+     * а реестр отмечает появление таких номеров.
+     */
+    @Test
+    void testMightContain_TooLongMsisdn() {
+        when(cdrRecordRepository.findAllMsisdns()).thenReturn(List.of());
+
+        assertThat(registry.mightContain("7999111223344556677889")).isTrue();
+        assertThat(registry.mightContain("079991112233")).isTrue();
+        assertThat(registry.hasNonEncodableMsisdns()).isFalse();
+
+        CdrRecord record = new CdrRecord();
+        record.setCallType("01");
+        record.setCallerNumber("079991112233");
+        record.setReceiverNumber("79994445566");
+        record.setStartTime(LocalDateTime.of(2024, 3, 1, 10, 0));
+        record.setEndTime(LocalDateTime.of(2024, 3, 1, 10, 5));
+        registry.onCdrRecordsSaved(new CdrRecordsSavedEvent(List.of(record)));
+        assertThat(registry.hasNonEncodableMsisdns()).isTrue();
+        assertThat(registry.mightContain("+79991112233")).isFalse();
+    }
+}
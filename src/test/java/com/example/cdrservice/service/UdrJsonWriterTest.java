@@ -0,0 +1,76 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.dto.UdrTotals;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UdrJsonWriterTest {
+
+    /**
+     * Проверяет, что вывод совпадает с прежним форматированием через String.format,
+     * в том числе для нулевых длительностей и длительностей больше 99 часов.
+     */
+    @Test
+    void testWriteUdr_MatchesStringFormat() {
+        long[] durations = {0, 9, 59, 60, 3599, 3600, 86_399, 360_000, 1_000_000};
+        for (long incoming : durations) {
+            for (long outcoming : durations) {
+                String expected = legacyFormat("79991112233", incoming, outcoming);
+
+                assertThat(new UdrJsonWriter().writeUdr("79991112233", incoming, outcoming).toString()).isEqualTo(expected);
+                assertThat(new UdrJsonWriter().writeUdr(79991112233L, incoming, outcoming).toString()).isEqualTo(expected);
+            }
+        }
+    }
+
+    /**
+     * Проверяет накопление строк, расширение буфера и сброс буфера в поток.
+     */
+    @Test
+    void testFlushTo() throws IOException {
+        UdrJsonWriter writer = new UdrJsonWriter(16);
+        writer.writeUdr(79991112233L, 600, 0).newLine();
+        writer.writeUdr("79992221122", 0, 300).newLine();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.flushTo(out);
+
+        assertThat(writer.size()).isZero();
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                legacyFormat("79991112233", 600, 0) + "\n" + legacyFormat("79992221122", 0, 300) + "\n");
+    }
+
+    /**
+     * Проверяет, что параллельная сериализация через коллектор сохраняет порядок элементов потока.
+     */
+    @Test
+    void testToReports_ParallelKeepsOrder() {
+        List<UdrTotals> totals = IntStream.range(0, 50_000)
+                .mapToObj(i -> new UdrTotals(String.valueOf(79_990_000_000L + i), i, 2L * i))
+                .toList();
+
+        UdrJsonWriter expected = new UdrJsonWriter();
+        for (UdrTotals subscriber : totals) {
+            expected.writeUdr(subscriber.msisdn(), subscriber.incomingSeconds(), subscriber.outcomingSeconds()).newLine();
+        }
+
+        assertThat(totals.parallelStream().collect(UdrJsonWriter.toReports())).isEqualTo(expected.toString());
+    }
+
+    private static String legacyFormat(String msisdn, long incomingSeconds, long outcomingSeconds) {
+        return String.format("{\"msisdn\": \"%s\", \"incomingCall\": {\"totalTime\": \"%s\"}, \"outcomingCall\": {\"totalTime\": \"%s\"}}",
+                msisdn, legacyDuration(Duration.ofSeconds(incomingSeconds)), legacyDuration(Duration.ofSeconds(outcomingSeconds)));
+    }
+
+    private static String legacyDuration(Duration duration) {
+        return String.format("%02d:%02d:%02d", duration.toHours(), duration.toMinutes() % 60, duration.getSeconds() % 60);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UdrReportCacheTest {
+
+    private final UdrReportCache cache = new UdrReportCache(100, Duration.ofMinutes(1));
+
+    /**
+     * Проверяет, что новая запись сбрасывает отчёты участников звонка только за её месяц и за весь период.
+     */
+    @Test
+    void testOnCdrRecordsSaved_InvalidatesAffectedKeysOnly() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("79991112233", "2024-03", () -> "march-" + loads.incrementAndGet());
+        cache.get("79991112233", "2024-02", () -> "february-" + loads.incrementAndGet());
+        cache.get("79991112233", null, () -> "all-" + loads.incrementAndGet());
+        cache.get("79992221122", "2024-03", () -> "receiver-" + loads.incrementAndGet());
+        cache.get("79993334455", "2024-03", () -> "other-" + loads.incrementAndGet());
+
+        CdrRecord record = new CdrRecord();
+        record.setCallType("01");
+        record.setCallerNumber("79991112233");
+        record.setReceiverNumber("79992221122");
+        record.setStartTime(LocalDateTime.of(2024, 3, 15, 10, 0));
+        record.setEndTime(LocalDateTime.of(2024, 3, 15, 10, 5));
+        cache.onCdrRecordsSaved(new CdrRecordsSavedEvent(List.of(record)));
+
+        assertThat(cache.get("79991112233", "2024-02", () -> "reloaded")).isEqualTo("february-2");
+        assertThat(cache.get("79993334455", "2024-03", () -> "reloaded")).isEqualTo("other-5");
+        assertThat(cache.get("79991112233", "2024-03", () -> "reloaded")).isEqualTo("reloaded");
+        assertThat(cache.get("79991112233", null, () -> "reloaded")).isEqualTo("reloaded");
+        assertThat(cache.get("79992221122", "2024-03", () -> "reloaded")).isEqualTo("reloaded");
+    }
+
+    /**
+     * Проверяет учёт попаданий и промахов.
+     */
+    @Test
+    void testStats() {
+        cache.get("79991112233", "2024-03", () -> "report");
+        cache.get("79991112233", "2024-03", () -> "report");
+        cache.get("79991112233", "2024-03", () -> "report");
+
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(2);
+        assertThat(cache.stats().size()).isEqualTo(1);
+    }
+}
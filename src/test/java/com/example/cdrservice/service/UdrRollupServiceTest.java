@@ -0,0 +1,98 @@
+package com.example.cdrservice.service;
+
+import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.entity.UdrMonthlyRollup;
+import com.example.cdrservice.entity.UdrMonthlyRollupId;
+import com.example.cdrservice.repository.CdrRecordRepository;
+import com.example.cdrservice.repository.PackedCdrReader;
+import com.example.cdrservice.repository.UdrMonthlyRollupRepository;
+import com.example.cdrservice.repository.UdrRollupBatchWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({UdrRollupService.class, UdrRollupBatchWriter.class, PackedCdrReader.class})
+class UdrRollupServiceTest {
+
+    @Autowired
+    private UdrRollupService udrRollupService;
+
+    @Autowired
+    private UdrMonthlyRollupRepository rollupRepository;
+
+    @Autowired
+    private CdrRecordRepository cdrRecordRepository;
+
+    /**
+     * Проверяет, что повторное применение записей увеличивает уже существующие агрегаты,
+     * а записи разных месяцев попадают в разные агрегаты.
+     */
+    @Test
+    void testApplyRecords_Accumulates() {
+        udrRollupService.applyRecords(List.of(
+                record("01", "79991112233", "79992221122", LocalDateTime.of(2024, 3, 1, 10, 0), 300)));
+        udrRollupService.applyRecords(List.of(
+                record("01", "79991112233", "79992221122", LocalDateTime.of(2024, 3, 5, 10, 0), 60),
+                record("02", "79992221122", "79991112233", LocalDateTime.of(2024, 4, 1, 10, 0), 600)));
+
+        UdrMonthlyRollup march = rollupRepository.findById(new UdrMonthlyRollupId("79991112233", "2024-03")).orElseThrow();
+        assertThat(march.getOutcomingSeconds()).isEqualTo(360);
+        assertThat(march.getIncomingSeconds()).isZero();
+
+        UdrMonthlyRollup april = rollupRepository.findById(new UdrMonthlyRollupId("79991112233", "2024-04")).orElseThrow();
+        assertThat(april.getIncomingSeconds()).isEqualTo(600);
+
+        // Второй участник звонка тоже получает агрегат, даже с нулевой длительностью
+        assertThat(rollupRepository.findById(new UdrMonthlyRollupId("79992221122", "2024-03"))).isPresent();
+    }
+
+    /**
+     * Проверяет, что полный пересчёт восстанавливает агрегаты по исходным CDR-записям.
+     */
+    @Test
+    void testRebuild() {
+        cdrRecordRepository.saveAll(List.of(
+                record("01", "79991112233", "79992221122", LocalDateTime.of(2024, 3, 1, 10, 0), 300),
+                record("02", "79993334455", "79991112233", LocalDateTime.of(2024, 5, 1, 10, 0), 120)));
+
+        int rebuilt = udrRollupService.rebuild();
+
+        assertThat(rebuilt).isEqualTo(4);
+        assertThat(rollupRepository.findByIdMonth("2024-03")).hasSize(2);
+        assertThat(rollupRepository.findByIdMonth("2024-04")).isEmpty();
+        assertThat(rollupRepository.findById(new UdrMonthlyRollupId("79991112233", "2024-05")).orElseThrow()
+                .getIncomingSeconds()).isEqualTo(120);
+    }
+
+    /**
+     * Проверяет, что удаление агрегатов месяца не затрагивает другие месяцы.
+     */
+    @Test
+    void testDeleteMonth() {
+        udrRollupService.applyRecords(List.of(
+                record("01", "79991112233", "79992221122", LocalDateTime.of(2024, 3, 1, 10, 0), 300),
+                record("01", "79991112233", "79992221122", LocalDateTime.of(2024, 4, 1, 10, 0), 60)));
+
+        assertThat(udrRollupService.deleteMonth("2024-03")).isEqualTo(2);
+
+        assertThat(rollupRepository.findByIdMonth("2024-03")).isEmpty();
+        assertThat(rollupRepository.findByIdMsisdn("79991112233")).hasSize(1);
+    }
+
+    private CdrRecord record(String callType, String caller, String receiver, LocalDateTime start, long seconds) {
+        CdrRecord record = new CdrRecord();
+        record.setCallType(callType);
+        record.setCallerNumber(caller);
+        record.setReceiverNumber(receiver);
+        record.setStartTime(start);
+        record.setEndTime(start.plusSeconds(seconds));
+        return record;
+    }
+}
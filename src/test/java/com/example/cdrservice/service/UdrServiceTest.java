@@ -1,20 +1,39 @@
 package com.example.cdrservice.service;
 
+import com.example.cdrservice.compact.CdrCodec;
+import com.example.cdrservice.compact.MsisdnTotals;
+import com.example.cdrservice.dto.CdrCall;
+import com.example.cdrservice.dto.UdrTotals;
 import com.example.cdrservice.entity.CdrRecord;
+import com.example.cdrservice.entity.UdrMonthlyRollup;
+import com.example.cdrservice.entity.UdrMonthlyRollupId;
 import com.example.cdrservice.repository.CdrRecordRepository;
+import com.example.cdrservice.repository.UdrMonthlyRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -24,12 +43,33 @@ class UdrServiceTest {
     @Mock
     private CdrRecordRepository cdrRecordRepository;
 
+    @Mock
+    private UdrMonthlyRollupRepository rollupRepository;
+
+    @Mock
+    private ColumnarCdrStore columnarCdrStore;
+
+    @Mock
+    private MsisdnRegistry msisdnRegistry;
+
+    @Mock
+    private BillingPeriodTracker billingPeriodTracker;
+
+    @Spy
+    private UdrReportCache udrReportCache = new UdrReportCache(100, Duration.ofMinutes(1));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private UdrMetrics udrMetrics = new UdrMetrics(meterRegistry);
+
     @InjectMocks
     private UdrService udrService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(msisdnRegistry.mightContain(any())).thenReturn(true);
     }
 
     /**
@@ -50,11 +90,11 @@ class UdrServiceTest {
         record2.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
         record2.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
 
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(cdrRecordRepository.sumDurationsForMsisdnInPeriod(
                 "79991112233",
                 LocalDateTime.of(2024, 3, 1, 0, 0),
                 LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
-                .thenReturn(Arrays.asList(record1, record2));
+                .thenReturn(totalsFor("79991112233", record1, record2));
 
         String result = udrService.generateUdrReport("79991112233", "2024-03");
 
@@ -68,7 +108,7 @@ class UdrServiceTest {
      */
     @Test
     void testGenerateUdrReport_NoRecords() {
-        when(cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber("79991112233")).thenReturn(true);
+        when(msisdnRegistry.mightContain("79991112233")).thenReturn(false);
 
         String result = udrService.generateUdrReport("79991112233", "2024-03");
 
@@ -86,11 +126,11 @@ class UdrServiceTest {
         record.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
         record.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
 
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(cdrRecordRepository.sumDurationsForMsisdnInPeriod(
                 "79991112233",
                 LocalDateTime.of(2024, 3, 1, 0, 0),
                 LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
-                .thenReturn(List.of(record));
+                .thenReturn(totalsFor("79991112233", record));
 
         String result = udrService.generateUdrReport("79991112233", "2024-03");
 
@@ -110,11 +150,11 @@ class UdrServiceTest {
         record.setStartTime(LocalDateTime.of(2024, 3, 1, 10, 0));
         record.setEndTime(LocalDateTime.of(2024, 3, 1, 10, 5));
 
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(cdrRecordRepository.sumDurationsForMsisdnInPeriod(
                 "79991112233",
                 LocalDateTime.of(2024, 3, 1, 0, 0),
                 LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
-                .thenReturn(List.of(record));
+                .thenReturn(totalsFor("79991112233", record));
 
         String result = udrService.generateUdrReport("79991112233", "2024-03");
 
@@ -128,9 +168,7 @@ class UdrServiceTest {
      */
     @Test
     void testGenerateAllUdrReports_NoRecords() {
-        when(cdrRecordRepository.findByStartTimeBetween(
-                LocalDateTime.of(2024, 3, 1, 0, 0),
-                LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
+        when(cdrRecordRepository.sumDurationsByBillingMonth("2024-03"))
                 .thenReturn(List.of());
 
         String result = udrService.generateAllUdrReports("2024-03");
@@ -155,10 +193,8 @@ class UdrServiceTest {
         record2.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
         record2.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
 
-        when(cdrRecordRepository.findByStartTimeBetween(
-                LocalDateTime.of(2024, 3, 1, 0, 0),
-                LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
-                .thenReturn(Arrays.asList(record1, record2));
+        when(cdrRecordRepository.sumDurationsByBillingMonth("2024-03"))
+                .thenReturn(monthTotals(record1, record2));
 
         String result = udrService.generateAllUdrReports("2024-03");
 
@@ -171,16 +207,56 @@ class UdrServiceTest {
         assertThat(result).contains("\"totalTime\": \"00:00:00\""); // Исходящие для 79992221122
     }
 
+    /**
+     * Проверяет, что за один проход длительности учитываются у нужной стороны звонка:
+     * исходящий звонок — у вызывающего абонента, входящий — у принимающего,
+     * а второй участник получает отчёт с нулевой длительностью.
+     */
+    @Test
+    void testGenerateAllUdrReports_SinglePassTotals() {
+        CdrRecord record1 = new CdrRecord();
+        record1.setCallType("01");
+        record1.setCallerNumber("79991112233");
+        record1.setReceiverNumber("79992221122");
+        record1.setStartTime(LocalDateTime.of(2024, 3, 1, 10, 0));
+        record1.setEndTime(LocalDateTime.of(2024, 3, 1, 10, 5));
+
+        CdrRecord record2 = new CdrRecord();
+        record2.setCallType("02");
+        record2.setCallerNumber("79992221122");
+        record2.setReceiverNumber("79991112233");
+        record2.setStartTime(LocalDateTime.of(2024, 3, 2, 11, 0));
+        record2.setEndTime(LocalDateTime.of(2024, 3, 2, 12, 10, 15));
+
+        CdrRecord record3 = new CdrRecord();
+        record3.setCallType("01");
+        record3.setCallerNumber("79991112233");
+        record3.setReceiverNumber("79993334455");
+        record3.setStartTime(LocalDateTime.of(2024, 3, 3, 9, 0));
+        record3.setEndTime(LocalDateTime.of(2024, 3, 3, 9, 0, 30));
+
+        when(cdrRecordRepository.sumDurationsByBillingMonth("2024-03"))
+                .thenReturn(monthTotals(record1, record2, record3));
+
+        String result = udrService.generateAllUdrReports("2024-03");
+
+        assertThat(result.split("\n")).containsExactly(
+                "{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"01:10:15\"}, \"outcomingCall\": {\"totalTime\": \"00:05:30\"}}",
+                "{\"msisdn\": \"79992221122\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}",
+                "{\"msisdn\": \"79993334455\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}"
+        );
+    }
+
     /**
      * Проверяет поведение сервиса, если за указанный период нет записей для генерации CDR-отчёта.
      */
     @Test
     void testGenerateCdrReport_NoRecords() {
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(cdrRecordRepository.streamCallsForMsisdnInPeriod(
                 "79991112233",
                 LocalDateTime.of(2024, 3, 1, 0, 0),
                 LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
-                .thenReturn(List.of());
+                .thenReturn(Stream.empty());
 
         try {
             udrService.generateCdrReport("79991112233", "2024-03-01T00:00:00", "2024-03-31T23:59:59");
@@ -208,11 +284,11 @@ class UdrServiceTest {
         record2.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
         record2.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
 
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(cdrRecordRepository.streamCallsForMsisdnInPeriod(
                 "79991112233",
                 LocalDateTime.of(2024, 3, 1, 0, 0),
                 LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
-                .thenReturn(Arrays.asList(record1, record2));
+                .thenReturn(calls(record1, record2).stream());
 
         String reportId = udrService.generateCdrReport("79991112233", "2024-03-01T00:00:00", "2024-03-31T23:59:59");
 
@@ -234,11 +310,11 @@ class UdrServiceTest {
         record.setStartTime(LocalDateTime.of(2024, 3, 1, 10, 0));
         record.setEndTime(LocalDateTime.of(2024, 3, 1, 10, 5));
 
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(cdrRecordRepository.sumDurationsForMsisdnInPeriod(
                 "79991112233",
                 LocalDateTime.of(2024, 3, 1, 0, 0),
                 LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
-                .thenReturn(List.of(record));
+                .thenReturn(totalsFor("79991112233", record));
 
         String result = udrService.generateUdrReport(msisdn, month);
 
@@ -246,7 +322,7 @@ class UdrServiceTest {
     }
 
     /**
-     * Использование findEarliestStartTime и findLatestEndTime.
+     * Использование отслеживаемых границ тарифицируемого периода вместо запросов MIN/MAX.
      */
     @Test
     void testGenerateUdrReport_WithoutMonth() {
@@ -258,14 +334,14 @@ class UdrServiceTest {
         record1.setStartTime(LocalDateTime.of(2024, 3, 1, 10, 0));
         record1.setEndTime(LocalDateTime.of(2024, 3, 1, 10, 5));
 
-        when(cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber(msisdn)).thenReturn(false);
-        when(cdrRecordRepository.findEarliestStartTime()).thenReturn(LocalDateTime.of(2024, 3, 1, 10, 0));
-        when(cdrRecordRepository.findLatestEndTime()).thenReturn(LocalDateTime.of(2024, 3, 1, 10, 5));
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(msisdnRegistry.mightContain(msisdn)).thenReturn(true);
+        when(billingPeriodTracker.getEarliestStartTime()).thenReturn(LocalDateTime.of(2024, 3, 1, 10, 0));
+        when(billingPeriodTracker.getLatestEndTime()).thenReturn(LocalDateTime.of(2024, 3, 1, 10, 5));
+        when(cdrRecordRepository.sumDurationsForMsisdnInPeriod(
                 msisdn,
                 LocalDateTime.of(2024, 3, 1, 10, 0),
                 LocalDateTime.of(2024, 3, 1, 10, 5)))
-                .thenReturn(List.of(record1));
+                .thenReturn(totalsFor(msisdn, record1));
 
         String result = udrService.generateUdrReport(msisdn, null);
 
@@ -273,8 +349,10 @@ class UdrServiceTest {
         assertThat(result).contains("\"totalTime\": \"00:05:00\""); // Исходящие
         assertThat(result).contains("\"totalTime\": \"00:00:00\""); // Входящие
 
-        verify(cdrRecordRepository, times(1)).findEarliestStartTime();
-        verify(cdrRecordRepository, times(1)).findLatestEndTime();
+        verify(billingPeriodTracker, times(1)).getEarliestStartTime();
+        verify(billingPeriodTracker, times(1)).getLatestEndTime();
+        verify(cdrRecordRepository, never()).findEarliestStartTime();
+        verify(cdrRecordRepository, never()).findLatestEndTime();
     }
 
     /**
@@ -298,7 +376,7 @@ class UdrServiceTest {
         String month = "2024-03";
 
         // Мокируем репозиторий, чтобы вернуть пустой список записей
-        when(cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber(msisdn)).thenReturn(true);
+        when(msisdnRegistry.mightContain(msisdn)).thenReturn(false);
 
         String result = udrService.generateUdrReport(msisdn, month);
 
@@ -312,7 +390,7 @@ class UdrServiceTest {
         String endDate = "2024-03-31T23:59:59";
 
         // Мокируем репозиторий, чтобы вернуть пустой список записей
-        when(cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber(msisdn)).thenReturn(true);
+        when(msisdnRegistry.mightContain(msisdn)).thenReturn(false);
 
         Exception exception = assertThrows(RuntimeException.class, () -> {
             udrService.generateCdrReport(msisdn, startDate, endDate);
@@ -325,10 +403,8 @@ class UdrServiceTest {
     void testGenerateAllUdrReports_NoRecordsFound() {
         String month = "2024-03";
 
-        // Мокируем репозиторий, чтобы вернуть пустой список записей
-        LocalDateTime startOfMonth = LocalDateTime.parse(month + "-01T00:00:00");
-        LocalDateTime endOfMonth = startOfMonth.plusMonths(1).minusSeconds(1);
-        when(cdrRecordRepository.findByStartTimeBetween(startOfMonth, endOfMonth)).thenReturn(List.of());
+        // Мокируем репозиторий, чтобы вернуть пустую партицию месяца
+        when(cdrRecordRepository.sumDurationsByBillingMonth(month)).thenReturn(List.of());
 
         String result = udrService.generateAllUdrReports(month);
 
@@ -341,15 +417,328 @@ class UdrServiceTest {
         String month = "2024-03";
 
         // Мокируем репозиторий, чтобы вернуть пустой список записей
-        when(cdrRecordRepository.doesNotExistByCallerNumberOrReceiverNumber(msisdn)).thenReturn(false);
-        when(cdrRecordRepository.findRecordsForMsisdnInPeriod(
+        when(msisdnRegistry.mightContain(msisdn)).thenReturn(true);
+        when(cdrRecordRepository.sumDurationsForMsisdnInPeriod(
                 eq(msisdn),
                 eq(LocalDateTime.parse("2024-03-01T00:00:00")),
                 eq(LocalDateTime.parse("2024-03-31T23:59:59"))
-        )).thenReturn(List.of());
+        )).thenReturn(Optional.empty());
 
         String result = udrService.generateUdrReport(msisdn, month);
 
         assertThat(result).isEqualTo("No records found for the specified MSISDN.");
     }
+
+    /**
+     * Проверяет, что при наличии помесячного агрегата отчёт строится по нему без чтения CDR-записей.
+     */
+    @Test
+    void testGenerateUdrReport_FromRollup() {
+        String msisdn = "79991112233";
+        UdrMonthlyRollup rollup = new UdrMonthlyRollup(new UdrMonthlyRollupId(msisdn, "2024-03"));
+        rollup.add(600, 300);
+
+        when(rollupRepository.findById(new UdrMonthlyRollupId(msisdn, "2024-03"))).thenReturn(Optional.of(rollup));
+
+        String result = udrService.generateUdrReport(msisdn, "2024-03");
+
+        assertThat(result).isEqualTo("{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, " +
+                "\"outcomingCall\": {\"totalTime\": \"00:05:00\"}}");
+        verify(cdrRecordRepository, never()).sumDurationsForMsisdnInPeriod(any(), any(), any());
+    }
+
+    /**
+     * Проверяет, что без указания месяца агрегаты абонента суммируются за весь период.
+     */
+    @Test
+    void testGenerateUdrReport_FromRollupWithoutMonth() {
+        String msisdn = "79991112233";
+        UdrMonthlyRollup march = new UdrMonthlyRollup(new UdrMonthlyRollupId(msisdn, "2024-03"));
+        march.add(3000, 300);
+        UdrMonthlyRollup april = new UdrMonthlyRollup(new UdrMonthlyRollupId(msisdn, "2024-04"));
+        april.add(1200, 3600);
+
+        when(rollupRepository.findByIdMsisdn(msisdn)).thenReturn(List.of(march, april));
+
+        String result = udrService.generateUdrReport(msisdn, null);
+
+        assertThat(result).isEqualTo("{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"01:10:00\"}, " +
+                "\"outcomingCall\": {\"totalTime\": \"01:05:00\"}}");
+        verify(cdrRecordRepository, never()).findEarliestStartTime();
+        verify(cdrRecordRepository, never()).sumDurationsForMsisdnInPeriod(any(), any(), any());
+    }
+
+    /**
+     * Проверяет формирование отчётов по всем абонентам из помесячных агрегатов.
+     */
+    @Test
+    void testGenerateAllUdrReports_FromRollup() {
+        UdrMonthlyRollup first = new UdrMonthlyRollup(new UdrMonthlyRollupId("79991112233", "2024-03"));
+        first.add(0, 300);
+        UdrMonthlyRollup second = new UdrMonthlyRollup(new UdrMonthlyRollupId("79992221122", "2024-03"));
+        second.add(600, 0);
+
+        when(rollupRepository.findByIdMonth("2024-03")).thenReturn(List.of(first, second));
+
+        String result = udrService.generateAllUdrReports("2024-03");
+
+        assertThat(result).isEqualTo(
+                "{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:05:00\"}}\n" +
+                "{\"msisdn\": \"79992221122\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}\n");
+        verify(cdrRecordRepository, never()).sumDurationsByBillingMonth(any());
+    }
+
+    /**
+     * Проверяет, что при параллельной сериализации большого числа абонентов отчёты
+     * упорядочены по MSISDN независимо от порядка агрегатов.
+     */
+    @Test
+    void testGenerateAllUdrReports_SortedByMsisdn() {
+        int subscribers = UdrService.PARALLEL_THRESHOLD * 4;
+        List<UdrMonthlyRollup> rollups = new ArrayList<>();
+        for (int i = subscribers - 1; i >= 0; i--) {
+            UdrMonthlyRollup rollup = new UdrMonthlyRollup(new UdrMonthlyRollupId(String.valueOf(79_990_000_000L + i), "2024-03"));
+            rollup.add(i, 0);
+            rollups.add(rollup);
+        }
+        when(rollupRepository.findByIdMonth("2024-03")).thenReturn(rollups);
+
+        String[] lines = udrService.generateAllUdrReports("2024-03").split("\n");
+
+        assertThat(lines).hasSize(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            assertThat(lines[i]).isEqualTo(new UdrJsonWriter().writeUdr(79_990_000_000L + i, i, 0).toString());
+        }
+    }
+
+    /**
+     * Проверяет потоковую запись отчётов по агрегатам месяца в формате NDJSON.
+     */
+    @Test
+    void testWriteAllUdrReports_FromRollup() throws IOException {
+        when(rollupRepository.streamTotalsByMonth("2024-03")).thenReturn(Stream.of(
+                new UdrTotals("79991112233", 0, 300),
+                new UdrTotals("79992221122", 600, 0)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        udrService.writeAllUdrReports("2024-03", out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:05:00\"}}\n" +
+                "{\"msisdn\": \"79992221122\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}\n");
+        verify(cdrRecordRepository, never()).streamDurationsByBillingMonth(any());
+    }
+
+    /**
+     * Проверяет, что абоненты с номерами, не представимыми числом, вставляются между агрегатами в порядке MSISDN.
+     */
+    @Test
+    void testWriteAllUdrReports_FromRollupWithNonEncodableMsisdn() throws IOException {
+        when(msisdnRegistry.hasNonEncodableMsisdns()).thenReturn(true);
+        when(rollupRepository.streamTotalsByMonth("2024-03")).thenReturn(Stream.of(
+                new UdrTotals("79991112233", 0, 300)));
+        when(cdrRecordRepository.sumNonEncodableDurationsByBillingMonth("2024-03")).thenReturn(List.of(
+                new UdrTotals("079991112233", 600, 0)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        udrService.writeAllUdrReports("2024-03", out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"msisdn\": \"079991112233\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}\n" +
+                "{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:05:00\"}}\n");
+    }
+
+    /**
+     * Проверяет потоковую запись отчётов по CDR-записям, если агрегатов за месяц нет.
+     */
+    @Test
+    void testWriteAllUdrReports_FromRecords() throws IOException {
+        CdrRecord record = new CdrRecord();
+        record.setCallType("02");
+        record.setCallerNumber("79992221122");
+        record.setReceiverNumber("79991112233");
+        record.setStartTime(LocalDateTime.of(2024, 3, 1, 11, 0));
+        record.setEndTime(LocalDateTime.of(2024, 3, 1, 11, 10));
+
+        when(cdrRecordRepository.streamDurationsByBillingMonth("2024-03"))
+                .thenReturn(monthTotals(record).stream());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        udrService.writeAllUdrReports("2024-03", out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).containsExactlyInAnyOrder(
+                "{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}",
+                "{\"msisdn\": \"79992221122\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}");
+    }
+
+    /**
+     * Проверяет, что загруженное колоночное хранилище отвечает на запрос по абоненту за месяц.
+     */
+    @Test
+    void testGenerateUdrReport_FromColumnarStore() {
+        long msisdn = CdrCodec.encodeMsisdn("79991112233");
+        MsisdnTotals totals = new MsisdnTotals();
+        totals.add(msisdn, 600, 300);
+
+        when(columnarCdrStore.isReady()).thenReturn(true);
+        when(columnarCdrStore.totalsFor(msisdn,
+                CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 1, 0, 0)),
+                CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 31, 23, 59, 59))))
+                .thenReturn(totals);
+
+        String result = udrService.generateUdrReport("79991112233", "2024-03");
+
+        assertThat(result).isEqualTo("{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, " +
+                "\"outcomingCall\": {\"totalTime\": \"00:05:00\"}}");
+        verify(rollupRepository, never()).findById(any());
+        verify(cdrRecordRepository, never()).sumDurationsForMsisdnInPeriod(any(), any(), any());
+    }
+
+    /**
+     * Проверяет сообщение об отсутствии записей, если в хранилище нет звонков абонента за месяц.
+     */
+    @Test
+    void testGenerateUdrReport_FromColumnarStoreNoRecords() {
+        when(columnarCdrStore.isReady()).thenReturn(true);
+        when(columnarCdrStore.totalsFor(eq(CdrCodec.encodeMsisdn("79991112233")), anyLong(), anyLong()))
+                .thenReturn(new MsisdnTotals());
+
+        String result = udrService.generateUdrReport("79991112233", "2024-03");
+
+        assertThat(result).isEqualTo("No records found for the specified MSISDN.");
+    }
+
+    /**
+     * Проверяет, что для номера, не представимого числом, длительности суммируются запросом к таблице CDR
+     * даже при загруженном колоночном хранилище.
+     */
+    @Test
+    void testGenerateUdrReport_NonEncodableMsisdnUsesQuery() {
+        when(columnarCdrStore.isReady()).thenReturn(true);
+        when(cdrRecordRepository.sumDurationsForMsisdnInPeriod(
+                "079991112233",
+                LocalDateTime.of(2024, 3, 1, 0, 0),
+                LocalDateTime.of(2024, 3, 31, 23, 59, 59)))
+                .thenReturn(Optional.of(new UdrTotals("079991112233", 600, 300)));
+
+        String result = udrService.generateUdrReport("079991112233", "2024-03");
+
+        assertThat(result).isEqualTo("{\"msisdn\": \"079991112233\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, " +
+                "\"outcomingCall\": {\"totalTime\": \"00:05:00\"}}");
+        verify(columnarCdrStore, never()).totalsFor(anyLong(), anyLong(), anyLong());
+        verify(rollupRepository, never()).findById(any());
+    }
+
+    /**
+     * Проверяет формирование отчётов по всем абонентам из колоночного хранилища.
+     */
+    @Test
+    void testGenerateAllUdrReports_FromColumnarStore() {
+        MsisdnTotals totals = new MsisdnTotals();
+        totals.add(CdrCodec.encodeMsisdn("79991112233"), 0, 300);
+
+        when(columnarCdrStore.isReady()).thenReturn(true);
+        when(columnarCdrStore.aggregate(
+                CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 1, 0, 0)),
+                CdrCodec.toEpochSecond(LocalDateTime.of(2024, 3, 31, 23, 59, 59))))
+                .thenReturn(totals);
+
+        String result = udrService.generateAllUdrReports("2024-03");
+
+        assertThat(result).isEqualTo(
+                "{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:05:00\"}}\n");
+        verify(rollupRepository, never()).findByIdMonth(any());
+        verify(cdrRecordRepository, never()).sumDurationsByBillingMonth(any());
+    }
+
+    /**
+     * Проверяет, что абоненты с номерами, не представимыми числом, которых нет в колоночном хранилище,
+     * попадают в отчёт по всем абонентам из запроса к партиции месяца.
+     */
+    @Test
+    void testGenerateAllUdrReports_FromColumnarStoreWithNonEncodableMsisdn() {
+        MsisdnTotals totals = new MsisdnTotals();
+        totals.add(CdrCodec.encodeMsisdn("79991112233"), 0, 300);
+
+        when(columnarCdrStore.isReady()).thenReturn(true);
+        when(columnarCdrStore.aggregate(anyLong(), anyLong())).thenReturn(totals);
+        when(msisdnRegistry.hasNonEncodableMsisdns()).thenReturn(true);
+        when(cdrRecordRepository.sumNonEncodableDurationsByBillingMonth("2024-03")).thenReturn(List.of(
+                new UdrTotals("079991112233", 600, 0)));
+
+        String result = udrService.generateAllUdrReports("2024-03");
+
+        assertThat(result).isEqualTo(
+                "{\"msisdn\": \"079991112233\", \"incomingCall\": {\"totalTime\": \"00:10:00\"}, \"outcomingCall\": {\"totalTime\": \"00:00:00\"}}\n" +
+                "{\"msisdn\": \"79991112233\", \"incomingCall\": {\"totalTime\": \"00:00:00\"}, \"outcomingCall\": {\"totalTime\": \"00:05:00\"}}\n");
+        verify(cdrRecordRepository, never()).sumDurationsByBillingMonth(any());
+    }
+
+    /**
+     * Проверяет, что повторный запрос отчёта абонента за месяц обслуживается из кэша.
+     */
+    @Test
+    void testGenerateUdrReport_Cached() {
+        String msisdn = "79991112233";
+        UdrMonthlyRollup rollup = new UdrMonthlyRollup(new UdrMonthlyRollupId(msisdn, "2024-03"));
+        rollup.add(600, 300);
+        when(rollupRepository.findById(new UdrMonthlyRollupId(msisdn, "2024-03"))).thenReturn(Optional.of(rollup));
+
+        String first = udrService.generateUdrReport("+7 (999) 111-22-33", "2024-03");
+        String second = udrService.generateUdrReport(msisdn, "2024-03");
+
+        assertThat(second).isEqualTo(first);
+        verify(msisdnRegistry, times(1)).mightContain(msisdn);
+        verify(rollupRepository, times(1)).findById(any());
+        assertThat(udrReportCache.stats().hitCount()).isEqualTo(1);
+    }
+
+    /**
+     * Проверяет, что для отчётов за месяц записываются время этапов, число прочитанных строк и размер отчёта.
+     */
+    @Test
+    void testGenerateAllUdrReports_RecordsMetrics() {
+        when(cdrRecordRepository.sumDurationsByBillingMonth("2024-03")).thenReturn(List.of(
+                new UdrTotals("79991112233", 0, 300),
+                new UdrTotals("79992221122", 600, 0)));
+
+        String result = udrService.generateAllUdrReports("2024-03");
+
+        assertThat(meterRegistry.get(UdrMetrics.STAGE_TIMER).tags("report", "all", "stage", "query").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get(UdrMetrics.STAGE_TIMER).tags("report", "all", "stage", "format").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get(UdrMetrics.RECORDS_SCANNED).tags("report", "all", "stage", "query")
+                .summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get(UdrMetrics.REPORT_SIZE).tag("report", "all").summary().totalAmount())
+                .isEqualTo(result.length());
+    }
+
+    private static List<CdrCall> calls(CdrRecord... records) {
+        return Arrays.stream(records).map(CdrCall::of).toList();
+    }
+
+    /**
+     * Итоги абонента, которые вернул бы запрос с суммированием длительностей по переданным записям.
+     */
+    private static Optional<UdrTotals> totalsFor(String msisdn, CdrRecord... records) {
+        MsisdnTotals totals = UdrAggregator.aggregate(Arrays.asList(records));
+        long key = CdrCodec.encodeMsisdn(msisdn);
+        if (!totals.contains(key)) {
+            return Optional.empty();
+        }
+        return Optional.of(new UdrTotals(msisdn, totals.incomingSeconds(key), totals.outcomingSeconds(key)));
+    }
+
+    /**
+     * Итоги всех абонентов, которые вернул бы запрос с группировкой по абоненту по переданным записям.
+     */
+    private static List<UdrTotals> monthTotals(CdrRecord... records) {
+        List<UdrTotals> result = new ArrayList<>();
+        MsisdnTotals.Cursor cursor = UdrAggregator.aggregate(Arrays.asList(records)).cursor();
+        while (cursor.next()) {
+            result.add(new UdrTotals(CdrCodec.decodeMsisdn(cursor.msisdn()), cursor.incomingSeconds(), cursor.outcomingSeconds()));
+        }
+        return result;
+    }
 }